@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * SolvePOMDP
+ * Copyright (C) 2017 Erwin Walraven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package lpsolver;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import solver.AlphaVector;
+import solver.BenchmarkData;
+
+/**
+ * LP backends require their native libraries or licenses, so select the available backends using -p backend=...
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LPModelBenchmark {
+	@Param({"lpsolve", "joptimizer", "gurobi"})
+	public String backend;
+	
+	@Param({"10", "50"})
+	public int nStates;
+	
+	@Param({"10", "100", "500"})
+	public int nVectors;
+	
+	private LPModel lp;
+	private ArrayList<AlphaVector> U;
+	private AlphaVector w;
+	
+	@Setup
+	public void setup() {
+		lp = new LPModelFactory(backend, BenchmarkData.createSolverProperties()).create();
+		
+		Random rnd = new Random(1);
+		U = BenchmarkData.createRandomVectors(rnd, nVectors, nStates);
+		w = BenchmarkData.createUndominatedVector(rnd, nStates);
+	}
+	
+	@TearDown
+	public void tearDown() {
+		lp.close();
+	}
+	
+	@Benchmark
+	public double[] findRegionPoint() {
+		return lp.findRegionPoint(w, U);
+	}
+	
+	@Benchmark
+	public double[] findRegionPointAccelerated() {
+		return lp.findRegionPointAccelerated(w, U);
+	}
+}
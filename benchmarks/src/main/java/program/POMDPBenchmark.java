@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * SolvePOMDP
+ * Copyright (C) 2017 Erwin Walraven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package program;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import solver.BeliefPoint;
+import solver.BenchmarkData;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class POMDPBenchmark {
+	@Param({"4x3.POMDP", "partpainting.POMDP", "random-100", "random-1000", "rocksample-5-5"})
+	public String model;
+	
+	private POMDP pomdp;
+	private double[] beliefEntries;
+	private int action;
+	private int observation;
+	
+	@Setup
+	public void setup() {
+		pomdp = BenchmarkData.loadModel(model);
+		beliefEntries = pomdp.getInitialBelief().getBelief();
+		
+		// select the most likely observation of action 0, such that the update is well-defined
+		BeliefPoint b = new BeliefPoint(beliefEntries);
+		pomdp.prepareBelief(b);
+		action = 0;
+		for(int o=0; o<pomdp.getNumObservations(); o++) {
+			if(b.getActionObservationProbability(action, o) > b.getActionObservationProbability(action, observation)) {
+				observation = o;
+			}
+		}
+	}
+	
+	@Benchmark
+	public BeliefPoint updateBelief() {
+		// a new belief point is used in each call, such that cached observation probabilities are not reused
+		return pomdp.updateBelief(new BeliefPoint(beliefEntries), action, observation);
+	}
+}
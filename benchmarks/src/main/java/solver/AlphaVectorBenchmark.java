@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * SolvePOMDP
+ * Copyright (C) 2017 Erwin Walraven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package solver;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AlphaVectorBenchmark {
+	@Param({"10", "100", "1000"})
+	public int nStates;
+	
+	@Param({"10", "100", "1000"})
+	public int nVectors;
+	
+	private ArrayList<AlphaVector> U;
+	private ArrayList<AlphaVector> W;     // small set, as in the cross sum with one G_a^o set
+	private AlphaVector w;
+	private double[] b;
+	
+	@Setup
+	public void setup() {
+		Random rnd = new Random(1);
+		U = BenchmarkData.createRandomVectors(rnd, nVectors, nStates);
+		W = BenchmarkData.createRandomVectors(rnd, 10, nStates);
+		w = BenchmarkData.createUndominatedVector(rnd, nStates);
+		b = BenchmarkData.createRandomBelief(rnd, nStates);
+	}
+	
+	@Benchmark
+	public ArrayList<AlphaVector> crossSum() {
+		return AlphaVector.crossSum(U, W);
+	}
+	
+	@Benchmark
+	public boolean isPointwiseDominated() {
+		// w is not dominated, so all vectors in U are checked
+		return w.isPointwiseDominated(U);
+	}
+	
+	@Benchmark
+	public int getBestVectorIndex() {
+		return AlphaVector.getBestVectorIndex(b, U);
+	}
+}
@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * SolvePOMDP
+ * Copyright (C) 2017 Erwin Walraven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package solver;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import program.POMDP;
+import program.POMDPGenerator;
+import program.Parser;
+import program.SolverProperties;
+
+/**
+ * Inputs shared by the benchmarks: domains from the domains directory, generated models, and synthetic vectors and beliefs
+ */
+
+public class BenchmarkData {
+	/**
+	 * Load a model, which is either a .POMDP file in the domain directory or a synthetic model: random-S for a random model
+	 * with S states, grid-WxH for a grid world, or rocksample-N-K for a RockSample instance
+	 * @param model model name
+	 * @return POMDP
+	 */
+	public static POMDP loadModel(String model) {
+		String[] modelSplit = model.split("-");
+		
+		if(modelSplit[0].equals("random") && modelSplit.length == 2) {
+			int nStates = Integer.parseInt(modelSplit[1]);
+			return POMDPGenerator.createRandom(nStates, 4, 4, Math.min(nStates, 5), 2, -1.0, 1.0, 0.95, 123);
+		}
+		else if(modelSplit[0].equals("grid") && modelSplit.length == 2) {
+			String[] size = modelSplit[1].split("x");
+			return POMDPGenerator.createGridWorld(Integer.parseInt(size[0]), Integer.parseInt(size[1]), 0.2, 0.1, -0.04, 1.0, 0.95);
+		}
+		else if(modelSplit[0].equals("rocksample") && modelSplit.length == 3) {
+			return POMDPGenerator.createRockSample(Integer.parseInt(modelSplit[1]), Integer.parseInt(modelSplit[2]), 0.95, 123);
+		}
+		else {
+			String domainDir = System.getProperty("solvepomdp.domains", "../domains");
+			return Parser.readPOMDP(domainDir+"/"+model);
+		}
+	}
+	
+	/**
+	 * Create solver properties containing the defaults from solver.config
+	 * @return solver properties
+	 */
+	public static SolverProperties createSolverProperties() {
+		SolverProperties sp = new SolverProperties();
+		sp.setEpsilon(0.000001);
+		sp.setValueFunctionTolerance(0.000001);
+		sp.setAcceleratedLPThreshold(200);
+		sp.setAcceleratedLPTolerance(0.0001);
+		sp.setCoefficientThreshold(0.000000001);
+		sp.setTimeLimit(Double.POSITIVE_INFINITY);
+		sp.setBeliefSamplingRuns(50);
+		sp.setBeliefSamplingSteps(50);
+		sp.setWorkingDir("");
+		sp.setOutputDirName(System.getProperty("java.io.tmpdir"));
+		return sp;
+	}
+	
+	/**
+	 * Create vectors with entries drawn uniformly from [-1,1]
+	 * @param rnd random number generator
+	 * @param nVectors number of vectors
+	 * @param nStates number of entries per vector
+	 * @return vectors
+	 */
+	public static ArrayList<AlphaVector> createRandomVectors(Random rnd, int nVectors, int nStates) {
+		ArrayList<AlphaVector> vectors = new ArrayList<AlphaVector>();
+		
+		for(int i=0; i<nVectors; i++) {
+			double[] entries = new double[nStates];
+			for(int s=0; s<nStates; s++) {
+				entries[s] = 2.0 * rnd.nextDouble() - 1.0;
+			}
+			
+			AlphaVector av = new AlphaVector(entries);
+			av.setAction(0);
+			vectors.add(av);
+		}
+		
+		return vectors;
+	}
+	
+	/**
+	 * Create a vector which has a region in any set created by createRandomVectors, because one entry exceeds all other entries
+	 * @param rnd random number generator
+	 * @param nStates number of entries
+	 * @return vector
+	 */
+	public static AlphaVector createUndominatedVector(Random rnd, int nStates) {
+		AlphaVector av = createRandomVectors(rnd, 1, nStates).get(0);
+		av.getEntries()[rnd.nextInt(nStates)] = 2.0;
+		return av;
+	}
+	
+	/**
+	 * Create a belief drawn uniformly from the belief simplex
+	 * @param rnd random number generator
+	 * @param nStates number of states
+	 * @return belief
+	 */
+	public static double[] createRandomBelief(Random rnd, int nStates) {
+		double[] b = new double[nStates];
+		double sum = 0.0;
+		
+		for(int s=0; s<nStates; s++) {
+			b[s] = -Math.log(1.0 - rnd.nextDouble());
+			sum += b[s];
+		}
+		
+		for(int s=0; s<nStates; s++) {
+			b[s] /= sum;
+		}
+		
+		return b;
+	}
+}
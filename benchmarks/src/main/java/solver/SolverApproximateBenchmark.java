@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * SolvePOMDP
+ * Copyright (C) 2017 Erwin Walraven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package solver;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import program.POMDP;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SolverApproximateBenchmark {
+	@Param({"4x3.POMDP", "partpainting.POMDP", "random-50", "random-200", "grid-10x10", "rocksample-4-4"})
+	public String model;
+	
+	@Param({"10"})
+	public int warmupStages;
+	
+	private POMDP pomdp;
+	private SolverApproximate solver;
+	private ArrayList<AlphaVector> immediateRewards;
+	private ArrayList<AlphaVector> V;
+	private ArrayList<BeliefPoint> B;
+	
+	@Setup
+	public void setup() {
+		pomdp = BenchmarkData.loadModel(model);
+		solver = new SolverApproximate(BenchmarkData.createSolverProperties(), new Random(222));
+		B = solver.getBeliefPoints(pomdp);
+		
+		immediateRewards = new ArrayList<AlphaVector>();
+		for(int a=0; a<pomdp.getNumActions(); a++) {
+			double[] entries = new double[pomdp.getNumStates()];
+			for(int s=0; s<pomdp.getNumStates(); s++) {
+				entries[s] = pomdp.getReward(s, a);
+			}
+			AlphaVector av = new AlphaVector(entries);
+			av.setAction(a);
+			immediateRewards.add(av);
+		}
+		
+		// execute a few stages, such that the benchmark uses a value function of realistic size
+		V = immediateRewards;
+		for(int i=0; i<warmupStages; i++) {
+			V = solver.backupStage(pomdp, immediateRewards, V, B);
+		}
+	}
+	
+	/**
+	 * Remove the vectors cached by the previous backups of the beliefs. Otherwise each invocation would start from the
+	 * maximizing vectors of the previous invocation on the same V, which is faster than any stage of the solver.
+	 */
+	@Setup(Level.Invocation)
+	public void clearBackupVectors() {
+		for(BeliefPoint b : B) {
+			b.setBackupVectors(null);
+		}
+	}
+	
+	@Benchmark
+	public ArrayList<AlphaVector> backupStage() {
+		return solver.backupStage(pomdp, immediateRewards, V, B);
+	}
+}
@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * SolvePOMDP
+ * Copyright (C) 2017 Erwin Walraven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package solver;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import lpsolver.LPModel;
+import lpsolver.LPModelFactory;
+import program.POMDP;
+import program.SolverProperties;
+import pruning.PruneAccelerated;
+import pruning.PruneMethod;
+import pruning.PruneStandard;
+
+/**
+ * Benchmarks one full dynamic programming stage of incremental pruning, starting from the value function
+ * obtained after a number of stages. Select the available LP backends using -p backend=...
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class SolverExactBenchmark {
+	@Param({"4x3.POMDP", "partpainting.POMDP"})
+	public String model;
+	
+	@Param({"lpsolve", "joptimizer", "gurobi"})
+	public String backend;
+	
+	@Param({"standard", "accelerated"})
+	public String pruningMethod;
+	
+	@Param({"5"})
+	public int stage;
+	
+	private LPModel lp;
+	private SolverExact solver;
+	private ArrayList<AlphaVector> V;
+	
+	@Setup
+	public void setup() {
+		POMDP pomdp = BenchmarkData.loadModel(model);
+		SolverProperties sp = BenchmarkData.createSolverProperties();
+		lp = new LPModelFactory(backend, sp).create();
+		
+		PruneMethod pm = pruningMethod.equals("standard") ? new PruneStandard() : new PruneAccelerated();
+		pm.setLPModel(lp);
+		
+		solver = new SolverExact(sp, lp, pm);
+		solver.initialize(pomdp);
+		
+		// compute the value function of the stage preceding the benchmarked stage
+		V = solver.getV0();
+		for(int i=1; i<stage-1; i++) {
+			V = solver.getNextV(V);
+		}
+	}
+	
+	@TearDown
+	public void tearDown() {
+		lp.close();
+	}
+	
+	@Benchmark
+	public ArrayList<AlphaVector> stage() {
+		return solver.getNextV(V);
+	}
+}
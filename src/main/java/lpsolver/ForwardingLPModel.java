@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * SolvePOMDP
+ * Copyright (C) 2017 Erwin Walraven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package lpsolver;
+
+import java.util.ArrayList;
+
+import solver.AlphaVector;
+
+/**
+ * LP model which forwards all calls to another LP model. Decorators extend this class and only override the methods
+ * in which they record information about the LPs.
+ */
+
+public abstract class ForwardingLPModel implements LPModel {
+	protected final LPModel lp;
+	
+	protected ForwardingLPModel(LPModel lp) {
+		assert lp != null;
+		this.lp = lp;
+	}
+	
+	/**
+	 * Get the LP model to which calls are forwarded
+	 * @return LP model
+	 */
+	public LPModel getLPModel() {
+		return lp;
+	}
+
+	public double[] findRegionPoint(AlphaVector w, ArrayList<AlphaVector> U) {
+		return lp.findRegionPoint(w, U);
+	}
+
+	public double[] findRegionPointAccelerated(AlphaVector w, ArrayList<AlphaVector> U) {
+		return lp.findRegionPointAccelerated(w, U);
+	}
+
+	public int getLastConstraintCount() {
+		return lp.getLastConstraintCount();
+	}
+
+	public double getMaxValueDiff(AlphaVector w, ArrayList<AlphaVector> U) {
+		return lp.getMaxValueDiff(w, U);
+	}
+
+	public double[] findImprovedNode(AlphaVector v, AlphaVector[] rewardVectors, AlphaVector[][][] successorVectors) {
+		return lp.findImprovedNode(v, rewardVectors, successorVectors);
+	}
+
+	public void setEpsilon(double epsilon) {
+		lp.setEpsilon(epsilon);
+	}
+
+	public void setAcceleratedLPThreshold(int threshold) {
+		lp.setAcceleratedLPThreshold(threshold);
+	}
+
+	public void setCoefficientThreshold(double threshold) {
+		lp.setCoefficientThreshold(threshold);
+	}
+
+	public void setAcceleratedLPTolerance(double tolerance) {
+		lp.setAcceleratedLPTolerance(tolerance);
+	}
+
+	public void init() {
+		lp.init();
+	}
+
+	public void close() {
+		lp.close();
+	}
+
+	public String getName() {
+		return lp.getName();
+	}
+}
@@ -36,6 +36,7 @@ public class LPGurobi implements LPModel {
 	private int acceleratedLPThreshold = 200;
 	private double acceleratedLPTolerance = 0.0001;
 	private double coefficientThreshold = 0.0;
+	private int lastConstraintCount = 0;     // constraints added by the last call to findRegionPointAccelerated
 	
 	public LPGurobi() {
 		
@@ -119,6 +120,7 @@ public class LPGurobi implements LPModel {
 	public double[] findRegionPointAccelerated(AlphaVector w, ArrayList<AlphaVector> U) {
 		int nStates = w.size();
 		double[] retB = null;
+		lastConstraintCount = 0;
 		
 		// if U is empty, then any b is a witness point
 		if(U.size() == 0) {
@@ -228,6 +230,8 @@ public class LPGurobi implements LPModel {
 				}
 			}
 			
+			lastConstraintCount = nConstraints;
+			
 			if(currentMax > epsilon) {
 				retB = new double[nStates];
 				for(int i=0; i<nStates; i++) {
@@ -344,6 +348,10 @@ public class LPGurobi implements LPModel {
 		return minIndex;
 	}
 	
+	public int getLastConstraintCount() {
+		return lastConstraintCount;
+	}
+	
 	public double getMaxValueDiff(AlphaVector w, ArrayList<AlphaVector> U) {
 		assert U.size() > 0;
 		int nStates = w.size();
@@ -405,6 +413,97 @@ public class LPGurobi implements LPModel {
 		return retD;
 	}
 	
+	public double[] findImprovedNode(AlphaVector v, AlphaVector[] rewardVectors, AlphaVector[][][] successorVectors) {
+		int nStates = v.size();
+		int nActions = successorVectors.length;
+		int nObservations = successorVectors[0].length;
+		int nNodes = successorVectors[0][0].length;
+		double[] retNode = null;
+		
+		try {
+			GRBModel model = new GRBModel(env);
+			
+			// create variables
+			GRBVar dVar = model.addVar(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, 0.0, GRB.CONTINUOUS, "d");
+			
+			GRBVar[] actionVar = new GRBVar[nActions];
+			GRBVar[][][] nodeVar = new GRBVar[nActions][nObservations][nNodes];
+			for(int a=0; a<nActions; a++) {
+				actionVar[a] = model.addVar(0.0, 1.0, 0.0, GRB.CONTINUOUS, "c_"+a);
+				for(int o=0; o<nObservations; o++) {
+					for(int n=0; n<nNodes; n++) {
+						nodeVar[a][o][n] = model.addVar(0.0, 1.0, 0.0, GRB.CONTINUOUS, "c_"+a+"_"+o+"_"+n);
+					}
+				}
+			}
+			
+			model.update();
+			
+			// set objective
+			GRBLinExpr expr = new GRBLinExpr();
+			expr.addTerm(1.0, dVar);
+			model.setObjective(expr, GRB.MAXIMIZE);
+			
+			// add a constraint for each state, such that the new node improves the value in each state
+			for(int s=0; s<nStates; s++) {
+				expr = new GRBLinExpr();
+				for(int a=0; a<nActions; a++) {
+					expr.addTerm(getCoefficient(rewardVectors[a].getEntry(s)), actionVar[a]);
+					for(int o=0; o<nObservations; o++) {
+						for(int n=0; n<nNodes; n++) {
+							expr.addTerm(getCoefficient(successorVectors[a][o][n].getEntry(s)), nodeVar[a][o][n]);
+						}
+					}
+				}
+				expr.addTerm(-1.0, dVar);
+				model.addConstr(expr, GRB.GREATER_EQUAL, v.getEntry(s), "v_constr");
+			}
+			
+			// add constraints such that action probabilities sum to 1 and node probabilities sum to c_a
+			expr = new GRBLinExpr();
+			for(int a=0; a<nActions; a++) {
+				expr.addTerm(1.0, actionVar[a]);
+			}
+			model.addConstr(expr, GRB.EQUAL, 1.0, "a_constr");
+			
+			for(int a=0; a<nActions; a++) {
+				for(int o=0; o<nObservations; o++) {
+					expr = new GRBLinExpr();
+					expr.addTerm(-1.0, actionVar[a]);
+					for(int n=0; n<nNodes; n++) {
+						expr.addTerm(1.0, nodeVar[a][o][n]);
+					}
+					model.addConstr(expr, GRB.EQUAL, 0.0, "ao_constr");
+				}
+			}
+			
+			model.update();
+			model.optimize();
+			
+			int status = model.get(GRB.IntAttr.Status);
+			
+			if(status == GRB.Status.OPTIMAL && dVar.get(GRB.DoubleAttr.X) > epsilon) {
+				retNode = new double[1 + nActions + nActions * nObservations * nNodes];
+				retNode[0] = dVar.get(GRB.DoubleAttr.X);
+				for(int a=0; a<nActions; a++) {
+					retNode[1+a] = actionVar[a].get(GRB.DoubleAttr.X);
+					for(int o=0; o<nObservations; o++) {
+						for(int n=0; n<nNodes; n++) {
+							retNode[1+nActions+(a*nObservations+o)*nNodes+n] = nodeVar[a][o][n].get(GRB.DoubleAttr.X);
+						}
+					}
+				}
+			}
+			
+			model.dispose();
+		}
+		catch (GRBException e) {
+			e.printStackTrace();
+		}
+		
+		return retNode;
+	}
+	
 	private double getCoefficient(double c) {
 		// important: before adding a scalar here, check if all coefficients go through this function!
 		
@@ -39,6 +39,14 @@ public interface LPModel {
 	 */
 	public double[] findRegionPointAccelerated(AlphaVector w, ArrayList<AlphaVector> U);
 	
+	/**
+	 * Get the number of constraints added by the last call to findRegionPointAccelerated. Each iteration of the Benders
+	 * method solves the LP after adding one constraint, so this is also the number of iterations. The count is zero if
+	 * the regular LP was used.
+	 * @return number of constraints
+	 */
+	public int getLastConstraintCount();
+	
 	/**
 	 * Compute the maximum value increase obtained when adding vector w to U
 	 * @param w vector w
@@ -47,6 +55,17 @@ public interface LPModel {
 	 */
 	public double getMaxValueDiff(AlphaVector w, ArrayList<AlphaVector> U);
 	
+	/**
+	 * Compute a stochastic controller node which improves the value of node v in all states by the largest amount. The new
+	 * node executes action a with probability c_a, and it moves to node n after executing a and observing o with
+	 * probability c_aon / c_a.
+	 * @param v value of the node in each state
+	 * @param rewardVectors immediate reward vector of each action
+	 * @param successorVectors discounted back-projection of node n for action a and observation o at index [a][o][n]
+	 * @return improvement at index 0, c_a at index 1+a and c_aon at index 1+A+(a*O+o)*N+n, or null if the improvement is below epsilon
+	 */
+	public double[] findImprovedNode(AlphaVector v, AlphaVector[] rewardVectors, AlphaVector[][][] successorVectors);
+	
 	/**
 	 * Set the epsilon value. If the gain is higher than epsilon, a vector will not be pruned
 	 * @param epsilon epsilon value
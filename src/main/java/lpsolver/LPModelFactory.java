@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * SolvePOMDP
+ * Copyright (C) 2017 Erwin Walraven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package lpsolver;
+
+import program.SolverProperties;
+
+public class LPModelFactory {
+	private String lpSolver;          // name of the LP solver: gurobi, joptimizer or lpsolve
+	private SolverProperties sp;      // properties used to configure new LP solvers
+
+	public LPModelFactory(String lpSolver, SolverProperties sp) {
+		if(!lpSolver.equals("gurobi") && !lpSolver.equals("joptimizer") && !lpSolver.equals("lpsolve")) {
+			throw new RuntimeException("Unexpected LP solver in properties file");
+		}
+
+		this.lpSolver = lpSolver;
+		this.sp = sp;
+	}
+
+	/**
+	 * Create a new LP solver, configure it using the solver properties and initialize it. The solver
+	 * emits flight recorder events for each LP.
+	 * @return initialized LP solver
+	 */
+	public LPModel create() {
+		LPModel lp = null;
+
+		if(lpSolver.equals("gurobi")) {
+			lp = new LPGurobi();
+		}
+		else if(lpSolver.equals("joptimizer")) {
+			lp = new LPjoptimizer();
+		}
+		else {
+			lp = new LPSolve();
+		}
+
+		configure(lp);
+		lp.init();
+
+		return new LPModelProfiled(lp);
+	}
+
+	/**
+	 * Apply the LP settings in the solver properties to an existing LP solver
+	 * @param lp LP solver
+	 */
+	public void configure(LPModel lp) {
+		lp.setEpsilon(sp.getEpsilon());
+		lp.setAcceleratedLPThreshold(sp.getAcceleratedLPThreshold());
+		lp.setAcceleratedLPTolerance(sp.getAcceleratedLPTolerance());
+		lp.setCoefficientThreshold(sp.getCoefficientThreshold());
+	}
+
+	/**
+	 * Get the name of the LP solver created by this factory
+	 * @return name
+	 */
+	public String getLPSolverName() {
+		return lpSolver;
+	}
+}
@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * SolvePOMDP
+ * Copyright (C) 2017 Erwin Walraven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package lpsolver;
+
+import java.util.ArrayList;
+
+import solver.AlphaVector;
+import solver.SolverStatistics;
+
+/**
+ * LP model which forwards all calls to another LP model, and records the number of calls and the time spent in each method
+ */
+
+public class LPModelInstrumented extends ForwardingLPModel {
+	private SolverStatistics stats;
+	
+	public LPModelInstrumented(LPModel lp, SolverStatistics stats) {
+		super(lp);
+		assert stats != null;
+		this.stats = stats;
+	}
+
+	public double[] findRegionPoint(AlphaVector w, ArrayList<AlphaVector> U) {
+		long startTime = System.nanoTime();
+		double[] b = lp.findRegionPoint(w, U);
+		stats.addTime(SolverStatistics.TIME_LP, startTime);
+		stats.increment(SolverStatistics.LP_FIND_REGION_POINT);
+		return b;
+	}
+
+	public double[] findRegionPointAccelerated(AlphaVector w, ArrayList<AlphaVector> U) {
+		long startTime = System.nanoTime();
+		double[] b = lp.findRegionPointAccelerated(w, U);
+		stats.addTime(SolverStatistics.TIME_LP, startTime);
+		stats.increment(SolverStatistics.LP_FIND_REGION_POINT_ACCELERATED);
+		stats.add(SolverStatistics.LP_ACCELERATED_CONSTRAINTS, lp.getLastConstraintCount());
+		return b;
+	}
+
+	public double getMaxValueDiff(AlphaVector w, ArrayList<AlphaVector> U) {
+		long startTime = System.nanoTime();
+		double diff = lp.getMaxValueDiff(w, U);
+		stats.addTime(SolverStatistics.TIME_LP, startTime);
+		stats.increment(SolverStatistics.LP_MAX_VALUE_DIFF);
+		return diff;
+	}
+
+	public double[] findImprovedNode(AlphaVector v, AlphaVector[] rewardVectors, AlphaVector[][][] successorVectors) {
+		long startTime = System.nanoTime();
+		double[] node = lp.findImprovedNode(v, rewardVectors, successorVectors);
+		stats.addTime(SolverStatistics.TIME_LP, startTime);
+		stats.increment(SolverStatistics.LP_FIND_IMPROVED_NODE);
+		return node;
+	}
+}
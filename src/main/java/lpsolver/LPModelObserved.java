@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * SolvePOMDP
+ * Copyright (C) 2017 Erwin Walraven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package lpsolver;
+
+import java.util.ArrayList;
+
+import solver.AlphaVector;
+import solver.SolverListener;
+
+/**
+ * LP model which forwards all calls to another LP model, and reports the time spent in each LP to a solver listener
+ */
+
+public class LPModelObserved extends ForwardingLPModel {
+	private SolverListener listener;
+	
+	public LPModelObserved(LPModel lp, SolverListener listener) {
+		super(lp);
+		assert listener != null;
+		this.listener = listener;
+	}
+
+	public double[] findRegionPoint(AlphaVector w, ArrayList<AlphaVector> U) {
+		long startTime = System.nanoTime();
+		double[] b = lp.findRegionPoint(w, U);
+		listener.onLPCall("findRegionPoint", (System.nanoTime() - startTime) * 1e-9);
+		return b;
+	}
+
+	public double[] findRegionPointAccelerated(AlphaVector w, ArrayList<AlphaVector> U) {
+		long startTime = System.nanoTime();
+		double[] b = lp.findRegionPointAccelerated(w, U);
+		listener.onLPCall("findRegionPointAccelerated", (System.nanoTime() - startTime) * 1e-9);
+		return b;
+	}
+
+	public double getMaxValueDiff(AlphaVector w, ArrayList<AlphaVector> U) {
+		long startTime = System.nanoTime();
+		double diff = lp.getMaxValueDiff(w, U);
+		listener.onLPCall("getMaxValueDiff", (System.nanoTime() - startTime) * 1e-9);
+		return diff;
+	}
+
+	public double[] findImprovedNode(AlphaVector v, AlphaVector[] rewardVectors, AlphaVector[][][] successorVectors) {
+		long startTime = System.nanoTime();
+		double[] node = lp.findImprovedNode(v, rewardVectors, successorVectors);
+		listener.onLPCall("findImprovedNode", (System.nanoTime() - startTime) * 1e-9);
+		return node;
+	}
+}
@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * SolvePOMDP
+ * Copyright (C) 2017 Erwin Walraven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package lpsolver;
+
+import java.util.ArrayList;
+
+import profiling.LPSolveEvent;
+import solver.AlphaVector;
+
+/**
+ * LP model which forwards all calls to another LP model and emits a flight recorder event for each LP.
+ * Events are only populated if they are enabled in the running recording.
+ */
+
+public class LPModelProfiled extends ForwardingLPModel {
+	
+	public LPModelProfiled(LPModel lp) {
+		super(lp);
+	}
+
+	public double[] findRegionPoint(AlphaVector w, ArrayList<AlphaVector> U) {
+		LPSolveEvent event = new LPSolveEvent();
+		event.begin();
+		double[] b = lp.findRegionPoint(w, U);
+		
+		if(event.shouldCommit()) {
+			event.backend = lp.getName();
+			event.method = "findRegionPoint";
+			event.constraints = U.size();
+			event.regionPointFound = b != null;
+			event.commit();
+		}
+		
+		return b;
+	}
+
+	public double[] findRegionPointAccelerated(AlphaVector w, ArrayList<AlphaVector> U) {
+		LPSolveEvent event = new LPSolveEvent();
+		event.begin();
+		double[] b = lp.findRegionPointAccelerated(w, U);
+		
+		if(event.shouldCommit()) {
+			// the regular LP is used if U is below the accelerated LP threshold
+			int constraintCount = lp.getLastConstraintCount();
+			event.backend = lp.getName();
+			event.method = constraintCount > 0 ? "findRegionPointAccelerated" : "findRegionPoint";
+			event.constraints = constraintCount > 0 ? constraintCount : U.size();
+			event.regionPointFound = b != null;
+			event.commit();
+		}
+		
+		return b;
+	}
+
+	public double getMaxValueDiff(AlphaVector w, ArrayList<AlphaVector> U) {
+		LPSolveEvent event = new LPSolveEvent();
+		event.begin();
+		double diff = lp.getMaxValueDiff(w, U);
+		
+		if(event.shouldCommit()) {
+			event.backend = lp.getName();
+			event.method = "getMaxValueDiff";
+			event.constraints = U.size();
+			event.valueDifference = diff;
+			event.commit();
+		}
+		
+		return diff;
+	}
+
+	public double[] findImprovedNode(AlphaVector v, AlphaVector[] rewardVectors, AlphaVector[][][] successorVectors) {
+		LPSolveEvent event = new LPSolveEvent();
+		event.begin();
+		double[] node = lp.findImprovedNode(v, rewardVectors, successorVectors);
+		
+		if(event.shouldCommit()) {
+			event.backend = lp.getName();
+			event.method = "findImprovedNode";
+			event.constraints = v.size();
+			event.valueDifference = node != null ? node[0] : 0.0;
+			event.commit();
+		}
+		
+		return node;
+	}
+}
@@ -30,6 +30,7 @@ public class LPSolve implements LPModel {
 	private int acceleratedLPThreshold = 200;
 	private double acceleratedLPTolerance = 0.0001;
 	private double coefficientThreshold = 0.000000001;
+	private int lastConstraintCount = 0;     // constraints added by the last call to findRegionPointAccelerated
 	
 	public LPSolve() {
 
@@ -114,6 +115,7 @@ public class LPSolve implements LPModel {
 	public double[] findRegionPointAccelerated(AlphaVector w, ArrayList<AlphaVector> U) {
 		int nStates = w.size();
 		double[] retB = null;
+		lastConstraintCount = 0;
 		
 		// if U is empty, then any b is a witness point
 		if(U.size() == 0) {
@@ -226,6 +228,8 @@ public class LPSolve implements LPModel {
 				}
 			}
 			
+			lastConstraintCount = nConstraints;
+			
 			if(currentMax > epsilon) {
 				retB = new double[nStates];
 				for(int i=0; i<nStates; i++) {
@@ -342,6 +346,10 @@ public class LPSolve implements LPModel {
 		return minIndex;
 	}
 	
+	public int getLastConstraintCount() {
+		return lastConstraintCount;
+	}
+	
 	public double getMaxValueDiff(AlphaVector w, ArrayList<AlphaVector> U) {
 		assert U.size() > 0;
 		int nStates = w.size();
@@ -407,6 +415,82 @@ public class LPSolve implements LPModel {
 		return retD;
 	}
 	
+	public double[] findImprovedNode(AlphaVector v, AlphaVector[] rewardVectors, AlphaVector[][][] successorVectors) {
+		int nStates = v.size();
+		int nActions = successorVectors.length;
+		int nObservations = successorVectors[0].length;
+		int nNodes = successorVectors[0][0].length;
+		int nVar = 1 + nActions + nActions * nObservations * nNodes;
+		double[] retNode = null;
+		
+		try {
+			LpSolve solver = LpSolve.makeLp(0, nVar);
+			solver.setVerbose(0);
+			
+			// LPSOLVE INDICES START FROM 1 WHEN DEFINING CONSTRAINTS!
+			
+			// configure variables, where the first variable is the improvement
+			solver.setLowbo(1, -1.0 * Double.MAX_VALUE);
+			solver.setUpbo(1, Double.MAX_VALUE);
+			for(int i=2; i<=nVar; i++) {
+				solver.setLowbo(i, 0.0);
+				solver.setUpbo(i, 1.0);
+			}
+			
+			// add a constraint for each state, such that the new node improves the value in each state
+			for(int s=0; s<nStates; s++) {
+				double[] expr = new double[nVar+1];
+				expr[1] = 1.0;
+				for(int a=0; a<nActions; a++) {
+					expr[2+a] = getCoefficient(-1.0 * rewardVectors[a].getEntry(s));
+					for(int o=0; o<nObservations; o++) {
+						for(int n=0; n<nNodes; n++) {
+							expr[2+nActions+(a*nObservations+o)*nNodes+n] = getCoefficient(-1.0 * successorVectors[a][o][n].getEntry(s));
+						}
+					}
+				}
+				solver.addConstraint(expr, LpSolve.LE, -1.0 * v.getEntry(s));
+			}
+			
+			// add constraints such that action probabilities sum to 1 and node probabilities sum to c_a
+			double[] expr = new double[nVar+1];
+			for(int a=0; a<nActions; a++) {
+				expr[2+a] = 1.0;
+			}
+			solver.addConstraint(expr, LpSolve.EQ, 1.0);
+			
+			for(int a=0; a<nActions; a++) {
+				for(int o=0; o<nObservations; o++) {
+					expr = new double[nVar+1];
+					expr[2+a] = -1.0;
+					for(int n=0; n<nNodes; n++) {
+						expr[2+nActions+(a*nObservations+o)*nNodes+n] = 1.0;
+					}
+					solver.addConstraint(expr, LpSolve.EQ, 0.0);
+				}
+			}
+			
+			// set objective function
+			expr = new double[nVar+1];
+			expr[1] = 1.0;
+			solver.setObjFn(expr);
+			solver.setMaxim();
+			solver.solve();
+			
+			double[] var = solver.getPtrVariables();
+			if(var[0] > epsilon) {
+				retNode = var.clone();
+			}
+			
+			solver.deleteLp();
+		}
+		catch (LpSolveException e){
+			e.printStackTrace();
+		}
+		
+		return retNode;
+	}
+	
 	private double getCoefficient(double c) {
 		// important: before adding a scalar here, check if all coefficients go through this function!
 		
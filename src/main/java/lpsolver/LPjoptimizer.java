@@ -32,6 +32,7 @@ public class LPjoptimizer implements LPModel {
 	private int acceleratedLPThreshold = 200;
 	private double acceleratedLPTolerance = 0.0001;
 	private double coefficientThreshold = 0.000000001;
+	private int lastConstraintCount = 0;     // constraints added by the last call to findRegionPointAccelerated
 	
 	public double[] findRegionPoint(AlphaVector w, ArrayList<AlphaVector> U) {
 		int nStates = w.size();
@@ -125,6 +126,7 @@ public class LPjoptimizer implements LPModel {
 	public double[] findRegionPointAccelerated(AlphaVector w, ArrayList<AlphaVector> U) {
 		int nStates = w.size();
 		double[] retB = null;
+		lastConstraintCount = 0;
 		
 		// if U is empty, then any b is a witness point
 		if(U.size() == 0) {
@@ -217,6 +219,7 @@ public class LPjoptimizer implements LPModel {
 				assert returnCode == 0 : "Unexpected joptimizer return code";
 			} catch (Exception e) {
 				// this is a rather nasty solution to prevent numerical stability problems
+				lastConstraintCount = constraints.size();
 				return null;
 			}
 			
@@ -265,6 +268,8 @@ public class LPjoptimizer implements LPModel {
 			}
 		}
 		
+		lastConstraintCount = constraints.size();
+		
 		// prepare result to return
 		if(currentMax > epsilon) {
 			retB = new double[nStates];
@@ -303,6 +308,89 @@ public class LPjoptimizer implements LPModel {
 		return minIndex;
 	}
 	
+	public double[] findImprovedNode(AlphaVector v, AlphaVector[] rewardVectors, AlphaVector[][][] successorVectors) {
+		int nStates = v.size();
+		int nActions = successorVectors.length;
+		int nObservations = successorVectors[0].length;
+		int nNodes = successorVectors[0][0].length;
+		int nVar = 1 + nActions + nActions * nObservations * nNodes;
+		
+		// define lower and upper bounds of the variables, where the first variable is the improvement
+		double[] lb = new double[nVar];
+		double[] ub = new double[nVar];
+		for(int i=1; i<nVar; i++) {
+			lb[i] = 0.0;
+			ub[i] = 1.0;
+		}
+		lb[0] = Double.MAX_VALUE * -1.0;
+		ub[0] = Double.MAX_VALUE;
+		
+		// create objective function
+		double[] c = new double[nVar];
+		c[0] = -1.0;
+		
+		// create inequality constraints, such that the new node improves the value in each state
+		double[][] G = new double[nStates][nVar];
+		double[] h = new double[nStates];
+		for(int s=0; s<nStates; s++) {
+			G[s][0] = 1.0;
+			for(int a=0; a<nActions; a++) {
+				G[s][1+a] = getCoefficient(-1.0 * rewardVectors[a].getEntry(s));
+				for(int o=0; o<nObservations; o++) {
+					for(int n=0; n<nNodes; n++) {
+						G[s][1+nActions+(a*nObservations+o)*nNodes+n] = getCoefficient(-1.0 * successorVectors[a][o][n].getEntry(s));
+					}
+				}
+			}
+			h[s] = -1.0 * v.getEntry(s);
+		}
+		
+		// create equality constraints, such that action probabilities sum to 1 and node probabilities sum to c_a
+		double[][] A = new double[1+nActions*nObservations][nVar];
+		double[] b = new double[1+nActions*nObservations];
+		for(int a=0; a<nActions; a++) {
+			A[0][1+a] = 1.0;
+			for(int o=0; o<nObservations; o++) {
+				int row = 1+a*nObservations+o;
+				A[row][1+a] = -1.0;
+				for(int n=0; n<nNodes; n++) {
+					A[row][1+nActions+(a*nObservations+o)*nNodes+n] = 1.0;
+				}
+			}
+		}
+		b[0] = 1.0;
+		
+		// define the optimization problem
+		LPOptimizationRequest or = new LPOptimizationRequest();
+		or.setC(c);
+		or.setLb(lb);
+		or.setUb(ub);
+		or.setG(G);
+		or.setH(h);
+		or.setA(A);
+		or.setB(b);
+		
+		// solve the optimization problem
+		LPPrimalDualMethod opt = new LPPrimalDualMethod();
+		opt.setLPOptimizationRequest(or);
+		
+		try {
+			int returnCode = opt.optimize();
+			assert returnCode == 0 : "Unexpected joptimizer return code";
+		} catch (Exception e) {
+			// numerical problems are treated as if no improvement has been found
+			return null;
+		}
+		
+		double[] sol = opt.getOptimizationResponse().getSolution();
+		if(sol[0] > epsilon) {
+			return sol;
+		}
+		else {
+			return null;
+		}
+	}
+	
 	private double getCoefficient(double c) {
 		// important: before adding a scalar here, check if all coefficients go through this function!
 		
@@ -313,7 +401,11 @@ public class LPjoptimizer implements LPModel {
 			return c;
 		}
 	}
-
+	
+	public int getLastConstraintCount() {
+		return lastConstraintCount;
+	}
+	
 	public double getMaxValueDiff(AlphaVector w, ArrayList<AlphaVector> U) {
 		int nStates = w.size();
 
@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * SolvePOMDP
+ * Copyright (C) 2017 Erwin Walraven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event covering the incremental cross sum of the G_a^o sets of one action
+ */
+
+@Name("solvepomdp.CrossSum")
+@Label("Cross Sum")
+@Category("SolvePOMDP")
+@Description("Incremental pruning of the cross sum of the G_a^o sets of one action")
+public class CrossSumEvent extends Event {
+	@Label("Action")
+	public int action;
+	
+	@Label("Vectors")
+	@Description("Number of vectors after pruning the cross sum")
+	public int vectors;
+}
@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * SolvePOMDP
+ * Copyright (C) 2017 Erwin Walraven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event covering one LP solved by an LP model
+ */
+
+@Name("solvepomdp.LPSolve")
+@Label("LP Solve")
+@Category("SolvePOMDP")
+@Description("Linear program solved by an LP backend")
+public class LPSolveEvent extends Event {
+	@Label("Backend")
+	public String backend;
+	
+	@Label("Method")
+	@Description("LP model method: findRegionPoint, findRegionPointAccelerated, getMaxValueDiff or findImprovedNode")
+	public String method;
+	
+	@Label("Constraints")
+	@Description("Number of vector constraints in the LP, the number of constraints added by the accelerated LP, or the number of state constraints of findImprovedNode")
+	public int constraints;
+	
+	@Label("Region Point Found")
+	@Description("Whether findRegionPoint or findRegionPointAccelerated found a point where the vector improves the value")
+	public boolean regionPointFound;
+	
+	@Label("Value Difference")
+	@Description("Value difference computed by getMaxValueDiff, or the value improvement of the node found by findImprovedNode (0 if no improving node was found)")
+	public double valueDifference;
+}
@@ -0,0 +1,48 @@
+/*******************************************************************************
+ * SolvePOMDP
+ * Copyright (C) 2017 Erwin Walraven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event covering one dynamic programming stage of a solver
+ */
+
+@Name("solvepomdp.Stage")
+@Label("Solver Stage")
+@Category("SolvePOMDP")
+@Description("Dynamic programming stage, including the computation of the value difference")
+public class StageEvent extends Event {
+	@Label("Algorithm")
+	public String algorithm;
+	
+	@Label("Stage")
+	public int stage;
+	
+	@Label("Vectors")
+	@Description("Number of vectors in the value function computed by the stage")
+	public int vectors;
+	
+	@Label("Value Difference")
+	public double valueDifference;
+}
@@ -21,6 +21,7 @@ package program;
 import java.util.HashMap;
 
 import solver.BeliefPoint;
+import solver.ModelSampler;
 
 public class POMDP {	
 	private String filename;
@@ -35,7 +36,12 @@ public class POMDP {
 	private double[][][] observationFunction;
 	private double minReward = Double.POSITIVE_INFINITY;
 	
+	// sparse representation of the transition function
+	private int[][][] transitionSuccessors;           // transitionSuccessors[a][s] contains the states sNext for which T(s,a,sNext) > 0
+	private double[][][] transitionSuccessorProbs;    // transitionSuccessorProbs[a][s][i] contains T(s,a,transitionSuccessors[a][s][i])
+	
 	private BeliefPoint b0;
+	private ModelSampler modelSampler;                // created when it is requested for the first time
 	
 	private HashMap<Integer,String> actionLabels;
 	
@@ -59,6 +65,30 @@ public class POMDP {
 				minReward = Math.min(minReward, rewardFunction[s][a]);
 			}
 		}
+		
+		// create sparse transition function
+		transitionSuccessors = new int[nActions][nStates][];
+		transitionSuccessorProbs = new double[nActions][nStates][];
+		for(int a=0; a<nActions; a++) {
+			for(int s=0; s<nStates; s++) {
+				int nSuccessors = 0;
+				for(int sNext=0; sNext<nStates; sNext++) {
+					if(transitionFunction[s][a][sNext] != 0.0) nSuccessors++;
+				}
+				
+				transitionSuccessors[a][s] = new int[nSuccessors];
+				transitionSuccessorProbs[a][s] = new double[nSuccessors];
+				
+				int i = 0;
+				for(int sNext=0; sNext<nStates; sNext++) {
+					if(transitionFunction[s][a][sNext] != 0.0) {
+						transitionSuccessors[a][s][i] = sNext;
+						transitionSuccessorProbs[a][s][i] = transitionFunction[s][a][sNext];
+						i++;
+					}
+				}
+			}
+		}
 	}
 	
 	public int getNumStates() {
@@ -82,6 +112,28 @@ public class POMDP {
 		return transitionFunction[s][a][sNext];
 	}
 	
+	/**
+	 * Get the states that can be reached with nonzero probability after executing a in s
+	 * @param s state
+	 * @param a action
+	 * @return successor states
+	 */
+	public int[] getTransitionSuccessors(int s, int a) {
+		assert s<nStates && a<nActions;
+		return transitionSuccessors[a][s];
+	}
+	
+	/**
+	 * Get the transition probabilities of the states returned by getTransitionSuccessors
+	 * @param s state
+	 * @param a action
+	 * @return probabilities of the successor states
+	 */
+	public double[] getTransitionSuccessorProbabilities(int s, int a) {
+		assert s<nStates && a<nActions;
+		return transitionSuccessorProbs[a][s];
+	}
+	
 	public double getReward(int s, int a) {
 		assert s<nStates && a<nActions;
 		return rewardFunction[s][a];
@@ -112,24 +164,32 @@ public class POMDP {
 		assert a<nActions && o<nObservations;
 		double[] newBelief = new double[nStates];
 		
-		// check if belief point has been prepared
-		if(!b.hasActionObservationProbabilities()) {
-			prepareBelief(b);
+		// compute the unnormalized new belief vector, using the sparse transition function
+		for(int s=0; s<nStates; s++) {
+			double beliefEntry = b.getBelief(s);
+			if(beliefEntry == 0.0) continue;
+			
+			int[] successors = transitionSuccessors[a][s];
+			double[] successorProbs = transitionSuccessorProbs[a][s];
+			for(int i=0; i<successors.length; i++) {
+				newBelief[successors[i]] += successorProbs[i] * beliefEntry;
+			}
 		}
 		
-		// compute normalizing constant
-		double nc = b.getActionObservationProbability(a, o);
+		// compute normalizing constant, which is only computed for a and o if the belief has not been prepared
+		double nc = 0.0;
+		if(b.hasActionObservationProbabilities()) {
+			nc = b.getActionObservationProbability(a, o);
+		}
+		else {
+			for(int sNext=0; sNext<nStates; sNext++) {
+				nc += getObservationProbability(a, sNext, o) * newBelief[sNext];
+			}
+		}
 		assert nc > 0.0 : "o cannot be observed when executing a in belief b";
 		
-		// compute the new belief vector
 		for(int sNext=0; sNext<nStates; sNext++) {
-			double beliefEntry = 0.0;
-			
-			for(int s=0; s<nStates; s++) {
-				beliefEntry += getTransitionProbability(s, a, sNext) * b.getBelief(s);
-			}
-			
-			newBelief[sNext] = beliefEntry * (getObservationProbability(a, sNext, o) / nc);
+			newBelief[sNext] = newBelief[sNext] * (getObservationProbability(a, sNext, o) / nc);
 		}
 		
 		return new BeliefPoint(newBelief);
@@ -142,17 +202,24 @@ public class POMDP {
 		double[][] aoProbs = new double[nActions][nObservations];
 		
 		for(int a=0; a<nActions; a++) {
+			// compute the probability of each next state once for all observations, using the sparse transition function
+			double[] p = new double[nStates];
+			for(int s=0; s<nStates; s++) {
+				double beliefEntry = b.getBelief(s);
+				if(beliefEntry == 0.0) continue;
+				
+				int[] successors = transitionSuccessors[a][s];
+				double[] successorProbs = transitionSuccessorProbs[a][s];
+				for(int i=0; i<successors.length; i++) {
+					p[successors[i]] += successorProbs[i] * beliefEntry;
+				}
+			}
+			
 			for(int o=0; o<nObservations; o++) {
 				double prob = 0.0;
 				
 				for(int sNext=0; sNext<nStates; sNext++) {
-					double p = 0.0;
-					
-					for(int s=0; s<nStates; s++) {
-						p += getTransitionProbability(s, a, sNext) * b.getBelief(s);
-					}
-					
-					prob += getObservationProbability(a, sNext, o) * p;
+					prob += getObservationProbability(a, sNext, o) * p[sNext];
 				}
 				
 				aoProbs[a][o] = prob;
@@ -165,4 +232,16 @@ public class POMDP {
 	public BeliefPoint getInitialBelief() {
 		return b0;
 	}
+	
+	/**
+	 * Get the samplers for the initial belief, transition function and observation function
+	 * @return model sampler
+	 */
+	public synchronized ModelSampler getModelSampler() {
+		if(modelSampler == null) {
+			modelSampler = new ModelSampler(this);
+		}
+		
+		return modelSampler;
+	}
 }
@@ -0,0 +1,433 @@
+/*******************************************************************************
+ * SolvePOMDP
+ * Copyright (C) 2017 Erwin Walraven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package program;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Random;
+
+import solver.BeliefPoint;
+
+/**
+ * Generates synthetic POMDPs of configurable size, which can be used for benchmarks and scaling tests.
+ * The POMDP class stores the model using dense arrays, which limits the number of states to a few thousand.
+ */
+
+public class POMDPGenerator {
+	
+	/**
+	 * Create a POMDP with random sparse transitions and observations. Rewards are drawn uniformly from [rewardMin,rewardMax].
+	 * @param nStates number of states
+	 * @param nActions number of actions
+	 * @param nObservations number of observations
+	 * @param nSuccessors maximum number of successor states of each state-action pair
+	 * @param nObservationSuccessors maximum number of observations with nonzero probability in each state
+	 * @param rewardMin minimum reward
+	 * @param rewardMax maximum reward
+	 * @param discountFactor discount factor
+	 * @param seed random seed
+	 * @return POMDP
+	 */
+	public static POMDP createRandom(int nStates, int nActions, int nObservations, int nSuccessors, int nObservationSuccessors, double rewardMin, double rewardMax, double discountFactor, long seed) {
+		assert nSuccessors > 0 && nSuccessors <= nStates;
+		assert nObservationSuccessors > 0 && nObservationSuccessors <= nObservations;
+		assert rewardMin <= rewardMax;
+		
+		Random rnd = new Random(seed);
+		double[][] rewardFunction = new double[nStates][nActions];
+		double[][][] transitionFunction = new double[nStates][nActions][nStates];
+		double[][][] observationFunction = new double[nActions][nStates][nObservations];
+		HashMap<Integer,String> actionLabels = new HashMap<Integer,String>();
+		
+		for(int a=0; a<nActions; a++) {
+			actionLabels.put(a, "a"+a);
+			
+			for(int s=0; s<nStates; s++) {
+				rewardFunction[s][a] = rewardMin + (rewardMax - rewardMin) * rnd.nextDouble();
+				
+				// successors are drawn with replacement, such that some pairs have fewer than nSuccessors successors
+				double[] successorProbs = getRandomDistribution(rnd, nSuccessors);
+				for(int i=0; i<nSuccessors; i++) {
+					transitionFunction[s][a][rnd.nextInt(nStates)] += successorProbs[i];
+				}
+				
+				double[] observationProbs = getRandomDistribution(rnd, nObservationSuccessors);
+				for(int i=0; i<nObservationSuccessors; i++) {
+					observationFunction[a][s][rnd.nextInt(nObservations)] += observationProbs[i];
+				}
+			}
+		}
+		
+		BeliefPoint b0 = new BeliefPoint(getRandomDistribution(rnd, nStates));
+		
+		return new POMDP("random-"+nStates+"-"+nActions+"-"+nObservations+"-"+seed+".POMDP", nStates, nActions, nObservations, discountFactor, rewardFunction, transitionFunction, observationFunction, actionLabels, b0);
+	}
+	
+	/**
+	 * Create a grid world in which the agent needs to reach the goal in the top right corner, similar to the 4x3 domain.
+	 * Moves succeed with probability 1-slipProbability, and otherwise the agent moves in one of the perpendicular directions.
+	 * The agent observes whether there are walls to the left and right of its cell, or the goal, and with probability
+	 * observationNoise it receives a random observation. After reaching the goal the agent restarts in a random cell.
+	 * @param width width of the grid
+	 * @param height height of the grid
+	 * @param slipProbability probability that a move fails
+	 * @param observationNoise probability that a random observation is received
+	 * @param stepReward reward for each step outside the goal
+	 * @param goalReward reward for executing an action in the goal
+	 * @param discountFactor discount factor
+	 * @return POMDP
+	 */
+	public static POMDP createGridWorld(int width, int height, double slipProbability, double observationNoise, double stepReward, double goalReward, double discountFactor) {
+		assert width > 0 && height > 0 && width*height > 1;
+		
+		int nStates = width * height;
+		int nActions = 4;
+		int nObservations = 5;
+		int goal = nStates - 1;
+		int[] dx = {0, 0, 1, -1};     // north, south, east, west
+		int[] dy = {1, -1, 0, 0};
+		
+		double[][] rewardFunction = new double[nStates][nActions];
+		double[][][] transitionFunction = new double[nStates][nActions][nStates];
+		double[][][] observationFunction = new double[nActions][nStates][nObservations];
+		HashMap<Integer,String> actionLabels = new HashMap<Integer,String>();
+		actionLabels.put(0, "n");
+		actionLabels.put(1, "s");
+		actionLabels.put(2, "e");
+		actionLabels.put(3, "w");
+		
+		double[] restartBelief = new double[nStates];
+		for(int s=0; s<nStates; s++) {
+			if(s != goal) restartBelief[s] = 1.0 / (nStates - 1);
+		}
+		
+		for(int s=0; s<nStates; s++) {
+			int x = s % width;
+			int y = s / width;
+			
+			for(int a=0; a<nActions; a++) {
+				if(s == goal) {
+					rewardFunction[s][a] = goalReward;
+					System.arraycopy(restartBelief, 0, transitionFunction[s][a], 0, nStates);
+				}
+				else {
+					rewardFunction[s][a] = stepReward;
+					
+					// intended direction, and the two perpendicular directions
+					int[] directions = a < 2 ? new int[]{a, 2, 3} : new int[]{a, 0, 1};
+					double[] directionProbs = {1.0 - slipProbability, slipProbability / 2.0, slipProbability / 2.0};
+					
+					for(int i=0; i<directions.length; i++) {
+						int xNext = x + dx[directions[i]];
+						int yNext = y + dy[directions[i]];
+						
+						// moves into the boundary do not change the position
+						if(xNext < 0 || xNext >= width || yNext < 0 || yNext >= height) {
+							xNext = x;
+							yNext = y;
+						}
+						
+						transitionFunction[s][a][xNext + yNext*width] += directionProbs[i];
+					}
+				}
+			}
+		}
+		
+		for(int sNext=0; sNext<nStates; sNext++) {
+			int x = sNext % width;
+			boolean wallLeft = x == 0;
+			boolean wallRight = x == width - 1;
+			
+			// observations: left, right, neither, both, goal
+			int trueObservation;
+			if(sNext == goal) trueObservation = 4;
+			else if(wallLeft && wallRight) trueObservation = 3;
+			else if(wallLeft) trueObservation = 0;
+			else if(wallRight) trueObservation = 1;
+			else trueObservation = 2;
+			
+			for(int a=0; a<nActions; a++) {
+				for(int o=0; o<nObservations; o++) {
+					observationFunction[a][sNext][o] = observationNoise / nObservations;
+				}
+				observationFunction[a][sNext][trueObservation] += 1.0 - observationNoise;
+			}
+		}
+		
+		BeliefPoint b0 = new BeliefPoint(restartBelief);
+		
+		return new POMDP("grid-"+width+"x"+height+".POMDP", nStates, nActions, nObservations, discountFactor, rewardFunction, transitionFunction, observationFunction, actionLabels, b0);
+	}
+	
+	/**
+	 * Create a RockSample instance (Smith and Simmons, 2004) with k rocks at random positions on an n x n grid. The agent
+	 * starts on the left side, and it can move, sample a rock at its position, or check a rock using a noisy sensor
+	 * of which the accuracy decreases with the distance to the rock. Leaving the grid on the right side ends the episode.
+	 * @param n size of the grid
+	 * @param k number of rocks
+	 * @param discountFactor discount factor
+	 * @param seed random seed used to place the rocks
+	 * @return POMDP
+	 */
+	public static POMDP createRockSample(int n, int k, double discountFactor, long seed) {
+		assert n > 0 && k > 0 && k <= n*n;
+		
+		int nRockStates = 1 << k;
+		int nStates = n * n * nRockStates + 1;
+		int nActions = 5 + k;
+		int nObservations = 3;
+		int terminal = nStates - 1;
+		double halfEfficiencyDistance = 20.0;
+		int[] dx = {0, 0, 1, -1};     // north, south, east, west
+		int[] dy = {1, -1, 0, 0};
+		
+		// place rocks at distinct positions
+		Random rnd = new Random(seed);
+		int[] rockX = new int[k];
+		int[] rockY = new int[k];
+		int[] rockAtPosition = new int[n*n];
+		for(int p=0; p<n*n; p++) {
+			rockAtPosition[p] = -1;
+		}
+		for(int i=0; i<k; i++) {
+			int p;
+			do {
+				p = rnd.nextInt(n*n);
+			} while(rockAtPosition[p] != -1);
+			
+			rockAtPosition[p] = i;
+			rockX[i] = p % n;
+			rockY[i] = p / n;
+		}
+		
+		double[][] rewardFunction = new double[nStates][nActions];
+		double[][][] transitionFunction = new double[nStates][nActions][nStates];
+		double[][][] observationFunction = new double[nActions][nStates][nObservations];
+		HashMap<Integer,String> actionLabels = new HashMap<Integer,String>();
+		actionLabels.put(0, "north");
+		actionLabels.put(1, "south");
+		actionLabels.put(2, "east");
+		actionLabels.put(3, "west");
+		actionLabels.put(4, "sample");
+		for(int i=0; i<k; i++) {
+			actionLabels.put(5+i, "check"+i);
+		}
+		
+		// states are encoded as position * 2^k + rock state, in which bit i indicates that rock i is good
+		for(int s=0; s<terminal; s++) {
+			int position = s / nRockStates;
+			int rocks = s % nRockStates;
+			int x = position % n;
+			int y = position / n;
+			
+			for(int a=0; a<4; a++) {
+				int xNext = x + dx[a];
+				int yNext = y + dy[a];
+				
+				if(xNext >= n) {
+					rewardFunction[s][a] = 10.0;
+					transitionFunction[s][a][terminal] = 1.0;
+				}
+				else {
+					if(xNext < 0 || yNext < 0 || yNext >= n) {
+						xNext = x;
+						yNext = y;
+					}
+					transitionFunction[s][a][(xNext + yNext*n) * nRockStates + rocks] = 1.0;
+				}
+			}
+			
+			// sampling a rock makes it bad
+			int rock = rockAtPosition[position];
+			if(rock == -1) {
+				rewardFunction[s][4] = -100.0;
+				transitionFunction[s][4][s] = 1.0;
+			}
+			else {
+				rewardFunction[s][4] = ((rocks >> rock) & 1) == 1 ? 10.0 : -10.0;
+				transitionFunction[s][4][position * nRockStates + (rocks & ~(1 << rock))] = 1.0;
+			}
+			
+			for(int i=0; i<k; i++) {
+				transitionFunction[s][5+i][s] = 1.0;
+			}
+		}
+		
+		for(int a=0; a<nActions; a++) {
+			transitionFunction[terminal][a][terminal] = 1.0;
+		}
+		
+		// observations: none, good, bad
+		for(int a=0; a<nActions; a++) {
+			for(int sNext=0; sNext<nStates; sNext++) {
+				if(a < 5 || sNext == terminal) {
+					observationFunction[a][sNext][0] = 1.0;
+				}
+				else {
+					int rock = a - 5;
+					int position = sNext / nRockStates;
+					int rocks = sNext % nRockStates;
+					double distance = Math.hypot(position % n - rockX[rock], position / n - rockY[rock]);
+					double efficiency = Math.pow(2.0, -distance / halfEfficiencyDistance);
+					double correctProb = (1.0 + efficiency) / 2.0;
+					boolean good = ((rocks >> rock) & 1) == 1;
+					
+					observationFunction[a][sNext][1] = good ? correctProb : 1.0 - correctProb;
+					observationFunction[a][sNext][2] = good ? 1.0 - correctProb : correctProb;
+				}
+			}
+		}
+		
+		// the agent starts in the middle of the left column, and the rock states are unknown
+		double[] initialBelief = new double[nStates];
+		int startPosition = (n / 2) * n;
+		for(int rocks=0; rocks<nRockStates; rocks++) {
+			initialBelief[startPosition * nRockStates + rocks] = 1.0 / nRockStates;
+		}
+		BeliefPoint b0 = new BeliefPoint(initialBelief);
+		
+		return new POMDP("rocksample-"+n+"-"+k+".POMDP", nStates, nActions, nObservations, discountFactor, rewardFunction, transitionFunction, observationFunction, actionLabels, b0);
+	}
+	
+	/**
+	 * Draw a probability distribution uniformly from the simplex
+	 * @param rnd random number generator
+	 * @param n number of elements
+	 * @return probability distribution
+	 */
+	private static double[] getRandomDistribution(Random rnd, int n) {
+		double[] p = new double[n];
+		double sum = 0.0;
+		
+		for(int i=0; i<n; i++) {
+			p[i] = -Math.log(1.0 - rnd.nextDouble());
+			sum += p[i];
+		}
+		
+		for(int i=0; i<n; i++) {
+			p[i] /= sum;
+		}
+		
+		return p;
+	}
+	
+	/**
+	 * Write a POMDP to a file in the .POMDP format, such that it can be read by the Parser
+	 * @param pomdp POMDP
+	 * @param outputFile output file
+	 */
+	public static void writeFile(POMDP pomdp, String outputFile) {
+		int nStates = pomdp.getNumStates();
+		int nActions = pomdp.getNumActions();
+		int nObservations = pomdp.getNumObservations();
+		
+		try {
+			Writer output = new BufferedWriter(new FileWriter(outputFile));
+			
+			output.write("# "+pomdp.getInstanceName()+", generated by POMDPGenerator\n\n");
+			output.write("discount: "+pomdp.getDiscountFactor()+"\n");
+			output.write("values: reward\n");
+			output.write("states: "+nStates+"\n");
+			output.write("actions:");
+			for(int a=0; a<nActions; a++) {
+				output.write(" "+pomdp.getActionLabel(a));
+			}
+			output.write("\n");
+			output.write("observations: "+nObservations+"\n\n");
+			
+			output.write("start:\n");
+			double[] b0 = pomdp.getInitialBelief().getBelief();
+			for(int s=0; s<nStates; s++) {
+				output.write(b0[s]+" ");
+			}
+			output.write("\n\n");
+			
+			// only nonzero entries of the transition and observation functions are written
+			for(int a=0; a<nActions; a++) {
+				for(int s=0; s<nStates; s++) {
+					int[] successors = pomdp.getTransitionSuccessors(s, a);
+					double[] successorProbs = pomdp.getTransitionSuccessorProbabilities(s, a);
+					for(int i=0; i<successors.length; i++) {
+						output.write("T: "+a+" : "+s+" : "+successors[i]+" "+successorProbs[i]+"\n");
+					}
+				}
+			}
+			output.write("\n");
+			
+			for(int a=0; a<nActions; a++) {
+				for(int sNext=0; sNext<nStates; sNext++) {
+					for(int o=0; o<nObservations; o++) {
+						double p = pomdp.getObservationProbability(a, sNext, o);
+						if(p != 0.0) {
+							output.write("O: "+a+" : "+sNext+" : "+o+" "+p+"\n");
+						}
+					}
+				}
+			}
+			output.write("\n");
+			
+			for(int a=0; a<nActions; a++) {
+				for(int s=0; s<nStates; s++) {
+					double r = pomdp.getReward(s, a);
+					if(r != 0.0) {
+						output.write("R: "+a+" : "+s+" : * : * "+r+"\n");
+					}
+				}
+			}
+			
+			output.close();
+		}
+		catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	public static void main(String[] args) {
+		if(args.length < 2) {
+			System.out.println("Usage:");
+			System.out.println("  POMDPGenerator random <states> <actions> <observations> <successors> <observationSuccessors> <seed> <outputFile>");
+			System.out.println("  POMDPGenerator grid <width> <height> <slipProbability> <observationNoise> <outputFile>");
+			System.out.println("  POMDPGenerator rocksample <n> <k> <seed> <outputFile>");
+			return;
+		}
+		
+		POMDP pomdp;
+		String outputFile = args[args.length-1];
+		
+		if(args[0].equals("random") && args.length == 8) {
+			pomdp = createRandom(Integer.parseInt(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]), Integer.parseInt(args[4]), Integer.parseInt(args[5]), -1.0, 1.0, 0.95, Long.parseLong(args[6]));
+		}
+		else if(args[0].equals("grid") && args.length == 6) {
+			pomdp = createGridWorld(Integer.parseInt(args[1]), Integer.parseInt(args[2]), Double.parseDouble(args[3]), Double.parseDouble(args[4]), -0.04, 1.0, 0.95);
+		}
+		else if(args[0].equals("rocksample") && args.length == 5) {
+			pomdp = createRockSample(Integer.parseInt(args[1]), Integer.parseInt(args[2]), 0.95, Long.parseLong(args[3]));
+		}
+		else {
+			throw new RuntimeException("Unexpected generator arguments");
+		}
+		
+		writeFile(pomdp, outputFile);
+		System.out.println("States: "+pomdp.getNumStates()+", actions: "+pomdp.getNumActions()+", observations: "+pomdp.getNumObservations());
+		System.out.println("Written to "+outputFile);
+	}
+}
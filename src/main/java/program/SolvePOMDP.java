@@ -32,12 +32,16 @@ import pruning.PruneAccelerated;
 import pruning.PruneMethod;
 import solver.Solver;
 import solver.SolverApproximate;
+import solver.SolverBPI;
 import solver.SolverExact;
+import solver.SolverHSVI;
+import solver.SolverFSC;
+import solver.SolverPBVI;
+import solver.SolverSARSOP;
+import solver.ValueFunctionReader;
 
-import lpsolver.LPGurobi;
 import lpsolver.LPModel;
-import lpsolver.LPSolve;
-import lpsolver.LPjoptimizer;
+import lpsolver.LPModelFactory;
 
 public class SolvePOMDP {
 	private SolverProperties sp;     // object containing user-defined properties
@@ -53,13 +57,6 @@ public class SolvePOMDP {
 		
 		// check if required directories exist
 		configureDirectories();
-
-		// configure LP solver
-		lp.setEpsilon(sp.getEpsilon());
-		lp.setAcceleratedLPThreshold(sp.getAcceleratedLPThreshold());
-		lp.setAcceleratedLPTolerance(sp.getAcceleratedLPTolerance());
-		lp.setCoefficientThreshold(sp.getCoefficientThreshold());
-		lp.init();
 	}
 	
 	/**
@@ -67,8 +64,47 @@ public class SolvePOMDP {
 	 * the pruning method and LP solver.
 	 */
 	private void readConfigFile() {
-		this.sp = new SolverProperties();
+		Properties properties = loadConfigFile();
+		this.sp = createSolverProperties(properties);
+		this.domainDirName = properties.getProperty("domainDirectory");
+		String algorithmType = properties.getProperty("algorithmType");
 		
+		System.out.println();
+		System.out.println("=== SOLVER PARAMETERS ===");
+		System.out.println("Epsilon: "+sp.getEpsilon());
+		System.out.println("Value function tolerance: "+sp.getValueFunctionTolerance());
+		System.out.println("Accelerated LP threshold: "+sp.getAcceleratedLPThreshold());
+		System.out.println("Accelerated LP tolerance: "+sp.getAcceleratedLPTolerance());
+		System.out.println("LP coefficient threshold: "+sp.getCoefficientThreshold());
+		System.out.println("Time limit: "+sp.getTimeLimit());
+		System.out.println("Horizon: "+(sp.getFixedStages() != -1 ? sp.getFixedStages() : "infinite"));
+		System.out.println("Belief sampling runs: "+sp.getBeliefSamplingRuns());
+		System.out.println("Belief sampling steps: "+sp.getBeliefSamplingSteps());
+		System.out.println("Target gap: "+sp.getTargetGap());
+		System.out.println("Belief expansions: "+sp.getBeliefExpansions());
+		System.out.println("Belief pruning bound: "+sp.getBeliefPruningBound());
+		System.out.println("Dump policy graph: "+sp.dumpPolicyGraph());
+		System.out.println("Dump action labels: "+sp.dumpActionLabels());
+		System.out.println("Dump statistics: "+sp.dumpStatistics());
+		System.out.println("Checkpoint interval: "+sp.getCheckpointInterval());
+		System.out.println("Resume: "+sp.resume());
+		System.out.println("Initial value function: "+(sp.getInitialValueFunctionName().length() > 0 ? sp.getInitialValueFunctionName() : "none"));
+		
+		// load required LP solver, pruning algorithm and POMDP algorithm
+		LPModelFactory lpFactory = new LPModelFactory(properties.getProperty("lpsolver"), sp);
+		this.lp = lpFactory.create();
+		this.pm = createPruneMethod(properties.getProperty("pruningMethod"), lp);
+		this.solver = createSolver(algorithmType, sp, lp, pm, lpFactory);
+		
+		System.out.println("Algorithm: "+algorithmType);
+		System.out.println("LP solver: "+lp.getName());
+	}
+	
+	/**
+	 * Load the properties defined in the solver.config file in the current directory
+	 * @return properties
+	 */
+	static Properties loadConfigFile() {
 		Properties properties = new Properties();
 		
 		try {
@@ -81,6 +117,17 @@ public class SolvePOMDP {
 			e.printStackTrace();
 		}
 		
+		return properties;
+	}
+	
+	/**
+	 * Create a solver properties object based on the properties defined in a config file
+	 * @param properties properties
+	 * @return solver properties
+	 */
+	static SolverProperties createSolverProperties(Properties properties) {
+		SolverProperties sp = new SolverProperties();
+		
 		sp.setEpsilon(Double.parseDouble(properties.getProperty("epsilon")));
 		sp.setValueFunctionTolerance(Double.parseDouble(properties.getProperty("valueFunctionTolerance")));
 		sp.setAcceleratedLPThreshold(Integer.parseInt(properties.getProperty("acceleratedLPThreshold")));
@@ -90,19 +137,31 @@ public class SolvePOMDP {
 		sp.setTimeLimit(Double.parseDouble(properties.getProperty("timeLimit")));
 		sp.setBeliefSamplingRuns(Integer.parseInt(properties.getProperty("beliefSamplingRuns")));
 		sp.setBeliefSamplingSteps(Integer.parseInt(properties.getProperty("beliefSamplingSteps")));
-		this.domainDirName = properties.getProperty("domainDirectory");
 		String algorithmType = properties.getProperty("algorithmType");
 		
-		if(!algorithmType.equals("perseus") && !algorithmType.equals("gip")) {
+		if(!algorithmType.equals("perseus") && !algorithmType.equals("gip") && !algorithmType.equals("hsvi") && !algorithmType.equals("sarsop") && !algorithmType.equals("pbvi") && !algorithmType.equals("fsc") && !algorithmType.equals("bpi")) {
 			throw new RuntimeException("Unexpected algorithm type in properties file");
 		}
 		
+		// a finite horizon is optional, and it is solved by executing a fixed number of exact stages
+		int horizon = Integer.parseInt(properties.getProperty("horizon", "0"));
+		if(horizon < 0) {
+			throw new RuntimeException("Horizon must be nonnegative");
+		}
+		else if(horizon > 0) {
+			if(!algorithmType.equals("gip")) {
+				throw new RuntimeException("A finite horizon can only be used by the exact algorithm");
+			}
+			
+			sp.setFixedStages(horizon);
+		}
+		
 		String dumpPolicyGraphStr = properties.getProperty("dumpPolicyGraph");
 		if(!dumpPolicyGraphStr.equals("true") && !dumpPolicyGraphStr.equals("false")) {
 			throw new RuntimeException("Policy graph property must be either true or false");
 		}
 		else {
-			sp.setDumpPolicyGraph(dumpPolicyGraphStr.equals("true") && algorithmType.equals("gip"));
+			sp.setDumpPolicyGraph(dumpPolicyGraphStr.equals("true") && algorithmType.equals("gip") && sp.getFixedStages() == -1);
 		}
 		
 		String dumpActionLabelsStr = properties.getProperty("dumpActionLabels");
@@ -113,61 +172,147 @@ public class SolvePOMDP {
 			sp.setDumpActionLabels(dumpActionLabelsStr.equals("true"));
 		}
 		
-		System.out.println();
-		System.out.println("=== SOLVER PARAMETERS ===");
-		System.out.println("Epsilon: "+sp.getEpsilon());
-		System.out.println("Value function tolerance: "+sp.getValueFunctionTolerance());
-		System.out.println("Accelerated LP threshold: "+sp.getAcceleratedLPThreshold());
-		System.out.println("Accelerated LP tolerance: "+sp.getAcceleratedLPTolerance());
-		System.out.println("LP coefficient threshold: "+sp.getCoefficientThreshold());
-		System.out.println("Time limit: "+sp.getTimeLimit());
-		System.out.println("Belief sampling runs: "+sp.getBeliefSamplingRuns());
-		System.out.println("Belief sampling steps: "+sp.getBeliefSamplingSteps());
-		System.out.println("Dump policy graph: "+sp.dumpPolicyGraph());
-		System.out.println("Dump action labels: "+sp.dumpActionLabels());
+		// statistics are optional, such that existing config files remain valid
+		String dumpStatisticsStr = properties.getProperty("dumpStatistics", "false");
+		if(!dumpStatisticsStr.equals("true") && !dumpStatisticsStr.equals("false")) {
+			throw new RuntimeException("Statistics property must be either true or false");
+		}
+		else {
+			sp.setDumpStatistics(dumpStatisticsStr.equals("true"));
+		}
 		
-		// load required LP solver
-		String lpSolver = properties.getProperty("lpsolver");
-		if(lpSolver.equals("gurobi")) {
-			this.lp = new LPGurobi();
+		sp.setCheckpointInterval(Integer.parseInt(properties.getProperty("checkpointInterval", "0")));
+		if(sp.getCheckpointInterval() < 0) {
+			throw new RuntimeException("Checkpoint interval must be nonnegative");
 		}
-		else if(lpSolver.equals("joptimizer")) {
-			this.lp = new LPjoptimizer();
+		
+		sp.setInitialValueFunctionName(properties.getProperty("initialValueFunction", "").trim());
+		if(sp.getFixedStages() != -1 && sp.getInitialValueFunctionName().length() > 0) {
+			throw new RuntimeException("A finite horizon cannot be combined with an initial value function");
 		}
-		else if(lpSolver.equals("lpsolve")) {
-			this.lp = new LPSolve();
+		
+		String resumeStr = properties.getProperty("resume", "false");
+		if(!resumeStr.equals("true") && !resumeStr.equals("false")) {
+			throw new RuntimeException("Resume property must be either true or false");
 		}
 		else {
-			throw new RuntimeException("Unexpected LP solver in properties file");
+			sp.setResume(resumeStr.equals("true"));
+		}
+		
+		sp.setTargetGap(Double.parseDouble(properties.getProperty("targetGap", "0.01")));
+		if(sp.getTargetGap() <= 0.0) {
+			throw new RuntimeException("Target gap must be positive");
+		}
+		
+		sp.setLPThreads(Integer.parseInt(properties.getProperty("lpThreads", "1")));
+		if(sp.getLPThreads() < 1) {
+			throw new RuntimeException("Number of LP threads must be positive");
+		}
+		
+		sp.setBeliefExpansions(Integer.parseInt(properties.getProperty("beliefExpansions", "10")));
+		if(sp.getBeliefExpansions() < 0) {
+			throw new RuntimeException("Number of belief expansions must be nonnegative");
 		}
 		
-		// load required pruning algorithm
-		String pruningAlgorithm = properties.getProperty("pruningMethod");
+		sp.setBackupThreads(Integer.parseInt(properties.getProperty("backupThreads", "1")));
+		if(sp.getBackupThreads() < 1) {
+			throw new RuntimeException("Number of backup threads must be positive");
+		}
+		
+		sp.setGaoPruningThreshold(Integer.parseInt(properties.getProperty("gaoPruningThreshold", "1000")));
+		if(sp.getGaoPruningThreshold() < 0) {
+			throw new RuntimeException("Gao pruning threshold must be non-negative");
+		}
+		
+		sp.setFSCMaxNodes(Integer.parseInt(properties.getProperty("fscMaxNodes", "1000")));
+		if(sp.getFSCMaxNodes() < 1) {
+			throw new RuntimeException("Maximum number of controller nodes must be positive");
+		}
+		
+		sp.setBPINodes(Integer.parseInt(properties.getProperty("bpiNodes", "20")));
+		if(sp.getBPINodes() < 1) {
+			throw new RuntimeException("Number of nodes of the bounded controller must be positive");
+		}
+		
+		String convergenceCheckStr = properties.getProperty("convergenceCheck", "exact");
+		if(!convergenceCheckStr.equals("exact") && !convergenceCheckStr.equals("sampled")) {
+			throw new RuntimeException("Convergence check must be either exact or sampled");
+		}
+		else {
+			sp.setConvergenceCheck(convergenceCheckStr);
+		}
+		
+		String beliefPruningBoundStr = properties.getProperty("beliefPruningBound", "none");
+		if(!beliefPruningBoundStr.equals("none") && !beliefPruningBoundStr.equals("qmdp") && !beliefPruningBoundStr.equals("fib")) {
+			throw new RuntimeException("Belief pruning bound must be either none, qmdp or fib");
+		}
+		else {
+			sp.setBeliefPruningBound(beliefPruningBoundStr);
+		}
+		
+		return sp;
+	}
+	
+	/**
+	 * Create the pruning method used by incremental pruning
+	 * @param pruningAlgorithm name of the pruning method: standard or accelerated
+	 * @param lp LP solver used by the pruning method
+	 * @return pruning method
+	 */
+	static PruneMethod createPruneMethod(String pruningAlgorithm, LPModel lp) {
+		PruneMethod pm = null;
+		
 		if(pruningAlgorithm.equals("standard")) {
-			this.pm = new PruneStandard();
-			this.pm.setLPModel(lp);
+			pm = new PruneStandard();
 		}
 		else if(pruningAlgorithm.equals("accelerated")) {
-			this.pm = new PruneAccelerated();
-			this.pm.setLPModel(lp);
+			pm = new PruneAccelerated();
 		}
 		else {
 			throw new RuntimeException("Unexpected pruning method in properties file");
 		}
 		
-		// load required POMDP algorithm
+		pm.setLPModel(lp);
+		
+		return pm;
+	}
+	
+	/**
+	 * Create the solver for the given algorithm type
+	 * @param algorithmType name of the algorithm: gip, perseus, hsvi, sarsop, pbvi, fsc or bpi
+	 * @param sp solver properties
+	 * @param lp LP solver used by the exact algorithm and the policy iteration algorithms
+	 * @param pm pruning method used by the exact algorithm
+	 * @param lpFactory factory used by the exact algorithm to create LP solvers for additional threads
+	 * @return solver
+	 */
+	static Solver createSolver(String algorithmType, SolverProperties sp, LPModel lp, PruneMethod pm, LPModelFactory lpFactory) {
 		if(algorithmType.equals("gip")) {
-			this.solver = new SolverExact(sp, lp, pm);
+			SolverExact solver = new SolverExact(sp, lp, pm);
+			solver.setLPModelFactory(lpFactory);
+			return solver;
 		}
 		else if(algorithmType.equals("perseus")) {
-			this.solver = new SolverApproximate(sp, new Random(222));
+			return new SolverApproximate(sp, new Random(222));
+		}
+		else if(algorithmType.equals("hsvi")) {
+			return new SolverHSVI(sp);
+		}
+		else if(algorithmType.equals("sarsop")) {
+			return new SolverSARSOP(sp);
+		}
+		else if(algorithmType.equals("pbvi")) {
+			return new SolverPBVI(sp, new Random(222));
+		}
+		else if(algorithmType.equals("fsc")) {
+			return new SolverFSC(sp, lp);
+		}
+		else if(algorithmType.equals("bpi")) {
+			return new SolverBPI(sp, lp, new Random(222));
 		}
 		else {
 			throw new RuntimeException("Unexpected algorithm type in properties file");
 		}
-		
-		System.out.println("Algorithm: "+algorithmType);
-		System.out.println("LP solver: "+lp.getName());
 	}
 	
 	/**
@@ -225,6 +370,11 @@ public class SolvePOMDP {
 		// read POMDP file
 		POMDP pomdp = Parser.readPOMDP(domainDir+"/"+pomdpFileName);
 		
+		// start from an existing value function if it has been defined
+		if(sp.getInitialValueFunctionName().length() > 0) {
+			solver.setInitialValueFunction(ValueFunctionReader.readFile(sp.getInitialValueFunctionFile(), pomdp));
+		}
+		
 		// solve the model
 		solver.solve(pomdp);
 		
@@ -235,7 +385,9 @@ public class SolvePOMDP {
 		System.out.println("=== RESULTS ===");
 		System.out.println("Expected value: "+solver.getExpectedValue());
 		System.out.println("Alpha vectors: "+outputFileAlpha);
-		if(sp.dumpPolicyGraph()) System.out.println("Policy graph: "+outputFilePG);
+		if(sp.dumpPolicyGraph()) System.out.println("Policy graph: "+(new File(outputFilePG).exists() ? outputFilePG : "not written"));
+		String outputFileHorizon = sp.getOutputDir()+"/"+pomdp.getInstanceName()+".horizon";
+		if(sp.getFixedStages() != -1) System.out.println("Horizon value functions: "+(new File(outputFileHorizon).exists() ? outputFileHorizon : "not written"));
 		System.out.println("Running time: "+solver.getTotalSolveTime()+" sec");
 	}	
 	
@@ -27,11 +27,24 @@ public class SolverProperties {
 	private double coefficientThreshold;        // if absolute value of an LP coefficient is lower than threshold, it will be set to zero
 	private boolean dumpPolicyGraph;            // if true, then the solver writes a policy graph to a file
 	private boolean dumpActionLabels;			// if true, then the solver writes action labels rather than IDs
+	private boolean dumpStatistics;             // if true, then the solver writes counters and timers of each stage to a file
+	private int checkpointInterval = 0;         // number of stages between two checkpoints, and 0 if no checkpoints are written
+	private boolean resume = false;             // if true, then the solver continues from the checkpoint of the instance
+	private int lpThreads = 1;                  // number of threads used to solve the LPs of the value difference computation
+	private double targetGap = 0.01;            // heuristic search terminates if the gap between the bounds at the initial belief is below the target
+	private String convergenceCheck = "exact";  // exact if convergence is checked using LPs, sampled if LPs are skipped when witness beliefs show a large difference
+	private String beliefPruningBound = "none";  // upper bound used by point-based solvers to skip beliefs whose value has converged: none, qmdp or fib
+	private String initialValueFunctionName = "";    // .alpha file containing the initial value function, relative to workingDir, or empty
 	private String workingDir;                  // path of the working directory (empty if executed from IDE)
 	private String outputDirName;               // name of the output directory, which should be a directory in workingDir
 	private double timeLimit;                   // time limit in seconds
 	private int beliefSamplingRuns;             // belief sampling runs
 	private int beliefSamplingSteps;            // belief sampling steps
+	private int beliefExpansions = 10;          // number of times PBVI expands the belief set
+	private int backupThreads = 1;              // number of threads used by PBVI to execute the backups of a stage
+	private int gaoPruningThreshold = 1000;     // gao vectors are pruned before the backups of a stage only if |V| > threshold
+	private int fscMaxNodes = 1000;             // maximum number of nodes of the controller computed by policy iteration
+	private int bpiNodes = 20;                  // maximum number of nodes of the stochastic controller computed by bounded policy iteration
 	
 	public int getFixedStages() {
 		return fixedStages;
@@ -97,6 +110,79 @@ public class SolverProperties {
 		this.dumpActionLabels = dumpActionLabels;
 	}
 
+	public boolean dumpStatistics() {
+		return dumpStatistics;
+	}
+
+	public void setDumpStatistics(boolean dumpStatistics) {
+		this.dumpStatistics = dumpStatistics;
+	}
+
+	public int getCheckpointInterval() {
+		return checkpointInterval;
+	}
+
+	public void setCheckpointInterval(int checkpointInterval) {
+		this.checkpointInterval = checkpointInterval;
+	}
+
+	public boolean resume() {
+		return resume;
+	}
+
+	public String getInitialValueFunctionName() {
+		return initialValueFunctionName;
+	}
+
+	public void setInitialValueFunctionName(String initialValueFunctionName) {
+		this.initialValueFunctionName = initialValueFunctionName;
+	}
+
+	public String getInitialValueFunctionFile() {
+		if(workingDir.length() == 0 || initialValueFunctionName.startsWith("/")) {
+			return initialValueFunctionName;
+		}
+		else {
+			return workingDir+"/"+initialValueFunctionName;
+		}
+	}
+
+	public void setResume(boolean resume) {
+		this.resume = resume;
+	}
+
+	public int getLPThreads() {
+		return lpThreads;
+	}
+
+	public void setLPThreads(int lpThreads) {
+		this.lpThreads = lpThreads;
+	}
+
+	public double getTargetGap() {
+		return targetGap;
+	}
+
+	public void setTargetGap(double targetGap) {
+		this.targetGap = targetGap;
+	}
+
+	public String getConvergenceCheck() {
+		return convergenceCheck;
+	}
+
+	public void setConvergenceCheck(String convergenceCheck) {
+		this.convergenceCheck = convergenceCheck;
+	}
+
+	public String getBeliefPruningBound() {
+		return beliefPruningBound;
+	}
+
+	public void setBeliefPruningBound(String beliefPruningBound) {
+		this.beliefPruningBound = beliefPruningBound;
+	}
+
 	public String getOutputDirName() {
 		return outputDirName;
 	}
@@ -138,6 +224,46 @@ public class SolverProperties {
 		this.beliefSamplingRuns = beliefSamplingRuns;
 	}
 
+	public int getBeliefExpansions() {
+		return beliefExpansions;
+	}
+
+	public void setBeliefExpansions(int beliefExpansions) {
+		this.beliefExpansions = beliefExpansions;
+	}
+
+	public int getBackupThreads() {
+		return backupThreads;
+	}
+
+	public void setBackupThreads(int backupThreads) {
+		this.backupThreads = backupThreads;
+	}
+
+	public int getGaoPruningThreshold() {
+		return gaoPruningThreshold;
+	}
+
+	public void setGaoPruningThreshold(int gaoPruningThreshold) {
+		this.gaoPruningThreshold = gaoPruningThreshold;
+	}
+
+	public int getFSCMaxNodes() {
+		return fscMaxNodes;
+	}
+
+	public void setFSCMaxNodes(int fscMaxNodes) {
+		this.fscMaxNodes = fscMaxNodes;
+	}
+
+	public int getBPINodes() {
+		return bpiNodes;
+	}
+
+	public void setBPINodes(int bpiNodes) {
+		this.bpiNodes = bpiNodes;
+	}
+
 	public int getBeliefSamplingSteps() {
 		return beliefSamplingSteps;
 	}
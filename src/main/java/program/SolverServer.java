@@ -0,0 +1,771 @@
+/*******************************************************************************
+ * SolvePOMDP
+ * Copyright (C) 2017 Erwin Walraven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package program;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import lpsolver.LPModel;
+import lpsolver.LPModelFactory;
+import pruning.PruneMethod;
+import solver.AlphaVector;
+import solver.Solver;
+import solver.SolverListener;
+
+/**
+ * Long-running solver service with a local HTTP/JSON API. Solve requests are queued on a bounded
+ * executor, and each worker thread keeps its LP solvers alive across requests.
+ *
+ * POST /solve?domain=name&key=value   solve a domain from the domain directory, or the POMDP text in the request body.
+ *                                      Any solver.config key can be passed to override its default value.
+ * GET  /jobs/id                        status and progress of a job, including the last completed stage and LP counts
+ * GET  /jobs/id/progress               stream the progress lines of a job until it has finished
+ * GET  /jobs/id/latest                 alpha vectors of the last completed stage of a running or finished job
+ * GET  /jobs/id/result                 alpha vectors and policy graph of a finished job
+ * POST /jobs/id/stop                   stop a job, which returns the value function computed so far as its result
+ * DELETE /jobs/id                      remove a finished job and its result
+ *
+ * At most MAX_FINISHED_JOBS finished jobs are kept, and the oldest finished jobs are removed when this number is exceeded.
+ */
+
+public class SolverServer {
+	private static final int MAX_FINISHED_JOBS = 100;     // number of finished jobs kept, such that their results can be retrieved
+	
+	private HttpServer server;
+	private ThreadPoolExecutor executor;
+	private Properties defaultProperties;           // properties from solver.config, which can be overridden by requests
+	private String domainDir;                       // directory containing .POMDP files
+
+	private Map<Integer,SolveJob> jobs = new ConcurrentHashMap<Integer,SolveJob>();
+	private AtomicInteger nextJobId = new AtomicInteger(1);
+	private Queue<Integer> finishedJobs = new ConcurrentLinkedQueue<Integer>();     // IDs of finished jobs, oldest first
+
+	// LP solvers are created once per worker thread and reused by subsequent jobs executed by that thread
+	private ThreadLocal<HashMap<String,LPModel>> workerLPModels = new ThreadLocal<HashMap<String,LPModel>>();
+	private List<LPModel> allLPModels = new ArrayList<LPModel>();
+
+	private static ThreadLocal<OutputStream> threadOutput = new ThreadLocal<OutputStream>();
+
+	public SolverServer(int port, int workers, int queueCapacity) throws IOException {
+		this.defaultProperties = SolvePOMDP.loadConfigFile();
+		this.domainDir = defaultProperties.getProperty("domainDirectory");
+		this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(queueCapacity));
+
+		// solvers report progress on System.out, so output of worker threads is routed to the job they execute
+		System.setOut(new PrintStream(new ThreadRoutingOutputStream(System.out), true));
+
+		this.server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+		this.server.createContext("/solve", new SolveHandler());
+		this.server.createContext("/jobs/", new JobHandler());
+	}
+
+	/**
+	 * Start accepting requests
+	 */
+	public void start() {
+		server.start();
+	}
+
+	/**
+	 * Stop accepting requests, wait for running jobs and close all LP solvers
+	 */
+	public void stop() {
+		server.stop(0);
+		executor.shutdown();
+
+		try {
+			executor.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		synchronized(allLPModels) {
+			for(LPModel lp : allLPModels) {
+				lp.close();
+			}
+		}
+	}
+
+	/**
+	 * Get the LP solver of the current worker thread, and create it if it does not exist yet
+	 * @param lpFactory factory used to create and configure LP solvers
+	 * @return LP solver configured for the current job
+	 */
+	private LPModel getWorkerLPModel(LPModelFactory lpFactory) {
+		HashMap<String,LPModel> lpModels = workerLPModels.get();
+		if(lpModels == null) {
+			lpModels = new HashMap<String,LPModel>();
+			workerLPModels.set(lpModels);
+		}
+
+		LPModel lp = lpModels.get(lpFactory.getLPSolverName());
+		if(lp == null) {
+			lp = lpFactory.create();
+			lpModels.put(lpFactory.getLPSolverName(), lp);
+
+			synchronized(allLPModels) {
+				allLPModels.add(lp);
+			}
+		}
+		else {
+			lpFactory.configure(lp);
+		}
+
+		return lp;
+	}
+
+	/**
+	 * Handles POST /solve
+	 */
+	private class SolveHandler implements HttpHandler {
+		public void handle(HttpExchange exchange) throws IOException {
+			if(!exchange.getRequestMethod().equals("POST")) {
+				sendResponse(exchange, 405, "{\"error\":\"use POST\"}");
+				return;
+			}
+
+			// request parameters override the defaults from solver.config
+			Properties properties = new Properties();
+			properties.putAll(defaultProperties);
+			Map<String,String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+			properties.putAll(parameters);
+
+			String pomdpText = readBody(exchange.getRequestBody());
+			String domain = parameters.get("domain");
+
+			if(domain == null && pomdpText.trim().length() == 0) {
+				sendResponse(exchange, 400, "{\"error\":\"domain parameter or POMDP text in request body required\"}");
+				return;
+			}
+
+			if(domain != null && !isFileName(domain)) {
+				sendResponse(exchange, 400, "{\"error\":\"domain must be a file name in the domain directory\"}");
+				return;
+			}
+
+			String name = parameters.get("name");
+			if(name != null && !isFileName(name)) {
+				sendResponse(exchange, 400, "{\"error\":\"name must be a file name without directories\"}");
+				return;
+			}
+
+			SolveJob job;
+			try {
+				job = new SolveJob(nextJobId.getAndIncrement(), properties, domain, pomdpText);
+			}
+			catch (RuntimeException e) {
+				sendResponse(exchange, 400, "{\"error\":"+toJSON(e.getMessage())+"}");
+				return;
+			}
+
+			try {
+				jobs.put(job.id, job);
+				executor.execute(job);
+			}
+			catch (RejectedExecutionException e) {
+				jobs.remove(job.id);
+				sendResponse(exchange, 503, "{\"error\":\"solve queue is full\"}");
+				return;
+			}
+
+			sendResponse(exchange, 202, "{\"job\":"+job.id+",\"status\":\""+job.getStatus()+"\"}");
+		}
+	}
+
+	/**
+	 * Handles GET /jobs/id, /jobs/id/progress, /jobs/id/latest and /jobs/id/result, POST /jobs/id/stop and DELETE /jobs/id
+	 */
+	private class JobHandler implements HttpHandler {
+		public void handle(HttpExchange exchange) throws IOException {
+			String[] path = exchange.getRequestURI().getPath().split("/");
+			SolveJob job = null;
+
+			try {
+				if(path.length >= 3) {
+					job = jobs.get(Integer.parseInt(path[2]));
+				}
+			}
+			catch (NumberFormatException e) {
+				// job remains null
+			}
+
+			if(job == null) {
+				sendResponse(exchange, 404, "{\"error\":\"unknown job\"}");
+			}
+			else if(path.length == 3 && exchange.getRequestMethod().equals("DELETE")) {
+				if(!job.isFinished()) {
+					sendResponse(exchange, 409, "{\"error\":\"job has not finished\",\"status\":\""+job.getStatus()+"\"}");
+				}
+				else {
+					jobs.remove(job.id);
+					finishedJobs.remove(job.id);
+					sendResponse(exchange, 200, "{\"job\":"+job.id+",\"status\":\"deleted\"}");
+				}
+			}
+			else if(path.length == 3) {
+				sendResponse(exchange, 200, job.getStatusJSON());
+			}
+			else if(path[3].equals("progress")) {
+				streamProgress(exchange, job);
+			}
+			else if(path[3].equals("latest")) {
+				String latest = job.getLatestJSON();
+
+				if(latest == null) {
+					sendResponse(exchange, 409, "{\"error\":\"job has not completed a stage\",\"status\":\""+job.getStatus()+"\"}");
+				}
+				else {
+					sendResponse(exchange, 200, latest);
+				}
+			}
+			else if(path[3].equals("stop")) {
+				if(!exchange.getRequestMethod().equals("POST")) {
+					sendResponse(exchange, 405, "{\"error\":\"use POST\"}");
+				}
+				else {
+					job.requestStop();
+					sendResponse(exchange, 202, "{\"job\":"+job.id+",\"status\":\""+job.getStatus()+"\"}");
+				}
+			}
+			else if(path[3].equals("result")) {
+				String result = job.getResultJSON();
+
+				if(result == null) {
+					sendResponse(exchange, 409, "{\"error\":\"job has not finished\",\"status\":\""+job.getStatus()+"\"}");
+				}
+				else {
+					sendResponse(exchange, 200, result);
+				}
+			}
+			else {
+				sendResponse(exchange, 404, "{\"error\":\"unknown resource\"}");
+			}
+		}
+
+		private void streamProgress(HttpExchange exchange, SolveJob job) throws IOException {
+			exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+			exchange.sendResponseHeaders(200, 0);
+			OutputStream os = exchange.getResponseBody();
+
+			try {
+				int lineIndex = 0;
+				while(true) {
+					List<String> newLines = job.waitForLines(lineIndex);
+
+					if(newLines == null) {
+						break;
+					}
+
+					for(String line : newLines) {
+						os.write((line+"\n").getBytes(StandardCharsets.UTF_8));
+					}
+					os.flush();
+					lineIndex += newLines.size();
+				}
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			finally {
+				os.close();
+			}
+		}
+	}
+
+	/**
+	 * A solve request which is executed by one of the worker threads
+	 */
+	private class SolveJob implements Runnable {
+		private int id;
+		private Properties properties;
+		private String domain;
+		private String pomdpText;
+		private SolverProperties sp;
+		private LPModelFactory lpFactory;
+
+		private String status = "queued";
+		private List<String> lines = new ArrayList<String>();
+		private String resultJSON = null;
+
+		// the solver reports stages and LPs to the job, and it can be stopped by another thread
+		private POMDP pomdp;
+		private Solver solver;
+		private boolean stopRequested = false;
+		private String latestStageJSON = null;
+		private List<AlphaVector> latestV = null;
+		private AtomicLong lpCalls = new AtomicLong(0);
+		private DoubleAdder lpTime = new DoubleAdder();
+
+		public SolveJob(int id, Properties properties, String domain, String pomdpText) {
+			this.id = id;
+			this.properties = properties;
+			this.domain = domain;
+			this.pomdpText = pomdpText;
+
+			// parse the properties before queueing, such that invalid requests are rejected immediately
+			this.sp = SolvePOMDP.createSolverProperties(properties);
+			this.lpFactory = new LPModelFactory(properties.getProperty("lpsolver"), sp);
+		}
+
+		public void run() {
+			setStatus("running");
+			File jobDir = null;
+			threadOutput.set(new JobOutputStream(this));
+
+			try {
+				// every job writes its intermediate files to a private directory
+				jobDir = Files.createTempDirectory("solvepomdp-job"+id).toFile();
+				sp.setWorkingDir("");
+				sp.setOutputDirName(jobDir.getPath());
+
+				String pomdpFile = domainDir+"/"+domain;
+				if(domain == null) {
+					// the name has been checked by the handler, and the file must be created inside the job directory
+					File file = new File(jobDir, properties.getProperty("name", "job"+id)+".POMDP");
+					if(!file.getCanonicalFile().getParentFile().equals(jobDir.getCanonicalFile())) {
+						throw new RuntimeException("POMDP file must be created in the job directory");
+					}
+
+					pomdpFile = file.getPath();
+					Files.write(file.toPath(), pomdpText.getBytes(StandardCharsets.UTF_8));
+				}
+
+				POMDP pomdp = Parser.readPOMDP(pomdpFile);
+
+				LPModel lp = getWorkerLPModel(lpFactory);
+				PruneMethod pm = SolvePOMDP.createPruneMethod(properties.getProperty("pruningMethod"), lp);
+				Solver solver = SolvePOMDP.createSolver(properties.getProperty("algorithmType"), sp, lp, pm, lpFactory);
+				solver.setListener(new JobListener(this));
+				setSolver(pomdp, solver);
+				ArrayList<AlphaVector> V = solver.solve(pomdp);
+
+				setResult(createResultJSON(pomdp, solver, V, sp.dumpPolicyGraph()));
+				setStatus("done");
+			}
+			catch (Exception e) {
+				e.printStackTrace(System.out);
+				setStatus("failed");
+			}
+			finally {
+				threadOutput.remove();
+				deleteDirectory(jobDir);
+				finish();
+				evictFinishedJobs(id);
+			}
+		}
+
+		private synchronized void setStatus(String status) {
+			this.status = status;
+		}
+
+		private synchronized void setSolver(POMDP pomdp, Solver solver) {
+			this.pomdp = pomdp;
+			this.solver = solver;
+
+			// a stop request received while the job was queued or parsed is forwarded to the solver
+			if(stopRequested) {
+				solver.requestStop();
+			}
+		}
+
+		/**
+		 * Request the solver of the job to stop, or stop it as soon as the solver has been created
+		 */
+		public synchronized void requestStop() {
+			stopRequested = true;
+
+			if(solver != null) {
+				solver.requestStop();
+			}
+		}
+
+		private synchronized void setLatestStage(int stage, List<AlphaVector> V, double valueDifference, double stageTime, double elapsed) {
+			latestStageJSON = "{\"stage\":"+stage+",\"vectors\":"+V.size()+",\"diff\":"+toJSON(valueDifference)+",\"stageTime\":"+toJSON(stageTime)+",\"elapsed\":"+toJSON(elapsed)+"}";
+			latestV = V;
+		}
+
+		/**
+		 * Get the JSON representation of the value function of the last completed stage
+		 * @return JSON string, or null if no stage has been completed
+		 */
+		public synchronized String getLatestJSON() {
+			if(latestV == null) {
+				return null;
+			}
+
+			StringBuilder sb = new StringBuilder();
+			sb.append("{\"job\":"+id+",\"status\":\""+status+"\",\"stage\":"+latestStageJSON);
+			sb.append(",\"expectedValue\":"+toJSON(AlphaVector.getValue(pomdp.getInitialBelief().getBelief(), new ArrayList<AlphaVector>(latestV))));
+			sb.append(",\"vectors\":");
+			appendVectorsJSON(sb, pomdp, latestV, false);
+			sb.append("}");
+			return sb.toString();
+		}
+
+		public synchronized String getStatus() {
+			return status;
+		}
+
+		private synchronized void setResult(String resultJSON) {
+			this.resultJSON = resultJSON;
+		}
+
+		public synchronized String getResultJSON() {
+			return resultJSON;
+		}
+
+		public synchronized void addLine(String line) {
+			lines.add(line);
+			notifyAll();
+		}
+
+		private synchronized void finish() {
+			notifyAll();
+		}
+
+		private synchronized boolean isFinished() {
+			return status.equals("done") || status.equals("failed");
+		}
+
+		/**
+		 * Wait until lines beyond fromIndex are available
+		 * @param fromIndex index of the first line that has not been seen yet
+		 * @return new lines, or null if the job has finished and no new lines will arrive
+		 */
+		public synchronized List<String> waitForLines(int fromIndex) throws InterruptedException {
+			while(lines.size() <= fromIndex && !isFinished()) {
+				wait();
+			}
+
+			if(lines.size() <= fromIndex) {
+				return null;
+			}
+
+			return new ArrayList<String>(lines.subList(fromIndex, lines.size()));
+		}
+
+		public synchronized String getStatusJSON() {
+			StringBuilder sb = new StringBuilder();
+			sb.append("{\"job\":"+id+",\"status\":\""+status+"\"");
+			sb.append(",\"stage\":"+(latestStageJSON == null ? "null" : latestStageJSON));
+			sb.append(",\"lpCalls\":"+lpCalls.get()+",\"lpTime\":"+toJSON(lpTime.sum()));
+			sb.append(",\"progress\":[");
+
+			for(int i=0; i<lines.size(); i++) {
+				if(i > 0) sb.append(",");
+				sb.append(toJSON(lines.get(i)));
+			}
+
+			sb.append("]}");
+			return sb.toString();
+		}
+	}
+
+	/**
+	 * Register a finished job, and remove the oldest finished jobs if more than MAX_FINISHED_JOBS jobs have finished
+	 * @param id ID of the job that has finished
+	 */
+	private void evictFinishedJobs(int id) {
+		finishedJobs.add(id);
+
+		while(finishedJobs.size() > MAX_FINISHED_JOBS) {
+			Integer oldestId = finishedJobs.poll();
+			if(oldestId != null) {
+				jobs.remove(oldestId);
+			}
+		}
+	}
+
+	/**
+	 * Check whether a request parameter can be used as a file name, such that it cannot refer to other directories
+	 * @param name parameter value
+	 * @return true iff the name does not contain separators or parent directory references
+	 */
+	private static boolean isFileName(String name) {
+		return name.length() > 0 && !name.contains("/") && !name.contains("\\") && !name.contains("..");
+	}
+
+	/**
+	 * Listener which records the stages and LPs of a job, such that its progress and intermediate value functions can be retrieved
+	 */
+	private static class JobListener implements SolverListener {
+		private SolveJob job;
+
+		public JobListener(SolveJob job) {
+			this.job = job;
+		}
+
+		public void onStageComplete(int stage, List<AlphaVector> V, double valueDifference, double stageTime, double elapsed) {
+			job.setLatestStage(stage, V, valueDifference, stageTime, elapsed);
+		}
+
+		public void onLPCall(String method, double time) {
+			// LPs can be solved by multiple threads, so the counters are updated without locking the job
+			job.lpCalls.incrementAndGet();
+			job.lpTime.add(time);
+		}
+	}
+
+	/**
+	 * Create the JSON representation of a solution
+	 * @param pomdp the POMDP that has been solved
+	 * @param solver the solver that computed the solution
+	 * @param V vectors representing the solution
+	 * @param includePolicyGraph true iff the vectors contain policy graph information
+	 * @return JSON string
+	 */
+	private static String createResultJSON(POMDP pomdp, Solver solver, ArrayList<AlphaVector> V, boolean includePolicyGraph) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("{\"instance\":"+toJSON(pomdp.getInstanceName()));
+		sb.append(",\"expectedValue\":"+toJSON(solver.getExpectedValue()));
+		sb.append(",\"solveTime\":"+toJSON(solver.getTotalSolveTime()));
+		sb.append(",\"vectors\":");
+		appendVectorsJSON(sb, pomdp, V, includePolicyGraph);
+		sb.append("}");
+		return sb.toString();
+	}
+
+	/**
+	 * Append the JSON array representing a set of vectors
+	 * @param sb string builder to which the array is appended
+	 * @param pomdp the POMDP to which the vectors belong
+	 * @param V vectors
+	 * @param includePolicyGraph true iff the vectors contain policy graph information
+	 */
+	private static void appendVectorsJSON(StringBuilder sb, POMDP pomdp, List<AlphaVector> V, boolean includePolicyGraph) {
+		sb.append("[");
+
+		for(int i=0; i<V.size(); i++) {
+			AlphaVector av = V.get(i);
+			if(i > 0) sb.append(",");
+			sb.append("{\"action\":"+av.getAction()+",\"label\":"+toJSON(pomdp.getActionLabel(av.getAction()))+",\"entries\":[");
+
+			for(int s=0; s<av.size(); s++) {
+				if(s > 0) sb.append(",");
+				sb.append(toJSON(av.getEntry(s)));
+			}
+
+			sb.append("]");
+
+			if(includePolicyGraph && av.getObsSource() != null) {
+				// node i of the policy graph corresponds to vector i
+				sb.append(",\"nextNodes\":[");
+				int[] obsSource = av.getObsSource();
+				for(int o=0; o<obsSource.length; o++) {
+					if(o > 0) sb.append(",");
+					sb.append(obsSource[o]);
+				}
+				sb.append("]");
+			}
+
+			sb.append("}");
+		}
+
+		sb.append("]");
+	}
+
+	private static String toJSON(double d) {
+		if(Double.isNaN(d) || Double.isInfinite(d)) {
+			return "null";
+		}
+
+		return Double.toString(d);
+	}
+
+	private static String toJSON(String s) {
+		if(s == null) {
+			return "null";
+		}
+
+		StringBuilder sb = new StringBuilder("\"");
+
+		for(int i=0; i<s.length(); i++) {
+			char c = s.charAt(i);
+
+			if(c == '"' || c == '\\') {
+				sb.append('\\').append(c);
+			}
+			else if(c < 0x20) {
+				sb.append(String.format("\\u%04x", (int) c));
+			}
+			else {
+				sb.append(c);
+			}
+		}
+
+		return sb.append("\"").toString();
+	}
+
+	private static Map<String,String> parseQuery(String query) throws IOException {
+		Map<String,String> parameters = new HashMap<String,String>();
+
+		if(query == null) {
+			return parameters;
+		}
+
+		for(String pair : query.split("&")) {
+			int separator = pair.indexOf('=');
+
+			if(separator > 0) {
+				String key = URLDecoder.decode(pair.substring(0, separator), "UTF-8");
+				String value = URLDecoder.decode(pair.substring(separator+1), "UTF-8");
+				parameters.put(key, value);
+			}
+		}
+
+		return parameters;
+	}
+
+	private static String readBody(InputStream is) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int n;
+
+		while((n = is.read(buffer)) != -1) {
+			bos.write(buffer, 0, n);
+		}
+
+		is.close();
+		return new String(bos.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	private static void sendResponse(HttpExchange exchange, int code, String json) throws IOException {
+		byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		exchange.sendResponseHeaders(code, bytes.length);
+		OutputStream os = exchange.getResponseBody();
+		os.write(bytes);
+		os.close();
+	}
+
+	private static void deleteDirectory(File dir) {
+		if(dir == null) {
+			return;
+		}
+
+		File[] files = dir.listFiles();
+		if(files != null) {
+			for(File f : files) {
+				f.delete();
+			}
+		}
+
+		dir.delete();
+	}
+
+	/**
+	 * Output stream that forwards bytes to the stream registered by the current thread, if any
+	 */
+	private static class ThreadRoutingOutputStream extends OutputStream {
+		private OutputStream defaultOutput;
+
+		public ThreadRoutingOutputStream(OutputStream defaultOutput) {
+			this.defaultOutput = defaultOutput;
+		}
+
+		public void write(int b) throws IOException {
+			OutputStream os = threadOutput.get();
+			(os == null ? defaultOutput : os).write(b);
+		}
+
+		public void write(byte[] b, int off, int len) throws IOException {
+			OutputStream os = threadOutput.get();
+			(os == null ? defaultOutput : os).write(b, off, len);
+		}
+
+		public void flush() throws IOException {
+			OutputStream os = threadOutput.get();
+			(os == null ? defaultOutput : os).flush();
+		}
+	}
+
+	/**
+	 * Output stream that splits the output of a job into progress lines
+	 */
+	private static class JobOutputStream extends OutputStream {
+		private SolveJob job;
+		private ByteArrayOutputStream currentLine = new ByteArrayOutputStream();
+
+		public JobOutputStream(SolveJob job) {
+			this.job = job;
+		}
+
+		public void write(int b) {
+			if(b == '\n') {
+				String line = new String(currentLine.toByteArray(), StandardCharsets.UTF_8);
+				currentLine.reset();
+
+				if(line.length() > 0) {
+					job.addLine(line);
+				}
+			}
+			else if(b != '\r') {
+				currentLine.write(b);
+			}
+		}
+	}
+
+	/**
+	 * Start the solver service
+	 * @param args optional port, number of worker threads and queue capacity
+	 */
+	public static void main(String[] args) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+		int workers = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+		int queueCapacity = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+
+		final SolverServer solverServer = new SolverServer(port, workers, queueCapacity);
+		solverServer.start();
+
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			public void run() {
+				solverServer.stop();
+			}
+		});
+
+		System.out.println("SolvePOMDP server listening on http://localhost:"+port+" ("+workers+" workers, queue capacity "+queueCapacity+")");
+	}
+}
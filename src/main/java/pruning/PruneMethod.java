@@ -23,6 +23,8 @@ import java.util.ArrayList;
 import lpsolver.LPModel;
 
 import solver.AlphaVector;
+import solver.Deadline;
+import solver.SolverStatistics;
 import solver.VectorSetCollection;
 
 public interface PruneMethod {
@@ -58,4 +60,16 @@ public interface PruneMethod {
 	 * @param lp linear programming model
 	 */
 	public void setLPModel(LPModel lp);
+	
+	/**
+	 * Set the object in which dominance checks, pruned vectors and pruning time are recorded
+	 * @param stats solver statistics, or null if nothing should be recorded
+	 */
+	public void setStatistics(SolverStatistics stats);
+	
+	/**
+	 * Set the deadline which is checked during pruning. If it passes, a DeadlineExceededException is thrown.
+	 * @param deadline deadline, or null if pruning should not be interrupted
+	 */
+	public void setDeadline(Deadline deadline);
 }
@@ -21,9 +21,12 @@ package pruning;
 import java.util.ArrayList;
 
 import solver.AlphaVector;
+import solver.Deadline;
+import solver.SolverStatistics;
 import solver.VectorSetCollection;
 
 import lpsolver.LPModel;
+import profiling.PruneEvent;
 
 /*
  * Algorithm: Incremental Pruning with policy graph tracing
@@ -33,24 +36,32 @@ import lpsolver.LPModel;
 public class PrunePolicyGraph implements PruneMethod {
 	private String name = "Incremental pruning";
 	private LPModel lp;
+	private SolverStatistics stats;
+	private Deadline deadline;
 	
 	public ArrayList<AlphaVector> crossSum(VectorSetCollection vsc) {
 		assert vsc.size() >= 2;
 		
 		// first prune individual vector sets before computing the cross sum
+		long startTime = System.nanoTime();
 		pruneVectorSetCollection(vsc);
+		if(stats != null) stats.addTime(SolverStatistics.TIME_PRUNE_GAO, startTime);
 		
 		// compute the cross sum and set sources for both observation 0 and 1
+		startTime = System.nanoTime();
 		int numObservations = vsc.size();
 		ArrayList<AlphaVector> crossSum = AlphaVector.crossSumPolicyGraph(vsc.getVectorSet(0), vsc.getVectorSet(1), numObservations);
 		crossSum = prune(crossSum);
 		
 		// compute the remaining parts of the cross sum and set sources for the observation considered
 		for(int i=2; i<vsc.size(); i++) {
+			if(deadline != null) deadline.check();
 			crossSum = AlphaVector.crossSumPolicyGraph(crossSum, vsc.getVectorSet(i), numObservations);
 			crossSum = prune(crossSum);
 		}
 		
+		if(stats != null) stats.addTime(SolverStatistics.TIME_CROSS_SUM, startTime);
+		
 		return crossSum;
 	}
 
@@ -65,31 +76,49 @@ public class PrunePolicyGraph implements PruneMethod {
 	}
 
 	public ArrayList<AlphaVector> prune(ArrayList<AlphaVector> vectors) {		
+		PruneEvent event = new PruneEvent();
+		event.begin();
+		
 		ArrayList<AlphaVector> W = new ArrayList<AlphaVector>(vectors);
 		ArrayList<AlphaVector> D = new ArrayList<AlphaVector>();
 		
 		while(W.size() > 0) {			
+			if(deadline != null) deadline.check();
+			
 			int wIndex = 0;
 			AlphaVector w = W.get(wIndex);
 			
+			if(stats != null) stats.increment(SolverStatistics.DOMINANCE_CHECKS);
+			
 			if(w.isPointwiseDominated(D)) {
 				W.remove(wIndex);
+				if(stats != null) stats.increment(SolverStatistics.PRUNED_DOMINATED);
 			}
 			else {
 				double[] b = lp.findRegionPoint(w,D);
 				
 				if(b == null) {
 					W.remove(wIndex);
+					if(stats != null) stats.increment(SolverStatistics.PRUNED_LP);
 				}
 				else {
 					wIndex = AlphaVector.getBestVectorIndex(b, W);
 					w = W.get(wIndex);
+					w.setWitness(b);
 					D.add(w);
 					W.remove(wIndex);
 				}
 			}
 		}
 		
+		if(event.shouldCommit()) {
+			event.method = name;
+			event.phase = "prune";
+			event.inputVectors = vectors.size();
+			event.outputVectors = D.size();
+			event.commit();
+		}
+		
 		return D;
 	}
 	
@@ -108,4 +137,12 @@ public class PrunePolicyGraph implements PruneMethod {
 	public void setLPModel(LPModel lp) {
 		this.lp = lp;
 	}
+	
+	public void setStatistics(SolverStatistics stats) {
+		this.stats = stats;
+	}
+	
+	public void setDeadline(Deadline deadline) {
+		this.deadline = deadline;
+	}
 }
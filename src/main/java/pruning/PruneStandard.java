@@ -21,9 +21,12 @@ package pruning;
 import java.util.ArrayList;
 
 import solver.AlphaVector;
+import solver.Deadline;
+import solver.SolverStatistics;
 import solver.VectorSetCollection;
 
 import lpsolver.LPModel;
+import profiling.PruneEvent;
 
 /*
  * Algorithm: Generalized Incremental Pruning (GIP)
@@ -33,24 +36,32 @@ import lpsolver.LPModel;
 public class PruneStandard implements PruneMethod {
 	private String name = "Generalized incremental pruning";
 	private LPModel lp;
+	private SolverStatistics stats;
+	private Deadline deadline;
 	
 	public ArrayList<AlphaVector> crossSum(VectorSetCollection vsc) {
 		assert vsc.size() >= 2;
 		
+		long startTime = System.nanoTime();
 		pruneVectorSetCollection(vsc);
+		if(stats != null) stats.addTime(SolverStatistics.TIME_PRUNE_GAO, startTime);
 		
+		startTime = System.nanoTime();
 		ArrayList<AlphaVector> U = vsc.getVectorSet(0);
 		ArrayList<AlphaVector> W = vsc.getVectorSet(1);
 		ArrayList<AlphaVector> crossUW = AlphaVector.crossSum(U, W);
 		ArrayList<AlphaVector> crossSum = pruneAfterCrossSum(crossUW, U, W);
 		
 		for(int i=2; i<vsc.size(); i++) {
+			if(deadline != null) deadline.check();
 			U = crossSum;
 			W = vsc.getVectorSet(i);
 			crossUW = AlphaVector.crossSum(U, W);
 			crossSum = pruneAfterCrossSum(crossUW, U, W);
 		}
 		
+		if(stats != null) stats.addTime(SolverStatistics.TIME_CROSS_SUM, startTime);
+		
 		return crossSum;
 	}
 
@@ -65,15 +76,23 @@ public class PruneStandard implements PruneMethod {
 	}
 	
 	private ArrayList<AlphaVector> pruneAfterCrossSum(ArrayList<AlphaVector> vectors, ArrayList<AlphaVector> U, ArrayList<AlphaVector> W) {
+		PruneEvent event = new PruneEvent();
+		event.begin();
+		
 		ArrayList<AlphaVector> Q = new ArrayList<AlphaVector>(vectors);
 		ArrayList<AlphaVector> D = new ArrayList<AlphaVector>();
 		
 		while(Q.size() > 0) {			
+			if(deadline != null) deadline.check();
+			
 			int zIndex = 0;
 			AlphaVector z = Q.get(zIndex);
 			
+			if(stats != null) stats.increment(SolverStatistics.DOMINANCE_CHECKS);
+			
 			if(z.isPointwiseDominated(D)) {
 				Q.remove(zIndex);
+				if(stats != null) stats.increment(SolverStatistics.PRUNED_DOMINATED);
 			}
 			else {
 				int uOrigin = z.getOriginU();
@@ -126,6 +145,7 @@ public class PruneStandard implements PruneMethod {
 				
 				if(b == null) {
 					Q.remove(zIndex);
+					if(stats != null) stats.increment(SolverStatistics.PRUNED_LP);
 				}
 				else {
 					zIndex = AlphaVector.getBestVectorIndex(b, Q);
@@ -136,35 +156,61 @@ public class PruneStandard implements PruneMethod {
 			}
 		}
 		
+		if(event.shouldCommit()) {
+			event.method = name;
+			event.phase = "crossSum";
+			event.inputVectors = vectors.size();
+			event.outputVectors = D.size();
+			event.commit();
+		}
+		
 		return D;
 	}
 
 	public ArrayList<AlphaVector> prune(ArrayList<AlphaVector> vectors) {		
+		PruneEvent event = new PruneEvent();
+		event.begin();
+		
 		ArrayList<AlphaVector> W = new ArrayList<AlphaVector>(vectors);
 		ArrayList<AlphaVector> D = new ArrayList<AlphaVector>();
 		
 		while(W.size() > 0) {			
+			if(deadline != null) deadline.check();
+			
 			int wIndex = 0;
 			AlphaVector w = W.get(wIndex);
 			
+			if(stats != null) stats.increment(SolverStatistics.DOMINANCE_CHECKS);
+			
 			if(w.isPointwiseDominated(D)) {
 				W.remove(wIndex);
+				if(stats != null) stats.increment(SolverStatistics.PRUNED_DOMINATED);
 			}
 			else {
 				double[] b = lp.findRegionPoint(w,D);
 				
 				if(b == null) {
 					W.remove(wIndex);
+					if(stats != null) stats.increment(SolverStatistics.PRUNED_LP);
 				}
 				else {
 					wIndex = AlphaVector.getBestVectorIndex(b, W);
 					w = W.get(wIndex);
+					w.setWitness(b);
 					D.add(w);
 					W.remove(wIndex);
 				}
 			}
 		}
 		
+		if(event.shouldCommit()) {
+			event.method = name;
+			event.phase = "prune";
+			event.inputVectors = vectors.size();
+			event.outputVectors = D.size();
+			event.commit();
+		}
+		
 		return D;
 	}
 	
@@ -183,4 +229,12 @@ public class PruneStandard implements PruneMethod {
 	public void setLPModel(LPModel lp) {
 		this.lp = lp;
 	}
+	
+	public void setStatistics(SolverStatistics stats) {
+		this.stats = stats;
+	}
+	
+	public void setDeadline(Deadline deadline) {
+		this.deadline = deadline;
+	}
 }
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * SolvePOMDP
+ * Copyright (C) 2017 Erwin Walraven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package simulator;
+
+import java.util.Arrays;
+
+import program.POMDP;
+
+import solver.BeliefPoint;
+
+/**
+ * Tracks the belief of an agent during online execution. The belief is updated in place using preallocated
+ * buffers, and an update only computes the normalizing constant of the executed action and the received
+ * observation, which takes O(nnz(T_a) + |S|) time per step.
+ */
+
+public class BeliefTracker {
+	private POMDP pomdp;
+	private double[] belief;            // current belief, which is updated in place
+	private double[] scratch;           // buffer containing the unnormalized next belief
+	private BeliefPoint beliefPoint;    // belief point object sharing the current belief array
+
+	public BeliefTracker(POMDP pomdp) {
+		this.pomdp = pomdp;
+		this.belief = new double[pomdp.getNumStates()];
+		this.scratch = new double[pomdp.getNumStates()];
+		this.beliefPoint = new BeliefPoint(belief);
+		reset();
+	}
+
+	/**
+	 * Reset the belief to the initial belief of the POMDP
+	 */
+	public void reset() {
+		reset(pomdp.getInitialBelief().getBelief());
+	}
+
+	/**
+	 * Reset the belief to the given belief
+	 * @param b belief
+	 */
+	public void reset(double[] b) {
+		assert b.length == belief.length;
+		System.arraycopy(b, 0, belief, 0, belief.length);
+	}
+
+	/**
+	 * Update the belief after executing action a and observing o
+	 * @param a action
+	 * @param o observation
+	 * @return probability of observing o after executing a in the previous belief
+	 */
+	public double update(int a, int o) {
+		int nStates = belief.length;
+		Arrays.fill(scratch, 0.0);
+
+		for(int s=0; s<nStates; s++) {
+			double beliefEntry = belief[s];
+			if(beliefEntry == 0.0) continue;
+
+			int[] successors = pomdp.getTransitionSuccessors(s, a);
+			double[] successorProbs = pomdp.getTransitionSuccessorProbabilities(s, a);
+			for(int i=0; i<successors.length; i++) {
+				scratch[successors[i]] += successorProbs[i] * beliefEntry;
+			}
+		}
+
+		double nc = 0.0;
+		for(int sNext=0; sNext<nStates; sNext++) {
+			scratch[sNext] *= pomdp.getObservationProbability(a, sNext, o);
+			nc += scratch[sNext];
+		}
+		assert nc > 0.0 : "o cannot be observed when executing a in belief b";
+
+		for(int sNext=0; sNext<nStates; sNext++) {
+			belief[sNext] = scratch[sNext] / nc;
+		}
+
+		return nc;
+	}
+
+	/**
+	 * Get the current belief. The array is owned by the tracker and changes after each update.
+	 * @return belief
+	 */
+	public double[] getBelief() {
+		return belief;
+	}
+
+	/**
+	 * Get a belief point object which shares its belief array with the tracker. It should not be
+	 * prepared using POMDP.prepareBelief, because cached probabilities are not updated by the tracker.
+	 * @return belief point
+	 */
+	public BeliefPoint getBeliefPoint() {
+		return beliefPoint;
+	}
+}
@@ -39,4 +39,10 @@ public interface Policy {
 	 * Reset initial state of the policy (used in finite-state controllers)
 	 */
 	public void reset();
+	
+	/**
+	 * Create a copy of the policy with its own execution state, which can be used by another simulation thread
+	 * @return policy
+	 */
+	public Policy copy();
 }
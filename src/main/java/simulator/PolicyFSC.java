@@ -27,6 +27,7 @@ import program.POMDP;
 
 import solver.AlphaVector;
 import solver.BeliefPoint;
+import solver.ValueFunctionReader;
 
 public class PolicyFSC implements Policy {
 	private int numNodes;
@@ -59,35 +60,13 @@ public class PolicyFSC implements Policy {
 		currentNode = initialNode;
 	}
 	
+	public Policy copy() {
+		return new PolicyFSC(numNodes, initialNode, actions, nextNodes);
+	}
+	
 	public static PolicyFSC createFSC(POMDP pomdp, String vectorFile, String policyGraphFile) {
 		// read vectors
-		ArrayList<AlphaVector> vectors = new ArrayList<AlphaVector>();
-		try {
-			Scanner sc = new Scanner(new File(vectorFile));
-			
-			while(sc.hasNextInt()) {
-				// get action
-				int action = sc.nextInt();
-				sc.nextLine();
-				
-				// get line containing doubles
-				String line = sc.nextLine();
-				String[] lineSplit = line.split(" ");
-				double[] vectorEntries = new double[lineSplit.length];
-				
-				for(int i=0; i<lineSplit.length; i++) {
-					vectorEntries[i] = Double.parseDouble(lineSplit[i]);
-				}
-				
-				AlphaVector av = new AlphaVector(vectorEntries);
-				av.setAction(action);
-				vectors.add(av);
-			}
-			
-			sc.close();
-		} catch (FileNotFoundException e) {
-			e.printStackTrace();
-		}
+		ArrayList<AlphaVector> vectors = ValueFunctionReader.readFile(vectorFile, pomdp);
 		
 		// determine initial node
 		int numNodes = vectors.size();
@@ -0,0 +1,221 @@
+/*******************************************************************************
+ * SolvePOMDP
+ * Copyright (C) 2017 Erwin Walraven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package simulator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Random;
+
+import solver.AlphaVector;
+
+/**
+ * Thread-safe policy which answers action queries for many beliefs at once. The vectors are stored in one
+ * contiguous array, and beliefs are evaluated in blocks such that each vector is loaded once per block.
+ */
+
+public class PolicyQueryService {
+	private static final int BLOCK_SIZE = 32;          // number of beliefs evaluated against a vector before moving to the next vector
+	private static final int LATENCY_WINDOW = 10000;   // number of recent calls used to compute latency percentiles
+
+	private final int nVectors;
+	private final int nStates;
+	private final double[] entries;                    // entries[i*nStates+s] contains entry s of vector i
+	private final int[] actions;
+
+	// statistics
+	private long numCalls = 0;
+	private long numBeliefs = 0;
+	private long totalNanos = 0;
+	private long[] recentLatencies = new long[LATENCY_WINDOW];
+
+	public PolicyQueryService(ArrayList<AlphaVector> vectors) {
+		assert vectors.size() > 0;
+
+		// sort lexicographically descending, such that the first maximizing vector breaks ties in the same way as AlphaVector.getBestVectorIndex
+		ArrayList<AlphaVector> sortedVectors = new ArrayList<AlphaVector>(vectors);
+		Collections.sort(sortedVectors, new Comparator<AlphaVector>() {
+			public int compare(AlphaVector v1, AlphaVector v2) {
+				for(int i=0; i<v1.size(); i++) {
+					int c = Double.compare(v2.getEntry(i), v1.getEntry(i));
+					if(c != 0) return c;
+				}
+				return 0;
+			}
+		});
+
+		this.nVectors = sortedVectors.size();
+		this.nStates = sortedVectors.get(0).size();
+		this.entries = new double[nVectors*nStates];
+		this.actions = new int[nVectors];
+
+		for(int i=0; i<nVectors; i++) {
+			AlphaVector av = sortedVectors.get(i);
+			System.arraycopy(av.getEntries(), 0, entries, i*nStates, nStates);
+			actions[i] = av.getAction();
+		}
+	}
+
+	/**
+	 * Get the actions that should be executed for the given beliefs
+	 * @param beliefs array containing one belief per row
+	 * @return array containing the action for each belief
+	 */
+	public int[] getActions(double[][] beliefs) {
+		long startTime = System.nanoTime();
+
+		int nBeliefs = beliefs.length;
+		int[] retActions = new int[nBeliefs];
+		double[] maxValues = new double[BLOCK_SIZE];
+		int[] maxIndices = new int[BLOCK_SIZE];
+
+		for(int blockStart=0; blockStart<nBeliefs; blockStart+=BLOCK_SIZE) {
+			int blockEnd = Math.min(blockStart+BLOCK_SIZE, nBeliefs);
+			Arrays.fill(maxValues, Double.NEGATIVE_INFINITY);
+			Arrays.fill(maxIndices, -1);
+
+			for(int i=0; i<nVectors; i++) {
+				int offset = i*nStates;
+
+				for(int j=blockStart; j<blockEnd; j++) {
+					double[] b = beliefs[j];
+					assert b.length == nStates;
+					double product = 0.0;
+
+					for(int s=0; s<nStates; s++) {
+						product += entries[offset+s] * b[s];
+					}
+
+					if(product > maxValues[j-blockStart]) {
+						maxValues[j-blockStart] = product;
+						maxIndices[j-blockStart] = i;
+					}
+				}
+			}
+
+			for(int j=blockStart; j<blockEnd; j++) {
+				retActions[j] = actions[maxIndices[j-blockStart]];
+			}
+		}
+
+		recordCall(nBeliefs, System.nanoTime()-startTime);
+
+		return retActions;
+	}
+
+	/**
+	 * Get the action that should be executed for a single belief
+	 * @param b belief
+	 * @return action
+	 */
+	public int getAction(double[] b) {
+		return getActions(new double[][]{b})[0];
+	}
+
+	private synchronized void recordCall(int beliefs, long nanos) {
+		recentLatencies[(int) (numCalls % LATENCY_WINDOW)] = nanos;
+		numCalls++;
+		numBeliefs += beliefs;
+		totalNanos += nanos;
+	}
+
+	/**
+	 * Get the number of getActions calls that have been answered
+	 * @return number of calls
+	 */
+	public synchronized long getNumCalls() {
+		return numCalls;
+	}
+
+	/**
+	 * Get the number of beliefs per second, measured over the time spent inside getActions
+	 * @return throughput in beliefs per second
+	 */
+	public synchronized double getThroughput() {
+		return totalNanos == 0 ? 0.0 : numBeliefs / (totalNanos * 0.000000001);
+	}
+
+	/**
+	 * Get a latency percentile of the most recent calls
+	 * @param percentile percentile between 0 and 1, e.g. 0.99
+	 * @return latency in milliseconds
+	 */
+	public synchronized double getLatencyPercentile(double percentile) {
+		assert percentile >= 0.0 && percentile <= 1.0;
+		int n = (int) Math.min(numCalls, LATENCY_WINDOW);
+		if(n == 0) return 0.0;
+
+		long[] latencies = Arrays.copyOf(recentLatencies, n);
+		Arrays.sort(latencies);
+		int index = (int) Math.ceil(percentile * n) - 1;
+
+		return latencies[Math.max(index, 0)] * 0.000001;
+	}
+
+	/**
+	 * Get the number of vectors defining the policy
+	 * @return number of vectors
+	 */
+	public int getNumVectors() {
+		return nVectors;
+	}
+
+	/**
+	 * Load a policy from a file containing alpha vectors
+	 * @param file .alpha file
+	 * @return policy query service
+	 */
+	public static PolicyQueryService readFile(String file) {
+		return new PolicyQueryService(PolicyVector.readFile(file).getVectors());
+	}
+
+	public static void main(String[] args) {
+		String alphaFile = args.length > 0 ? args[0] : "output/partpainting.alpha";
+		int batchSize = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+		int batches = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+
+		PolicyQueryService policy = PolicyQueryService.readFile(alphaFile);
+		int nStates = policy.nStates;
+
+		// random beliefs drawn uniformly from the simplex
+		Random rnd = new Random(3434);
+		double[][] beliefs = new double[batchSize][nStates];
+		for(int i=0; i<batchSize; i++) {
+			double sum = 0.0;
+			for(int s=0; s<nStates; s++) {
+				beliefs[i][s] = -Math.log(1.0-rnd.nextDouble());
+				sum += beliefs[i][s];
+			}
+			for(int s=0; s<nStates; s++) {
+				beliefs[i][s] /= sum;
+			}
+		}
+
+		for(int i=0; i<batches; i++) {
+			policy.getActions(beliefs);
+		}
+
+		System.out.println("Vectors: "+policy.getNumVectors());
+		System.out.println("Batch size: "+batchSize);
+		System.out.println("Throughput: "+policy.getThroughput()+" beliefs/sec");
+		System.out.println("Latency p50: "+policy.getLatencyPercentile(0.5)+" ms");
+		System.out.println("Latency p99: "+policy.getLatencyPercentile(0.99)+" ms");
+	}
+}
@@ -18,20 +18,32 @@
 
 package simulator;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import program.POMDP;
 import program.Parser;
-import solver.BeliefPoint;
-import solver.ProbabilitySample;
+import solver.ModelSampler;
 
 public class PolicySimulator {
 	private POMDP pomdp;
 	private Random rnd;
 	private Policy policy;
 	
+	private static final int RUNS_PER_TASK = 500;     // runs per parallel task, which determines how random streams are assigned to runs
+	
 	private boolean simulationDone = false;
 	private double meanDiscountedValue;
+	private double standardError;
+	private Map<String,Double> threadTimes;          // time in seconds spent by each thread in the last parallel simulation
 	
 	public PolicySimulator(POMDP pomdp, Policy policy, Random rnd) {
 		assert pomdp != null && rnd != null;
@@ -41,19 +53,17 @@ public class PolicySimulator {
 	}
 	
 	public void run(int runs, int steps) {
-		double totalValue = 0.0;
+		double[] statistics = new double[3];
+		BeliefTracker beliefTracker = new BeliefTracker(pomdp);
+		ModelSampler modelSampler = pomdp.getModelSampler();
 		
 		for(int run=0; run<runs; run++) {
 			if(run % 5000 == 0) System.out.println(run);
 			
-			BeliefPoint b = pomdp.getInitialBelief();
+			beliefTracker.reset();
 				
 			// sample an initial state
-			ProbabilitySample ps = new ProbabilitySample(rnd);
-			for(int s=0; s<pomdp.getNumStates(); s++) {
-				ps.addItem(s, b.getBelief(s));
-			}
-			int state = ps.sampleItem();
+			int state = modelSampler.sampleInitialState(rnd.nextDouble());
 				
 			// reset the policy before we start
 			policy.reset();
@@ -61,65 +71,230 @@ public class PolicySimulator {
 			double runValue = 0.0;
 			for(int step=0; step<steps; step++) {					
 				// select an action
-				int action = policy.getAction(b);
+				int action = policy.getAction(beliefTracker.getBeliefPoint());
 				assert action >= 0 && action < pomdp.getNumActions() : "invalid action: "+action;
 				
 				runValue += Math.pow(pomdp.getDiscountFactor(), (double) step) * pomdp.getReward(state, action);
 				
 				// sample next state
-				ps = new ProbabilitySample(rnd);
-				for(int s=0; s<pomdp.getNumStates(); s++) {
-					ps.addItem(s, pomdp.getTransitionProbability(state, action, s));
-				}
-				int stateNext = ps.sampleItem();
+				int stateNext = modelSampler.sampleNextState(state, action, rnd.nextDouble());
 				assert stateNext >= 0 && stateNext < pomdp.getNumStates();
 				
 				// sample an observation
-				ps = new ProbabilitySample(rnd);
-				for(int o=0; o<pomdp.getNumObservations(); o++) {
-					double probability = pomdp.getObservationProbability(action, stateNext, o);
-					ps.addItem(o, probability);
-					
-				}
-				int observation = ps.sampleItem();
+				int observation = modelSampler.sampleObservation(action, stateNext, rnd.nextDouble());
 				assert observation >= 0 && observation < pomdp.getNumObservations();
 				
 				// tell the policy what we did
 				policy.update(action, observation);
 				
 				// update the belief state
-				BeliefPoint bao = pomdp.updateBelief(b, action, observation);
+				beliefTracker.update(action, observation);
 				
 				// prepare for next step
 				state = stateNext;
-				b = bao;
 			}
 				
-			totalValue += runValue;
+			addValue(statistics, runValue);
 		}
 		
-		meanDiscountedValue = totalValue / ((double) runs);
+		setResult(statistics);
+	}
+	
+	/**
+	 * Simulate the policy using multiple threads. Runs are divided into tasks with their own random stream,
+	 * such that the result only depends on the seed and not on the number of threads.
+	 * @param runs number of runs
+	 * @param steps number of steps per run
+	 * @param seed seed of the random streams
+	 * @param numThreads number of threads
+	 */
+	public void runParallel(final int runs, final int steps, long seed, int numThreads) {
+		// split random streams in a fixed order before the tasks are executed
+		SplittableRandom rootRnd = new SplittableRandom(seed);
+		List<Callable<double[]>> tasks = new ArrayList<Callable<double[]>>();
+		
+		for(int taskStart=0; taskStart<runs; taskStart+=RUNS_PER_TASK) {
+			final int taskRuns = Math.min(RUNS_PER_TASK, runs-taskStart);
+			final SplittableRandom taskRnd = rootRnd.split();
+			final Policy taskPolicy = policy.copy();
+			
+			tasks.add(new Callable<double[]>() {
+				public double[] call() {
+					long startTime = System.nanoTime();
+					BeliefTracker beliefTracker = new BeliefTracker(pomdp);
+					double[] taskStatistics = new double[3];
+					
+					for(int run=0; run<taskRuns; run++) {
+						double runValue = simulateRun(taskPolicy, beliefTracker, taskRnd, steps);
+						addValue(taskStatistics, runValue);
+					}
+					
+					recordThreadTime(System.nanoTime()-startTime);
+					
+					return taskStatistics;
+				}
+			});
+		}
+		
+		ForkJoinPool pool = new ForkJoinPool(numThreads);
+		double[] statistics = new double[3];
+		threadTimes = new TreeMap<String,Double>();
+		
+		try {
+			List<Future<double[]>> results = pool.invokeAll(tasks);
+			
+			// combine results in task order, such that the outcome does not depend on scheduling
+			for(Future<double[]> result : results) {
+				mergeStatistics(statistics, result.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+		
+		setResult(statistics);
+	}
+	
+	/**
+	 * Add the value of a run to the statistics {count, mean, M2} using Welford's algorithm
+	 * @param statistics count, mean and sum of squared deviations from the mean
+	 * @param value discounted value of the run
+	 */
+	private static void addValue(double[] statistics, double value) {
+		statistics[0] += 1.0;
+		double delta = value - statistics[1];
+		statistics[1] += delta / statistics[0];
+		statistics[2] += delta * (value - statistics[1]);
+	}
+	
+	/**
+	 * Merge the statistics {count, mean, M2} of a task into the total statistics using the parallel variance algorithm of Chan et al.
+	 * @param statistics total statistics, which are updated
+	 * @param taskStatistics statistics of the task
+	 */
+	private static void mergeStatistics(double[] statistics, double[] taskStatistics) {
+		double count = statistics[0] + taskStatistics[0];
+		if(count == 0.0) return;
+		
+		double delta = taskStatistics[1] - statistics[1];
+		statistics[1] += delta * taskStatistics[0] / count;
+		statistics[2] += taskStatistics[2] + delta * delta * statistics[0] * taskStatistics[0] / count;
+		statistics[0] = count;
+	}
+	
+	/**
+	 * Store the mean and standard error of the simulation
+	 * @param statistics count, mean and sum of squared deviations from the mean
+	 */
+	private void setResult(double[] statistics) {
+		double runs = statistics[0];
+		meanDiscountedValue = statistics[1];
+		standardError = runs > 1.0 ? Math.sqrt(statistics[2] / (runs-1.0) / runs) : 0.0;
 		simulationDone = true;
 	}
 	
+	/**
+	 * Simulate one run of the policy, starting from the initial belief
+	 * @param runPolicy policy to be simulated
+	 * @param beliefTracker belief tracker used by this run
+	 * @param runRnd random stream
+	 * @param steps number of steps
+	 * @return discounted value of the run
+	 */
+	private double simulateRun(Policy runPolicy, BeliefTracker beliefTracker, SplittableRandom runRnd, int steps) {
+		ModelSampler modelSampler = pomdp.getModelSampler();
+		
+		// sample an initial state
+		int state = modelSampler.sampleInitialState(runRnd.nextDouble());
+		
+		beliefTracker.reset();
+		runPolicy.reset();
+		
+		double runValue = 0.0;
+		double discount = 1.0;
+		for(int step=0; step<steps; step++) {
+			// select an action
+			int action = runPolicy.getAction(beliefTracker.getBeliefPoint());
+			assert action >= 0 && action < pomdp.getNumActions() : "invalid action: "+action;
+			
+			runValue += discount * pomdp.getReward(state, action);
+			discount *= pomdp.getDiscountFactor();
+			
+			// sample next state and observation
+			int stateNext = modelSampler.sampleNextState(state, action, runRnd.nextDouble());
+			int observation = modelSampler.sampleObservation(action, stateNext, runRnd.nextDouble());
+			
+			// tell the policy what we did and update the belief state
+			runPolicy.update(action, observation);
+			beliefTracker.update(action, observation);
+			
+			state = stateNext;
+		}
+		
+		return runValue;
+	}
+	
+	private synchronized void recordThreadTime(long nanos) {
+		String threadName = Thread.currentThread().getName();
+		Double time = threadTimes.get(threadName);
+		threadTimes.put(threadName, (time == null ? 0.0 : time) + nanos * 0.000000001);
+	}
+	
 	public double getMeanDiscountedValue() {
 		assert simulationDone;
 		return meanDiscountedValue;
 	}
 	
+	/**
+	 * Get the standard error of the mean discounted value, computed by the last simulation
+	 * @return standard error
+	 */
+	public double getStandardError() {
+		assert simulationDone;
+		return standardError;
+	}
+	
+	/**
+	 * Get the 95% confidence interval of the mean discounted value, computed by the last simulation
+	 * @return array containing the lower and upper bound
+	 */
+	public double[] getConfidenceInterval() {
+		assert simulationDone;
+		return new double[]{meanDiscountedValue - 1.96 * standardError, meanDiscountedValue + 1.96 * standardError};
+	}
+	
+	/**
+	 * Get the simulation time of each thread used by the last parallel simulation
+	 * @return map containing the time in seconds for each thread name
+	 */
+	public Map<String,Double> getThreadTimes() {
+		assert simulationDone;
+		return threadTimes;
+	}
+	
 	public static void main(String[] args) {
 		POMDP pomdp = Parser.readPOMDP("domains/partpainting.POMDP");
 		PolicyVector policyVector = PolicyVector.readFile("output/partpainting.alpha");
 		PolicyFSC policyFSC = PolicyFSC.createFSC(pomdp, "output/partpainting.alpha", "output/partpainting.pg");
 		
+		int numThreads = Runtime.getRuntime().availableProcessors();
+		
 		PolicySimulator simVector = new PolicySimulator(pomdp, policyVector, new Random(4353));
-		simVector.run(50000, 200);
+		simVector.runParallel(50000, 200, 4353, numThreads);
 		
 		PolicySimulator simGraph = new PolicySimulator(pomdp, policyFSC, new Random(234));
-		simGraph.run(50000, 200);
+		simGraph.runParallel(50000, 200, 234, numThreads);
 		
-		System.out.println("Expected value vector: "+simVector.getMeanDiscountedValue());
-		System.out.println("Expected value graph: "+simGraph.getMeanDiscountedValue());
+		double[] ciVector = simVector.getConfidenceInterval();
+		double[] ciGraph = simGraph.getConfidenceInterval();
+		System.out.println("Expected value vector: "+simVector.getMeanDiscountedValue()+" (95% CI "+ciVector[0]+" - "+ciVector[1]+")");
+		System.out.println("Expected value graph: "+simGraph.getMeanDiscountedValue()+" (95% CI "+ciGraph[0]+" - "+ciGraph[1]+")");
+		System.out.println("Thread times vector: "+simVector.getThreadTimes());
+		System.out.println("Thread times graph: "+simGraph.getThreadTimes());
 	}
 	
 }
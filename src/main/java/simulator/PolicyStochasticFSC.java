@@ -0,0 +1,139 @@
+/*******************************************************************************
+ * SolvePOMDP
+ * Copyright (C) 2017 Erwin Walraven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package simulator;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.Random;
+import java.util.Scanner;
+
+import program.POMDP;
+
+import solver.BeliefPoint;
+
+public class PolicyStochasticFSC implements Policy {
+	private int numNodes;
+	private int initialNode;
+	private double[][] actionProbs;          // probability of action a at node n at index [n][a]
+	private double[][][][] successorProbs;   // probability of successor n' after executing a and observing o at node n at index [n][a][o][n']
+	private Random rnd;
+	
+	private int currentNode;
+	
+	public PolicyStochasticFSC(int numNodes, int initialNode, double[][] actionProbs, double[][][][] successorProbs, Random rnd) {
+		this.numNodes = numNodes;
+		this.initialNode = initialNode;
+		this.actionProbs = actionProbs;
+		this.successorProbs = successorProbs;
+		this.rnd = rnd;
+		this.currentNode = initialNode;
+	}
+	
+	public int getAction(BeliefPoint b) {
+		// we ignore the given belief point
+		return sample(actionProbs[currentNode]);
+	}
+	
+	public void update(int a, int o) {
+		currentNode = sample(successorProbs[currentNode][a][o]);
+		assert currentNode >= 0 && currentNode < numNodes;
+	}
+	
+	public void reset() {
+		// reset to initial node
+		currentNode = initialNode;
+	}
+	
+	public Policy copy() {
+		return new PolicyStochasticFSC(numNodes, initialNode, actionProbs, successorProbs, new Random(rnd.nextLong()));
+	}
+	
+	/**
+	 * Sample an index from a probability distribution
+	 * @param probs probability distribution
+	 * @return index
+	 */
+	private int sample(double[] probs) {
+		double randomNumber = rnd.nextDouble();
+		int lastIndex = 0;
+		
+		for(int i=0; i<probs.length; i++) {
+			if(probs[i] > 0.0) {
+				lastIndex = i;
+				randomNumber -= probs[i];
+				if(randomNumber < 0.0) return i;
+			}
+		}
+		
+		return lastIndex;
+	}
+	
+	/**
+	 * Read a stochastic finite-state controller from a .fsc file written by bounded policy iteration
+	 * @param pomdp the POMDP for which the controller has been computed
+	 * @param controllerFile the .fsc file
+	 * @param rnd random number generator used to sample actions and successor nodes
+	 * @return the controller
+	 */
+	public static PolicyStochasticFSC readFile(POMDP pomdp, String controllerFile, Random rnd) {
+		int numNodes = 0;
+		int initialNode = 0;
+		double[][] actionProbs = null;
+		double[][][][] successorProbs = null;
+		
+		try {
+			Scanner sc = new Scanner(new File(controllerFile));
+			int node = -1;
+			
+			while(sc.hasNextLine()) {
+				String line = sc.nextLine().trim();
+				if(line.length() == 0) continue;
+				String[] lineSplit = line.split(" ");
+				
+				if(lineSplit[0].equals("controller")) {
+					numNodes = Integer.parseInt(lineSplit[1]);
+					initialNode = Integer.parseInt(lineSplit[2]);
+					actionProbs = new double[numNodes][pomdp.getNumActions()];
+					successorProbs = new double[numNodes][pomdp.getNumActions()][pomdp.getNumObservations()][numNodes];
+				}
+				else if(lineSplit[0].equals("node")) {
+					node = Integer.parseInt(lineSplit[1]);
+				}
+				else if(lineSplit[0].equals("action")) {
+					actionProbs[node][Integer.parseInt(lineSplit[1])] = Double.parseDouble(lineSplit[2]);
+				}
+				else if(lineSplit[0].equals("successor")) {
+					int a = Integer.parseInt(lineSplit[1]);
+					int o = Integer.parseInt(lineSplit[2]);
+					successorProbs[node][a][o][Integer.parseInt(lineSplit[3])] = Double.parseDouble(lineSplit[4]);
+				}
+				else {
+					sc.close();
+					throw new RuntimeException("Unexpected line in controller file: "+line);
+				}
+			}
+			
+			sc.close();
+		} catch (FileNotFoundException e) {
+			e.printStackTrace();
+		}
+		
+		return new PolicyStochasticFSC(numNodes, initialNode, actionProbs, successorProbs, rnd);
+	}
+}
@@ -18,65 +18,121 @@
 
 package simulator;
 
-import java.io.File;
-import java.io.FileNotFoundException;
 import java.util.ArrayList;
-import java.util.Scanner;
 
+import program.POMDP;
 import solver.AlphaVector;
 import solver.BeliefPoint;
+import solver.ValueFunctionReader;
 
 public class PolicyVector implements Policy {
 	private ArrayList<AlphaVector> vectors;
+	private ArrayList<ArrayList<AlphaVector>> stageVectors;     // value function with k+1 stages to go at index k, or null if the policy is stationary
+	private int step = 0;                                       // number of actions executed since the last reset
 	
 	public PolicyVector(ArrayList<AlphaVector> vectors) {
 		this.vectors = vectors;
 	}
 	
 	public int getAction(BeliefPoint b) {
-		int vectorIndex = AlphaVector.getBestVectorIndex(b.getBelief(), vectors);
-		assert vectorIndex >= 0 && vectorIndex < vectors.size();
-		return vectors.get(vectorIndex).getAction();
+		return getAction(b, step);
+	}
+	
+	/**
+	 * Get the action to be executed in belief b at a given step. If the policy is time-indexed, then the action is
+	 * selected using the value function with horizon-step stages to go. The value function with one stage to go is
+	 * used after the horizon.
+	 * @param b belief point
+	 * @param t step, starting at 0
+	 * @return action
+	 */
+	public int getAction(BeliefPoint b, int t) {
+		ArrayList<AlphaVector> stepVectors = vectors;
+		if(stageVectors != null) {
+			int stagesToGo = Math.max(1, stageVectors.size() - t);
+			stepVectors = stageVectors.get(stagesToGo-1);
+		}
+		
+		int vectorIndex = AlphaVector.getBestVectorIndex(b.getBelief(), stepVectors);
+		assert vectorIndex >= 0 && vectorIndex < stepVectors.size();
+		return stepVectors.get(vectorIndex).getAction();
 	}
 
 	public void update(int a, int o) {
-		// dummy
+		step++;
 	}
 
 	public void reset() {
-		// dummy
+		step = 0;
+	}
+	
+	public Policy copy() {
+		// vectors are never modified, so they can be shared
+		PolicyVector policy = new PolicyVector(vectors);
+		policy.stageVectors = stageVectors;
+		return policy;
+	}
+	
+	/**
+	 * Get the vectors defining this policy. For a time-indexed policy these are the vectors of the first step.
+	 * @return vectors
+	 */
+	public ArrayList<AlphaVector> getVectors() {
+		return vectors;
+	}
+	
+	/**
+	 * Check whether the action depends on the number of steps executed
+	 * @return true if the policy is time-indexed
+	 */
+	public boolean isTimeIndexed() {
+		return stageVectors != null;
+	}
+	
+	/**
+	 * Get the horizon of a time-indexed policy
+	 * @return horizon
+	 */
+	public int getHorizon() {
+		assert stageVectors != null;
+		return stageVectors.size();
 	}
 	
 	public static PolicyVector readFile(String file) {
-		ArrayList<AlphaVector> vectors = new ArrayList<AlphaVector>();
-		
-		try {
-			Scanner sc = new Scanner(new File(file));
-			
-			while(sc.hasNextInt()) {
-				// get action
-				int action = sc.nextInt();
-				sc.nextLine();
-				
-				// get line containing doubles
-				String line = sc.nextLine();
-				String[] lineSplit = line.split(" ");
-				double[] vectorEntries = new double[lineSplit.length];
-				
-				for(int i=0; i<lineSplit.length; i++) {
-					vectorEntries[i] = Double.parseDouble(lineSplit[i]);
-				}
-				
-				AlphaVector av = new AlphaVector(vectorEntries);
-				av.setAction(action);
-				vectors.add(av);
-			}
-			
-			sc.close();
-		} catch (FileNotFoundException e) {
-			e.printStackTrace();
-		}		
+		return new PolicyVector(ValueFunctionReader.readFile(file));
+	}
+	
+	/**
+	 * Create a time-indexed policy for a finite-horizon problem
+	 * @param stageVectors list containing the value function with k+1 stages to go at index k
+	 * @return policy
+	 */
+	public static PolicyVector createTimeIndexed(ArrayList<ArrayList<AlphaVector>> stageVectors) {
+		if(stageVectors.size() == 0) {
+			throw new RuntimeException("Time-indexed policy requires at least one stage");
+		}
 		
-		return new PolicyVector(vectors);
+		PolicyVector policy = new PolicyVector(stageVectors.get(stageVectors.size()-1));
+		policy.stageVectors = stageVectors;
+		return policy;
+	}
+	
+	/**
+	 * Read a time-indexed policy from a file written by a finite-horizon solve, in which actions are represented by IDs
+	 * @param file .horizon file
+	 * @return policy
+	 */
+	public static PolicyVector readHorizonFile(String file) {
+		return readHorizonFile(file, null);
+	}
+	
+	/**
+	 * Read a time-indexed policy from a file written by a finite-horizon solve
+	 * @param file .horizon file
+	 * @param pomdp POMDP used to translate action labels into IDs, or null if the file contains action IDs
+	 * @return policy
+	 */
+	public static PolicyVector readHorizonFile(String file, POMDP pomdp) {
+		return createTimeIndexed(ValueFunctionReader.readHorizonFile(file, pomdp));
 	}
 }
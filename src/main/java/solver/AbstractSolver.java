@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * SolvePOMDP
+ * Copyright (C) 2017 Erwin Walraven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+package solver;
+
+/**
+ * Base class of the solvers, which manages the listener and the deadline of the current solve call. A stop requested
+ * while solve is running stops that call, and a stop requested before solve is called stops the next call. The request
+ * is cleared when the deadline of a solve call is created, such that the solver can be reused after it has been stopped.
+ */
+
+public abstract class AbstractSolver implements Solver {
+	protected SolverListener listener;     // listener notified after each stage and LP, or null
+	protected volatile Deadline deadline;     // deadline of the current solve call, or null if no call is running
+	private boolean stopRequested = false;     // true if a stop has been requested while no solve call was running
+	
+	public void setListener(SolverListener listener) {
+		this.listener = listener;
+	}
+	
+	public synchronized void requestStop() {
+		if(deadline != null) {
+			deadline.stop();
+		}
+		else {
+			stopRequested = true;
+		}
+	}
+	
+	/**
+	 * Create the deadline of a solve call, which is stopped immediately if a stop has been requested before the call
+	 * @param startTime start time in milliseconds
+	 * @param timeLimit time limit in seconds
+	 */
+	protected synchronized void startDeadline(long startTime, double timeLimit) {
+		deadline = new Deadline(startTime, timeLimit);
+		
+		if(stopRequested) {
+			deadline.stop();
+			stopRequested = false;
+		}
+	}
+	
+	/**
+	 * Remove the deadline at the end of a solve call
+	 */
+	protected synchronized void endDeadline() {
+		deadline = null;
+	}
+}
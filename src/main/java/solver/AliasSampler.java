@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * SolvePOMDP
+ * Copyright (C) 2017 Erwin Walraven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package solver;
+
+/**
+ * Samples items from a fixed discrete distribution in constant time using Walker's alias method
+ * (construction by Vose 1991). Only items with nonzero probability are stored.
+ */
+
+public class AliasSampler {
+	private int[] items;         // items with nonzero probability
+	private double[] prob;       // probability to keep column i rather than its alias
+	private int[] alias;         // alias of column i
+
+	public AliasSampler(int[] items, double[] probabilities) {
+		assert items.length == probabilities.length;
+
+		// count items with nonzero probability
+		int n = 0;
+		double probabilitySum = 0.0;
+		for(int i=0; i<probabilities.length; i++) {
+			assert probabilities[i] >= 0.0 : "PROB: "+probabilities[i];
+			if(probabilities[i] > 0.0) {
+				n++;
+				probabilitySum += probabilities[i];
+			}
+		}
+		assert n > 0 : "No items with nonzero probability";
+		assert Math.abs(probabilitySum-1.0) < 0.00001 : "No valid probability distribution: "+probabilitySum;
+
+		this.items = new int[n];
+		this.prob = new double[n];
+		this.alias = new int[n];
+
+		// scale probabilities such that the average column has height 1
+		double[] scaled = new double[n];
+		int j = 0;
+		for(int i=0; i<probabilities.length; i++) {
+			if(probabilities[i] > 0.0) {
+				this.items[j] = items[i];
+				scaled[j] = probabilities[i] * n / probabilitySum;
+				j++;
+			}
+		}
+
+		// distribute the mass of large columns over small columns
+		int[] small = new int[n];
+		int[] large = new int[n];
+		int nSmall = 0;
+		int nLarge = 0;
+		for(int i=0; i<n; i++) {
+			if(scaled[i] < 1.0) {
+				small[nSmall++] = i;
+			}
+			else {
+				large[nLarge++] = i;
+			}
+		}
+
+		while(nSmall > 0 && nLarge > 0) {
+			int l = small[--nSmall];
+			int g = large[--nLarge];
+			prob[l] = scaled[l];
+			alias[l] = g;
+			scaled[g] = (scaled[g] + scaled[l]) - 1.0;
+
+			if(scaled[g] < 1.0) {
+				small[nSmall++] = g;
+			}
+			else {
+				large[nLarge++] = g;
+			}
+		}
+
+		// remaining columns are full, up to rounding errors
+		while(nLarge > 0) {
+			int g = large[--nLarge];
+			prob[g] = 1.0;
+			alias[g] = g;
+		}
+		while(nSmall > 0) {
+			int l = small[--nSmall];
+			prob[l] = 1.0;
+			alias[l] = l;
+		}
+	}
+
+	/**
+	 * Sample an item based on the distribution
+	 * @param randomNumber uniform random number in [0,1)
+	 * @return sampled item
+	 */
+	public int sampleItem(double randomNumber) {
+		assert randomNumber >= 0.0 && randomNumber < 1.0;
+
+		// the integer part selects a column, and the fractional part selects the column or its alias
+		double x = randomNumber * items.length;
+		int column = (int) x;
+		if(column >= items.length) column = items.length-1;
+
+		return (x - column) < prob[column] ? items[column] : items[alias[column]];
+	}
+}
@@ -18,13 +18,17 @@
 
 package solver;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 
-public class AlphaVector {
+public class AlphaVector implements Serializable {
+	private static final long serialVersionUID = 1L;
+	
 	private double[] entries;
 	private int originU;
 	private int originW;
 	private int action = -1;             // the action associated with this vector
+	private double[] witness = null;     // belief point where the vector has been found to be useful during pruning, or null
 	
 	// attributes used for construction of policy graph
 	private int index = -1;              // index of the vector that was used to create the backprojection
@@ -186,6 +190,22 @@ public class AlphaVector {
 		action = a;
 	}
 	
+	/**
+	 * Get the witness belief of this vector
+	 * @return belief point where the vector has been found to be useful during pruning, or null if it is unknown
+	 */
+	public double[] getWitness() {
+		return witness;
+	}
+	
+	/**
+	 * Set the witness belief of this vector
+	 * @param b belief point where the vector is useful
+	 */
+	public void setWitness(double[] b) {
+		witness = b;
+	}
+	
 	/**
 	 * Set the index of this vector. It is used in RBIP to define collection indices using original vector indices
 	 * @param i index
@@ -0,0 +1,252 @@
+/*******************************************************************************
+ * SolvePOMDP
+ * Copyright (C) 2017 Erwin Walraven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import program.POMDP;
+
+/**
+ * Back-projections g_kao of the vectors in a value function, which are used by point-based backups. For each action and
+ * observation the vectors are ordered by their maximum entry, which is an upper bound on their value in any belief. A backup
+ * can stop scanning the vectors as soon as this bound is not larger than the best value found, which is effective if the
+ * scan starts from the vector that was maximizing in the previous backup of the same belief. Vectors which are not
+ * maximizing in any of the beliefs that are backed up can be removed before the backups.
+ */
+class BackProjections {
+	private ArrayList<AlphaVector> V;
+	private AlphaVector[][][] gkao;                                  // vector g_kao at index [k][a][o]
+	private double[][][] maxEntries;                                 // maximum entry of g_kao at index [a][o][k]
+	private int[][][] order;                                         // indices k sorted by decreasing maximum entry at index [a][o]
+	private IdentityHashMap<AlphaVector, Integer> vectorIndices;     // index k of each vector in V
+	
+	BackProjections(POMDP pomdp, ArrayList<AlphaVector> V) {
+		int nActions = pomdp.getNumActions();
+		int nObservations = pomdp.getNumObservations();
+		int K = V.size();
+		
+		this.V = V;
+		this.gkao = SolverApproximate.getGkao(pomdp, V);
+		this.maxEntries = new double[nActions][nObservations][K];
+		this.order = new int[nActions][nObservations][];
+		this.vectorIndices = new IdentityHashMap<AlphaVector, Integer>();
+		
+		for(int k=0; k<K; k++) {
+			vectorIndices.put(V.get(k), k);
+		}
+		
+		for(int a=0; a<nActions; a++) {
+			for(int o=0; o<nObservations; o++) {
+				final double[] aoMaxEntries = maxEntries[a][o];
+				Integer[] indices = new Integer[K];
+				
+				for(int k=0; k<K; k++) {
+					double maxEntry = Double.NEGATIVE_INFINITY;
+					for(double entry : gkao[k][a][o].getEntries()) {
+						maxEntry = Math.max(maxEntry, entry);
+					}
+					
+					aoMaxEntries[k] = maxEntry;
+					indices[k] = k;
+				}
+				
+				Arrays.sort(indices, (k1, k2) -> Double.compare(aoMaxEntries[k2], aoMaxEntries[k1]));
+				
+				order[a][o] = new int[K];
+				for(int i=0; i<K; i++) {
+					order[a][o][i] = indices[i];
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Remove the back-projections which are not maximizing in any of the beliefs, such that backups of these beliefs only
+	 * scan the remaining vectors. The maximizing vectors are stored in the beliefs, and the action-observation pairs are
+	 * processed independently by the threads of the executor.
+	 * @param B beliefs
+	 * @param executor executor used to process the action-observation pairs in parallel, or null
+	 * @param threads number of threads of the executor
+	 * @return number of back-projections removed
+	 */
+	int prune(final List<BeliefPoint> B, ExecutorService executor, int threads) {
+		final int nActions = order.length;
+		final int nObservations = order[0].length;
+		final AtomicInteger nextPair = new AtomicInteger(0);
+		final AtomicInteger removed = new AtomicInteger(0);
+		
+		// the maximizing vectors are stored in the beliefs, such that the backups start from the maximizing vector
+		for(BeliefPoint b : B) {
+			if(b.getBackupVectors() == null) {
+				b.setBackupVectors(new AlphaVector[nActions][nObservations]);
+			}
+		}
+		
+		Callable<Void> task = new Callable<Void>() {
+			public Void call() {
+				int pair = nextPair.getAndIncrement();
+				while(pair < nActions * nObservations) {
+					removed.addAndGet(prune(B, pair / nObservations, pair % nObservations));
+					pair = nextPair.getAndIncrement();
+				}
+				
+				return null;
+			}
+		};
+		
+		if(executor == null) {
+			try {
+				task.call();
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		}
+		else {
+			List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+			for(int t=0; t<threads; t++) {
+				tasks.add(task);
+			}
+			
+			try {
+				for(Future<Void> result : executor.invokeAll(tasks)) {
+					result.get();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			} catch (ExecutionException e) {
+				if(e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				throw new RuntimeException(e.getCause());
+			}
+		}
+		
+		return removed.get();
+	}
+	
+	/**
+	 * Remove the back-projections of action a and observation o which are not maximizing in any of the beliefs
+	 * @param B beliefs
+	 * @param a action
+	 * @param o observation
+	 * @return number of back-projections removed
+	 */
+	private int prune(List<BeliefPoint> B, int a, int o) {
+		boolean[] maximizing = new boolean[gkao.length];
+		
+		for(BeliefPoint b : B) {
+			AlphaVector[][] backupVectors = b.getBackupVectors();
+			int k = getBestIndex(a, o, b.getBelief(), getIndex(backupVectors[a][o]));
+			backupVectors[a][o] = V.get(k);
+			maximizing[k] = true;
+		}
+		
+		// the remaining vectors keep their order, such that the scan in getBestIndex can still stop early
+		int[] remaining = new int[order[a][o].length];
+		int nRemaining = 0;
+		for(int k : order[a][o]) {
+			if(maximizing[k]) {
+				remaining[nRemaining] = k;
+				nRemaining++;
+			}
+		}
+		
+		int nRemoved = order[a][o].length - nRemaining;
+		order[a][o] = Arrays.copyOf(remaining, nRemaining);
+		
+		return nRemoved;
+	}
+	
+	/**
+	 * Get the number of vectors in the value function
+	 * @return number of vectors
+	 */
+	int size() {
+		return gkao.length;
+	}
+	
+	/**
+	 * Get back-projection g_kao
+	 * @param k index of the vector in the value function
+	 * @param a action
+	 * @param o observation
+	 * @return vector g_kao
+	 */
+	AlphaVector getVector(int k, int a, int o) {
+		return gkao[k][a][o];
+	}
+	
+	/**
+	 * Get the vector of the value function from which the back-projections with index k have been computed
+	 * @param k index of the vector in the value function
+	 * @return vector
+	 */
+	AlphaVector getSourceVector(int k) {
+		return V.get(k);
+	}
+	
+	/**
+	 * Get the index of a vector in the value function
+	 * @param av vector, which is compared by reference
+	 * @return index of the vector, or -1 if it is not part of the value function
+	 */
+	int getIndex(AlphaVector av) {
+		if(av == null) return -1;
+		Integer k = vectorIndices.get(av);
+		return k == null ? -1 : k;
+	}
+	
+	/**
+	 * Find the back-projection g_kao maximizing the value in belief b. The vectors are scanned in the order of their
+	 * maximum entry, and the scan stops if the maximum entry is not larger than the best value found. After pruning,
+	 * only the remaining vectors are scanned, and the result is only guaranteed to be maximizing for the pruned beliefs.
+	 * @param a action
+	 * @param o observation
+	 * @param b belief
+	 * @param candidate index of a vector which is likely to be maximizing, or -1
+	 * @return index k of the maximizing vector
+	 */
+	int getBestIndex(int a, int o, double[] b, int candidate) {
+		int bestIndex = candidate;
+		double bestValue = candidate == -1 ? Double.NEGATIVE_INFINITY : gkao[candidate][a][o].getDotProduct(b);
+		
+		for(int k : order[a][o]) {
+			if(maxEntries[a][o][k] <= bestValue) break;
+			
+			double value = gkao[k][a][o].getDotProduct(b);
+			if(value > bestValue) {
+				bestValue = value;
+				bestIndex = k;
+			}
+		}
+		
+		assert bestIndex != -1;
+		
+		return bestIndex;
+	}
+}
@@ -18,13 +18,17 @@
 
 package solver;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
-public class BeliefPoint {
+public class BeliefPoint implements Serializable {
+	private static final long serialVersionUID = 1L;
+	
 	private double[] belief;
 	private boolean actionObservationProbInitialized = false;
 	private double[][] aoProbs; // aoProbs[a][o] represents P(o|b,a)
+	private transient AlphaVector[][] backupVectors; // backupVectors[a][o] is the vector whose back-projection was maximizing in the last backup
 	
 	private List<Integer> history = new ArrayList<Integer>();
 	
@@ -155,4 +159,20 @@ public class BeliefPoint {
 		assert aoProbs != null;
 		return aoProbs[a][o];
 	}
+	
+	/**
+	 * Get the vectors whose back-projections were maximizing for each action and observation in the last backup of this belief
+	 * @return vector at index [a][o], or null if the belief has not been backed up
+	 */
+	public AlphaVector[][] getBackupVectors() {
+		return backupVectors;
+	}
+	
+	/**
+	 * Set the vectors whose back-projections were maximizing for each action and observation in the last backup of this belief
+	 * @param backupVectors vector at index [a][o]
+	 */
+	public void setBackupVectors(AlphaVector[][] backupVectors) {
+		this.backupVectors = backupVectors;
+	}
 }
@@ -0,0 +1,291 @@
+/*******************************************************************************
+ * SolvePOMDP
+ * Copyright (C) 2017 Erwin Walraven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package solver;
+
+import java.util.ArrayList;
+
+import program.POMDP;
+
+/**
+ * Bounds on the optimal value function, which are computed using value iteration over the sparse transition function.
+ * The bounds can be used to initialize value functions, to guide point-based search, and to skip the backups of beliefs
+ * whose value cannot be improved.
+ */
+
+public class Bounds {
+	private static final double TOLERANCE = 1e-6;     // iterations stop if the maximum change is below the tolerance times the reward range
+	private static final int FIB_MAX_ITERATIONS = 100;     // maximum number of iterations of the fast informed bound, which are expensive
+	
+	/**
+	 * Compute a lower bound consisting of one vector for each action, which represents the value of executing the action
+	 * forever. Each iteration starts from a lower bound, so the vectors remain a lower bound if the deadline is reached.
+	 * @param pomdp a POMDP object
+	 * @param deadline deadline after which the iterations stop, or null
+	 * @return vectors representing the lower bound
+	 */
+	public static ArrayList<AlphaVector> getBlindPolicyVectors(POMDP pomdp, Deadline deadline) {
+		int nStates = pomdp.getNumStates();
+		int nActions = pomdp.getNumActions();
+		double discount = pomdp.getDiscountFactor();
+		checkDiscountFactor(pomdp);
+		
+		// start from the minimum reward of each action, such that each iteration yields a lower bound
+		double[][] values = new double[nActions][nStates];
+		for(int a=0; a<nActions; a++) {
+			double minReward = Double.POSITIVE_INFINITY;
+			for(int s=0; s<nStates; s++) {
+				minReward = Math.min(minReward, pomdp.getReward(s, a));
+			}
+			
+			for(int s=0; s<nStates; s++) {
+				values[a][s] = minReward / (1.0 - discount);
+			}
+		}
+		
+		double tolerance = getTolerance(pomdp);
+		double maxChange = Double.POSITIVE_INFINITY;
+		while(maxChange > tolerance && !isExceeded(deadline)) {
+			double[][] newValues = new double[nActions][nStates];
+			maxChange = 0.0;
+			
+			for(int a=0; a<nActions; a++) {
+				for(int s=0; s<nStates; s++) {
+					newValues[a][s] = pomdp.getReward(s, a) + discount * getNextStateValue(pomdp, values[a], s, a);
+					maxChange = Math.max(maxChange, Math.abs(newValues[a][s] - values[a][s]));
+				}
+			}
+			
+			values = newValues;
+		}
+		
+		return createVectors(values);
+	}
+	
+	/**
+	 * Compute an upper bound on the value of each state using value iteration for the underlying fully observable MDP.
+	 * Each iteration starts from an upper bound, so the values remain an upper bound if the deadline is reached.
+	 * @param pomdp a POMDP object
+	 * @param deadline deadline after which the iterations stop, or null
+	 * @return upper bound on the value of each state
+	 */
+	public static double[] getMDPValues(POMDP pomdp, Deadline deadline) {
+		int nStates = pomdp.getNumStates();
+		double discount = pomdp.getDiscountFactor();
+		checkDiscountFactor(pomdp);
+		
+		// start from the maximum reward, such that each iteration yields an upper bound
+		double maxReward = Double.NEGATIVE_INFINITY;
+		for(int s=0; s<nStates; s++) {
+			for(int a=0; a<pomdp.getNumActions(); a++) {
+				maxReward = Math.max(maxReward, pomdp.getReward(s, a));
+			}
+		}
+		
+		double[] values = new double[nStates];
+		for(int s=0; s<nStates; s++) {
+			values[s] = maxReward / (1.0 - discount);
+		}
+		
+		double tolerance = getTolerance(pomdp);
+		double maxChange = Double.POSITIVE_INFINITY;
+		while(maxChange > tolerance && !isExceeded(deadline)) {
+			double[] newValues = new double[nStates];
+			maxChange = 0.0;
+			
+			for(int s=0; s<nStates; s++) {
+				newValues[s] = Double.NEGATIVE_INFINITY;
+				for(int a=0; a<pomdp.getNumActions(); a++) {
+					newValues[s] = Math.max(newValues[s], pomdp.getReward(s, a) + discount * getNextStateValue(pomdp, values, s, a));
+				}
+				maxChange = Math.max(maxChange, Math.abs(newValues[s] - values[s]));
+			}
+			
+			values = newValues;
+		}
+		
+		return values;
+	}
+	
+	/**
+	 * Compute the QMDP upper bound, which assumes that the state becomes fully observable after executing an action
+	 * @param pomdp a POMDP object
+	 * @param deadline deadline after which the iterations stop, or null
+	 * @return vectors representing the upper bound, one for each action
+	 */
+	public static ArrayList<AlphaVector> getQMDPVectors(POMDP pomdp, Deadline deadline) {
+		return createVectors(getQMDPValues(pomdp, getMDPValues(pomdp, deadline)));
+	}
+	
+	/**
+	 * Compute the fast informed bound (Hauskrecht 2000), which is an upper bound that takes the next observation into
+	 * account and which is at least as tight as QMDP. The iterations start from QMDP, and each iteration yields an upper bound,
+	 * such that the number of iterations can be limited.
+	 * @param pomdp a POMDP object
+	 * @param deadline deadline after which the iterations stop, or null
+	 * @return vectors representing the upper bound, one for each action
+	 */
+	public static ArrayList<AlphaVector> getFIBVectors(POMDP pomdp, Deadline deadline) {
+		int nStates = pomdp.getNumStates();
+		int nActions = pomdp.getNumActions();
+		int nObservations = pomdp.getNumObservations();
+		double discount = pomdp.getDiscountFactor();
+		
+		double[][] values = getQMDPValues(pomdp, getMDPValues(pomdp, deadline));
+		
+		double tolerance = getTolerance(pomdp);
+		double maxChange = Double.POSITIVE_INFINITY;
+		for(int iteration=0; iteration<FIB_MAX_ITERATIONS && maxChange > tolerance && !isExceeded(deadline); iteration++) {
+			double[][] newValues = new double[nActions][nStates];
+			maxChange = 0.0;
+			
+			for(int a=0; a<nActions; a++) {
+				for(int s=0; s<nStates; s++) {
+					int[] successors = pomdp.getTransitionSuccessors(s, a);
+					double[] successorProbs = pomdp.getTransitionSuccessorProbabilities(s, a);
+					
+					// compute the value of each next action for each observation, and select the best action per observation
+					double[][] observationValues = new double[nObservations][nActions];
+					for(int i=0; i<successors.length; i++) {
+						int sNext = successors[i];
+						for(int o=0; o<nObservations; o++) {
+							double p = successorProbs[i] * pomdp.getObservationProbability(a, sNext, o);
+							if(p == 0.0) continue;
+							
+							for(int aNext=0; aNext<nActions; aNext++) {
+								observationValues[o][aNext] += p * values[aNext][sNext];
+							}
+						}
+					}
+					
+					double futureValue = 0.0;
+					for(int o=0; o<nObservations; o++) {
+						double maxValue = Double.NEGATIVE_INFINITY;
+						for(int aNext=0; aNext<nActions; aNext++) {
+							maxValue = Math.max(maxValue, observationValues[o][aNext]);
+						}
+						futureValue += maxValue;
+					}
+					
+					newValues[a][s] = pomdp.getReward(s, a) + discount * futureValue;
+					maxChange = Math.max(maxChange, Math.abs(newValues[a][s] - values[a][s]));
+				}
+			}
+			
+			values = newValues;
+		}
+		
+		return createVectors(values);
+	}
+	
+	/**
+	 * Check whether the value of a belief has converged, which is the case if the lower bound is within the tolerance of
+	 * the upper bound. Backups cannot improve the lower bound of such a belief by more than the tolerance.
+	 * @param b belief
+	 * @param lowerBound vectors representing the lower bound
+	 * @param upperBound vectors representing the upper bound
+	 * @param tolerance tolerance
+	 * @return true iff the value of the belief has converged
+	 */
+	public static boolean hasConverged(double[] b, ArrayList<AlphaVector> lowerBound, ArrayList<AlphaVector> upperBound, double tolerance) {
+		return AlphaVector.getValue(b, upperBound) - AlphaVector.getValue(b, lowerBound) <= tolerance;
+	}
+	
+	/**
+	 * Compute the Q-values of the underlying MDP
+	 * @param pomdp a POMDP object
+	 * @param mdpValues value of each state
+	 * @return Q-value of action a in state s at index [a][s]
+	 */
+	private static double[][] getQMDPValues(POMDP pomdp, double[] mdpValues) {
+		double[][] values = new double[pomdp.getNumActions()][pomdp.getNumStates()];
+		
+		for(int a=0; a<pomdp.getNumActions(); a++) {
+			for(int s=0; s<pomdp.getNumStates(); s++) {
+				values[a][s] = pomdp.getReward(s, a) + pomdp.getDiscountFactor() * getNextStateValue(pomdp, mdpValues, s, a);
+			}
+		}
+		
+		return values;
+	}
+	
+	/**
+	 * Create one vector for each action
+	 * @param values entries of the vector of action a at index a
+	 * @return vectors
+	 */
+	private static ArrayList<AlphaVector> createVectors(double[][] values) {
+		ArrayList<AlphaVector> vectors = new ArrayList<AlphaVector>();
+		
+		for(int a=0; a<values.length; a++) {
+			AlphaVector av = new AlphaVector(values[a]);
+			av.setAction(a);
+			vectors.add(av);
+		}
+		
+		return vectors;
+	}
+	
+	/**
+	 * Compute the expected value of the next state after executing a in s
+	 * @param pomdp a POMDP object
+	 * @param values value of each state
+	 * @param s state
+	 * @param a action
+	 * @return expected value
+	 */
+	private static double getNextStateValue(POMDP pomdp, double[] values, int s, int a) {
+		int[] successors = pomdp.getTransitionSuccessors(s, a);
+		double[] successorProbs = pomdp.getTransitionSuccessorProbabilities(s, a);
+		
+		double value = 0.0;
+		for(int i=0; i<successors.length; i++) {
+			value += successorProbs[i] * values[successors[i]];
+		}
+		
+		return value;
+	}
+	
+	/**
+	 * Get the tolerance of the iterations, which is relative to the range of the rewards
+	 * @param pomdp a POMDP object
+	 * @return tolerance
+	 */
+	private static double getTolerance(POMDP pomdp) {
+		double minReward = Double.POSITIVE_INFINITY;
+		double maxReward = Double.NEGATIVE_INFINITY;
+		for(int s=0; s<pomdp.getNumStates(); s++) {
+			for(int a=0; a<pomdp.getNumActions(); a++) {
+				minReward = Math.min(minReward, pomdp.getReward(s, a));
+				maxReward = Math.max(maxReward, pomdp.getReward(s, a));
+			}
+		}
+		
+		return TOLERANCE * (maxReward - minReward);
+	}
+	
+	private static boolean isExceeded(Deadline deadline) {
+		return deadline != null && deadline.isExceeded();
+	}
+	
+	private static void checkDiscountFactor(POMDP pomdp) {
+		if(pomdp.getDiscountFactor() >= 1.0) {
+			throw new RuntimeException("Bounds can only be computed for discount factors below 1");
+		}
+	}
+}
@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * SolvePOMDP
+ * Copyright (C) 2017 Erwin Walraven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package solver;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Random;
+
+import program.POMDP;
+
+/**
+ * State of a solver after completing a stage, which can be written to a binary file and used to resume the solver
+ */
+
+public class Checkpoint implements Serializable {
+	private static final long serialVersionUID = 2L;
+	
+	private String algorithm;                  // type of the solver that created the checkpoint
+	private String instanceName;               // instance solved by the solver
+	private int numStates;                     // number of states of the instance
+	private int numActions;                    // number of actions of the instance
+	private int numObservations;               // number of observations of the instance
+	private int stage;                         // last completed stage
+	private double bellmanDifference;          // value difference after the last completed stage
+	private long elapsedTime;                  // time elapsed since the solver started, in milliseconds
+	private ArrayList<AlphaVector> V;          // value function after the last completed stage
+	private ArrayList<BeliefPoint> B;          // belief points used by point-based solvers, and null otherwise
+	private Random rnd;                        // random number generator used by point-based solvers, and null otherwise
+	
+	public Checkpoint(String algorithm, POMDP pomdp, int stage, double bellmanDifference, long elapsedTime, ArrayList<AlphaVector> V, ArrayList<BeliefPoint> B, Random rnd) {
+		this.algorithm = algorithm;
+		this.instanceName = pomdp.getInstanceName();
+		this.numStates = pomdp.getNumStates();
+		this.numActions = pomdp.getNumActions();
+		this.numObservations = pomdp.getNumObservations();
+		this.stage = stage;
+		this.bellmanDifference = bellmanDifference;
+		this.elapsedTime = elapsedTime;
+		this.V = V;
+		this.B = B;
+		this.rnd = rnd;
+	}
+	
+	public String getAlgorithm() {
+		return algorithm;
+	}
+	
+	public String getInstanceName() {
+		return instanceName;
+	}
+	
+	public int getStage() {
+		return stage;
+	}
+	
+	public double getBellmanDifference() {
+		return bellmanDifference;
+	}
+	
+	public long getElapsedTime() {
+		return elapsedTime;
+	}
+	
+	public ArrayList<AlphaVector> getV() {
+		return V;
+	}
+	
+	public ArrayList<BeliefPoint> getB() {
+		return B;
+	}
+	
+	public Random getRandom() {
+		return rnd;
+	}
+	
+	/**
+	 * Check whether the checkpoint can be used to resume a solver, which requires that it has been created by the same
+	 * type of solver for an instance with the same name and dimensions, and that the vectors and beliefs match the instance
+	 * @param algorithm type of the solver
+	 * @param pomdp a POMDP object
+	 */
+	public void checkCompatible(String algorithm, POMDP pomdp) {
+		if(!this.algorithm.equals(algorithm) || !instanceName.equals(pomdp.getInstanceName())) {
+			throw new RuntimeException("Checkpoint has been created by another solver or for another instance");
+		}
+		
+		if(numStates != pomdp.getNumStates() || numActions != pomdp.getNumActions() || numObservations != pomdp.getNumObservations()) {
+			throw new RuntimeException("Checkpoint has been created for an instance with different numbers of states, actions or observations");
+		}
+		
+		for(AlphaVector av : V) {
+			if(av.size() != numStates || av.getAction() < 0 || av.getAction() >= numActions) {
+				throw new RuntimeException("Checkpoint contains vectors which do not match the instance");
+			}
+		}
+		
+		if(B != null) {
+			for(BeliefPoint b : B) {
+				if(b.getBelief().length != numStates) {
+					throw new RuntimeException("Checkpoint contains beliefs which do not match the instance");
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Get the checkpoint file used for an instance
+	 * @param outputDir output directory
+	 * @param instanceName name of the instance
+	 * @return checkpoint file
+	 */
+	public static String getFilename(String outputDir, String instanceName) {
+		return outputDir+"/"+instanceName+".checkpoint";
+	}
+	
+	/**
+	 * Write the checkpoint to a file. The checkpoint is written to a temporary file first, which is flushed to the disk
+	 * and then replaces the existing checkpoint, such that a crash never leaves a partially written checkpoint.
+	 * @param outputFile checkpoint file
+	 */
+	public void write(String outputFile) {
+		File file = new File(outputFile);
+		File tempFile = new File(outputFile+".tmp");
+		
+		try {
+			FileOutputStream fileOutput = new FileOutputStream(tempFile);
+			ObjectOutputStream output = new ObjectOutputStream(new BufferedOutputStream(fileOutput));
+			output.writeObject(this);
+			output.flush();
+			fileOutput.getChannel().force(true);
+			output.close();
+			
+			try {
+				Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			}
+			catch (AtomicMoveNotSupportedException e) {
+				Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		catch (IOException e) {
+			throw new RuntimeException("Checkpoint could not be written: "+e.getMessage());
+		}
+	}
+	
+	/**
+	 * Read a checkpoint from a file
+	 * @param inputFile checkpoint file
+	 * @return checkpoint, or null if the file does not exist
+	 */
+	public static Checkpoint read(String inputFile) {
+		File file = new File(inputFile);
+		if(!file.exists()) {
+			return null;
+		}
+		
+		try {
+			ObjectInputStream input = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)));
+			Checkpoint checkpoint = (Checkpoint) input.readObject();
+			input.close();
+			return checkpoint;
+		}
+		catch (IOException | ClassNotFoundException e) {
+			throw new RuntimeException("Checkpoint could not be read: "+e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * SolvePOMDP
+ * Copyright (C) 2017 Erwin Walraven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package solver;
+
+/**
+ * Wall-clock deadline which can be checked inside long-running loops, such that a solver can stop during a stage.
+ * The deadline can also be reached early if the caller of the solver requests it to stop.
+ */
+
+public class Deadline {
+	private long deadlineTime;     // deadline in terms of System.nanoTime()
+	private volatile boolean stopped = false;     // true if the deadline has been reached early
+	
+	/**
+	 * Create a deadline relative to a start time
+	 * @param startTime start time in milliseconds, obtained using System.currentTimeMillis()
+	 * @param timeLimit time limit in seconds
+	 */
+	public Deadline(long startTime, double timeLimit) {
+		double remainingNanos = (startTime + timeLimit * 1000.0 - System.currentTimeMillis()) * 1000000.0;
+		
+		// avoid overflow if there is no time limit
+		if(remainingNanos >= Long.MAX_VALUE / 2) {
+			deadlineTime = System.nanoTime() + Long.MAX_VALUE / 2;
+		}
+		else {
+			deadlineTime = System.nanoTime() + (long) remainingNanos;
+		}
+	}
+	
+	/**
+	 * Check whether the deadline has passed
+	 * @return true if the deadline has passed
+	 */
+	public boolean isExceeded() {
+		return stopped || System.nanoTime() - deadlineTime > 0;
+	}
+	
+	/**
+	 * Reach the deadline immediately, which can be called by another thread
+	 */
+	public void stop() {
+		stopped = true;
+	}
+	
+	/**
+	 * Throw an exception if the deadline has passed
+	 */
+	public void check() {
+		if(isExceeded()) {
+			throw new DeadlineExceededException();
+		}
+	}
+}
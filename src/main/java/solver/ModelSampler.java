@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * SolvePOMDP
+ * Copyright (C) 2017 Erwin Walraven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package solver;
+
+import program.POMDP;
+
+/**
+ * Precomputed alias samplers for the initial belief, T(.|s,a) and O(.|a,s') of a POMDP. Samplers
+ * take a uniform random number, such that they can be used with any random number generator.
+ */
+
+public class ModelSampler {
+	private AliasSampler initialStateSampler;
+	private AliasSampler[][] transitionSamplers;     // transitionSamplers[a][s] samples sNext
+	private AliasSampler[][] observationSamplers;    // observationSamplers[a][sNext] samples o
+
+	public ModelSampler(POMDP pomdp) {
+		int nStates = pomdp.getNumStates();
+		int nActions = pomdp.getNumActions();
+		int nObservations = pomdp.getNumObservations();
+
+		int[] states = new int[nStates];
+		for(int s=0; s<nStates; s++) {
+			states[s] = s;
+		}
+
+		int[] observations = new int[nObservations];
+		for(int o=0; o<nObservations; o++) {
+			observations[o] = o;
+		}
+
+		initialStateSampler = new AliasSampler(states, pomdp.getInitialBelief().getBelief());
+
+		transitionSamplers = new AliasSampler[nActions][nStates];
+		observationSamplers = new AliasSampler[nActions][nStates];
+		for(int a=0; a<nActions; a++) {
+			for(int s=0; s<nStates; s++) {
+				transitionSamplers[a][s] = new AliasSampler(pomdp.getTransitionSuccessors(s, a), pomdp.getTransitionSuccessorProbabilities(s, a));
+
+				double[] obsProbs = new double[nObservations];
+				for(int o=0; o<nObservations; o++) {
+					obsProbs[o] = pomdp.getObservationProbability(a, s, o);
+				}
+
+				// states can have an empty observation distribution if they are never reached using a
+				double obsSum = 0.0;
+				for(int o=0; o<nObservations; o++) {
+					obsSum += obsProbs[o];
+				}
+				if(obsSum > 0.0) {
+					observationSamplers[a][s] = new AliasSampler(observations, obsProbs);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sample a state from the initial belief
+	 * @param randomNumber uniform random number in [0,1)
+	 * @return state
+	 */
+	public int sampleInitialState(double randomNumber) {
+		return initialStateSampler.sampleItem(randomNumber);
+	}
+
+	/**
+	 * Sample a state from T(.|s,a)
+	 * @param s state
+	 * @param a action
+	 * @param randomNumber uniform random number in [0,1)
+	 * @return next state
+	 */
+	public int sampleNextState(int s, int a, double randomNumber) {
+		return transitionSamplers[a][s].sampleItem(randomNumber);
+	}
+
+	/**
+	 * Sample an observation from O(.|a,sNext)
+	 * @param a action
+	 * @param sNext state reached after executing a
+	 * @param randomNumber uniform random number in [0,1)
+	 * @return observation
+	 */
+	public int sampleObservation(int a, int sNext, double randomNumber) {
+		assert observationSamplers[a][sNext] != null : "no observation distribution for action "+a+" and state "+sNext;
+		return observationSamplers[a][sNext].sampleItem(randomNumber);
+	}
+}
@@ -45,18 +45,28 @@ public class OutputFileWriter {
 	public static void dumpValueFunction(POMDP pomdp, ArrayList<AlphaVector> vectors, String outputFile, boolean useActionLabels) {
 		try {
 			Writer output = new BufferedWriter(new FileWriter(outputFile));
+			writeVectors(pomdp, vectors, output, useActionLabels);
+			output.close();
+		}
+		catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Write the value functions of a finite-horizon problem to one file. Each value function is preceded by a line
+	 * containing the number of stages to go and the number of vectors.
+	 * @param stageVectors list containing the value function with k+1 stages to go at index k
+	 * @param outputFile output file where values should be written
+	 */
+	public static void dumpHorizonValueFunctions(POMDP pomdp, ArrayList<ArrayList<AlphaVector>> stageVectors, String outputFile, boolean useActionLabels) {
+		try {
+			Writer output = new BufferedWriter(new FileWriter(outputFile));
+			output.write("horizon "+stageVectors.size()+"\n\n");
 			
-			for(AlphaVector a : vectors) {
-				String actionLabel = useActionLabels ? pomdp.getActionLabel(a.getAction()) : a.getAction()+"";
-				
-				output.write(actionLabel+"\n");
-				//assert a.getAction() != -1;
-				
-				for(int i=0; i<a.size(); i++) {
-					output.write(doubleToString(a.getEntry(i)) + " ");
-				}
-				
-				output.write("\n\n");
+			for(int k=0; k<stageVectors.size(); k++) {
+				output.write("stage "+(k+1)+" "+stageVectors.get(k).size()+"\n\n");
+				writeVectors(pomdp, stageVectors.get(k), output, useActionLabels);
 			}
 			
 			output.close();
@@ -66,6 +76,26 @@ public class OutputFileWriter {
 		}
 	}
 	
+	/**
+	 * Write the action and entries of each vector
+	 * @param vectors vector set representing the value function
+	 * @param output writer of the output file
+	 */
+	private static void writeVectors(POMDP pomdp, ArrayList<AlphaVector> vectors, Writer output, boolean useActionLabels) throws IOException {
+		for(AlphaVector a : vectors) {
+			String actionLabel = useActionLabels ? pomdp.getActionLabel(a.getAction()) : a.getAction()+"";
+			
+			output.write(actionLabel+"\n");
+			//assert a.getAction() != -1;
+			
+			for(int i=0; i<a.size(); i++) {
+				output.write(doubleToString(a.getEntry(i)) + " ");
+			}
+			
+			output.write("\n\n");
+		}
+	}
+	
 	/**
 	 * Write a policy graph to a file
 	 * @param vectors vector set representing the value function and policy graph information
@@ -114,4 +144,41 @@ public class OutputFileWriter {
 			e.printStackTrace();
 		}
 	}
+	
+	/**
+	 * Write a stochastic finite-state controller to a file. The file starts with the number of nodes and the initial node,
+	 * followed by the action probabilities of each node and the successor probabilities of each action and observation.
+	 * @param actionProbs probability of action a at node n at index [n][a]
+	 * @param successorProbs probability of successor n' after executing a and observing o at node n at index [n][a][o][n']
+	 * @param initialNode node in which the controller starts
+	 * @param outputFile output file where the controller should be written
+	 */
+	public static void dumpStochasticController(double[][] actionProbs, double[][][][] successorProbs, int initialNode, String outputFile) {
+		try {
+			Writer output = new BufferedWriter(new FileWriter(outputFile));
+			output.write("controller "+actionProbs.length+" "+initialNode+"\n");
+			
+			for(int n=0; n<actionProbs.length; n++) {
+				output.write("\nnode "+n+"\n");
+				
+				for(int a=0; a<actionProbs[n].length; a++) {
+					if(actionProbs[n][a] == 0.0) continue;
+					output.write("action "+a+" "+doubleToString(actionProbs[n][a])+"\n");
+					
+					for(int o=0; o<successorProbs[n][a].length; o++) {
+						for(int nNext=0; nNext<successorProbs[n][a][o].length; nNext++) {
+							if(successorProbs[n][a][o][nNext] > 0.0) {
+								output.write("successor "+a+" "+o+" "+nNext+" "+doubleToString(successorProbs[n][a][o][nNext])+"\n");
+							}
+						}
+					}
+				}
+			}
+			
+			output.close();
+		}
+		catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
 }
@@ -0,0 +1,210 @@
+/*******************************************************************************
+ * SolvePOMDP
+ * Copyright (C) 2017 Erwin Walraven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package solver;
+
+import java.util.ArrayList;
+
+/**
+ * Upper bound on the optimal value function, represented by values of the corners of the belief simplex and a set of
+ * belief points with values. The bound is evaluated using the sawtooth approximation (Hauskrecht 2000). Optionally, the
+ * bound is also limited by a set of upper bound vectors, such as the fast informed bound.
+ */
+
+public class SawtoothUpperBound {
+	private double[] cornerValues;                                     // upper bound on the value of each state
+	private ArrayList<int[]> pointSupports = new ArrayList<int[]>();           // states with positive probability in each belief point
+	private ArrayList<double[]> pointProbabilities = new ArrayList<double[]>(); // probabilities of the states in the support of each belief point
+	private ArrayList<Double> pointValues = new ArrayList<Double>();           // upper bound on the value of each belief point
+	private ArrayList<AlphaVector> vectors = new ArrayList<AlphaVector>();     // vectors of which the maximum is an upper bound
+	
+	/**
+	 * Create an upper bound defined by the values of the corners of the belief simplex
+	 * @param cornerValues upper bound on the value of each state
+	 */
+	public SawtoothUpperBound(double[] cornerValues) {
+		this.cornerValues = cornerValues.clone();
+	}
+	
+	/**
+	 * Create an upper bound defined by a set of vectors, of which the maximum at each belief is an upper bound
+	 * @param vectors upper bound vectors, e.g. computed using Bounds.getFIBVectors
+	 */
+	public SawtoothUpperBound(ArrayList<AlphaVector> vectors) {
+		assert vectors.size() > 0;
+		
+		this.cornerValues = new double[vectors.get(0).size()];
+		for(int s=0; s<cornerValues.length; s++) {
+			cornerValues[s] = Double.NEGATIVE_INFINITY;
+			for(AlphaVector av : vectors) {
+				cornerValues[s] = Math.max(cornerValues[s], av.getEntry(s));
+			}
+		}
+		
+		this.vectors.addAll(vectors);
+	}
+	
+	/**
+	 * Get the upper bound on the value of a belief
+	 * @param b belief
+	 * @return upper bound
+	 */
+	public double getValue(double[] b) {
+		return getValue(b, -1);
+	}
+	
+	/**
+	 * Get the upper bound on the value of a belief, while ignoring one of the belief points
+	 * @param b belief
+	 * @param skipIndex index of the belief point to be ignored, or -1
+	 * @return upper bound
+	 */
+	private double getValue(double[] b, int skipIndex) {
+		double cornerValue = 0.0;
+		for(int s=0; s<b.length; s++) {
+			cornerValue += b[s] * cornerValues[s];
+		}
+		
+		double value = cornerValue;
+		if(vectors.size() > 0) {
+			value = Math.min(value, AlphaVector.getValue(b, vectors));
+		}
+		
+		for(int i=0; i<pointSupports.size(); i++) {
+			if(i == skipIndex) continue;
+			
+			int[] support = pointSupports.get(i);
+			double[] probabilities = pointProbabilities.get(i);
+			
+			// determine the largest scaling of the belief point that fits below b
+			double phi = Double.POSITIVE_INFINITY;
+			for(int j=0; j<support.length && phi > 0.0; j++) {
+				phi = Math.min(phi, b[support[j]] / probabilities[j]);
+			}
+			
+			if(phi > 0.0) {
+				// the corner values may have changed after adding the point, so the interpolation is computed here
+				double pointCornerValue = 0.0;
+				for(int j=0; j<support.length; j++) {
+					pointCornerValue += probabilities[j] * cornerValues[support[j]];
+				}
+				
+				value = Math.min(value, cornerValue + phi * (pointValues.get(i) - pointCornerValue));
+			}
+		}
+		
+		return value;
+	}
+	
+	/**
+	 * Add a belief with an upper bound on its value. The belief is only added if it improves the bound.
+	 * @param b belief
+	 * @param value upper bound on the value of b
+	 * @return true if the bound has been improved
+	 */
+	public boolean add(double[] b, double value) {
+		if(value >= getValue(b)) {
+			return false;
+		}
+		
+		// count the states in the support, and update the value of a state directly if b is a corner
+		int supportSize = 0;
+		int lastState = -1;
+		for(int s=0; s<b.length; s++) {
+			if(b[s] > 0.0) {
+				supportSize++;
+				lastState = s;
+			}
+		}
+		
+		if(supportSize == 1) {
+			cornerValues[lastState] = value;
+			return true;
+		}
+		
+		int[] support = new int[supportSize];
+		double[] probabilities = new double[supportSize];
+		int j = 0;
+		for(int s=0; s<b.length; s++) {
+			if(b[s] > 0.0) {
+				support[j] = s;
+				probabilities[j] = b[s];
+				j++;
+			}
+		}
+		
+		pointSupports.add(support);
+		pointProbabilities.add(probabilities);
+		pointValues.add(value);
+		
+		return true;
+	}
+	
+	/**
+	 * Remove the belief points that do not improve the bound defined by the other points
+	 * @return number of removed points
+	 */
+	public int prune() {
+		int removed = 0;
+		
+		for(int i=pointSupports.size()-1; i>=0; i--) {
+			if(pointValues.get(i) >= getValue(getBelief(i), i)) {
+				pointSupports.remove(i);
+				pointProbabilities.remove(i);
+				pointValues.remove(i);
+				removed++;
+			}
+		}
+		
+		return removed;
+	}
+	
+	/**
+	 * Get the dense representation of belief point i
+	 * @param i index of the belief point
+	 * @return belief
+	 */
+	private double[] getBelief(int i) {
+		double[] b = new double[cornerValues.length];
+		int[] support = pointSupports.get(i);
+		double[] probabilities = pointProbabilities.get(i);
+		
+		for(int j=0; j<support.length; j++) {
+			b[support[j]] = probabilities[j];
+		}
+		
+		return b;
+	}
+	
+	/**
+	 * Get the upper bound on the value of a state
+	 * @param s state
+	 * @return upper bound
+	 */
+	public double getCornerValue(int s) {
+		return cornerValues[s];
+	}
+	
+	/**
+	 * Get the number of belief points, excluding the corners
+	 * @return number of belief points
+	 */
+	public int size() {
+		return pointSupports.size();
+	}
+}
@@ -41,6 +41,24 @@ public interface Solver {
 	 */
 	public ArrayList<AlphaVector> solve(POMDP pomdp);
 	
+	/**
+	 * Set the value function from which the next call to solve starts, instead of the immediate reward vectors
+	 * @param V initial value function, or null to start from the immediate reward vectors
+	 */
+	public void setInitialValueFunction(ArrayList<AlphaVector> V);
+	
+	/**
+	 * Set the listener which is notified after each stage and each LP of the next calls to solve
+	 * @param listener listener, or null if no listener should be notified
+	 */
+	public void setListener(SolverListener listener);
+	
+	/**
+	 * Request the solver to stop, which can be called by another thread or by the listener. The solver stops in the same
+	 * way as when the time limit is reached, and solve returns the value function computed so far. If solve is not running,
+	 * then the next call to solve stops immediately. Later calls to solve are not affected by the request.
+	 */
+	public void requestStop();
 
 	/**
 	 * Get expected value of the solution
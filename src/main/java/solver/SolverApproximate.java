@@ -19,20 +19,28 @@
 package solver;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import program.POMDP;
 import program.SolverProperties;
+import profiling.StageEvent;
 
 /**
  * Solving POMDPs using point-based value iteration
  */
 
-public class SolverApproximate implements Solver {	
+public class SolverApproximate extends AbstractSolver {	
 	private Random rnd;
 	private SolverProperties sp;
+	private SolverStatistics stats;     // statistics of the last solve call, or null if statistics are not collected
+	private ArrayList<AlphaVector> initialV;     // value function used instead of the blind policy vectors, or null
+	private ExecutorService pruneExecutor;     // threads pruning the gao vectors in the current solve call, or null
+	private ArrayList<AlphaVector> upperBound;     // upper bound used to skip beliefs whose value has converged, or null
 	private long totalSolveTime = 0;
 	private double expectedValue;
 	
@@ -49,27 +57,25 @@ public class SolverApproximate implements Solver {
 		return totalSolveTime * 0.001;
 	}
 	
-	private ArrayList<BeliefPoint> getBeliefPoints(POMDP pomdp) {
+	ArrayList<BeliefPoint> getBeliefPoints(POMDP pomdp) {
 		ArrayList<BeliefPoint> B = new ArrayList<BeliefPoint>();
 		HashSet<BeliefPoint> Bset = new HashSet<BeliefPoint>();
 		B.add(pomdp.getInitialBelief());
 		Bset.add(pomdp.getInitialBelief());
 		
+		ModelSampler modelSampler = pomdp.getModelSampler();
+		
 		for(int run=0; run<sp.getBeliefSamplingRuns(); run++) {
 			BeliefPoint b = pomdp.getInitialBelief();
 			
+			// simulate a hidden state, such that observations are sampled from P(o|b,a) without computing it
+			int state = modelSampler.sampleInitialState(rnd.nextDouble());
+			
 			for(int step=0; step<sp.getBeliefSamplingSteps(); step++) {
-				pomdp.prepareBelief(b);
-				
 				// select action and observation
 				int action = rnd.nextInt(pomdp.getNumActions());
-				ProbabilitySample ps = new ProbabilitySample(rnd);
-				for(int o=0; o<pomdp.getNumObservations(); o++) {
-					double prob = b.getActionObservationProbability(action, o);
-					if(prob > 1.0) prob = 1.0;
-					ps.addItem(o, prob);
-				}
-				int observation = ps.sampleItem();
+				state = modelSampler.sampleNextState(state, action, rnd.nextDouble());
+				int observation = modelSampler.sampleObservation(action, state, rnd.nextDouble());
 				
 				// find new belief point
 				BeliefPoint bao = pomdp.updateBelief(b, action, observation);
@@ -97,48 +103,52 @@ public class SolverApproximate implements Solver {
 		return B;
 	}
 	
-	private ArrayList<AlphaVector> backupStage(POMDP pomdp, ArrayList<AlphaVector> immediateRewards, ArrayList<AlphaVector> V, ArrayList<BeliefPoint> B) {
-		int nStates = pomdp.getNumStates();
-		int nActions = pomdp.getNumActions();
-		int nObservations = pomdp.getNumObservations();
-		
+	ArrayList<AlphaVector> backupStage(POMDP pomdp, ArrayList<AlphaVector> immediateRewards, ArrayList<AlphaVector> V, ArrayList<BeliefPoint> B) {
 		ArrayList<AlphaVector> Vnext = new ArrayList<AlphaVector>();
 		List<BeliefPoint> Btilde = new ArrayList<BeliefPoint>();
-		Btilde.addAll(B);
 		
-		// initialize gao vectors
-		AlphaVector[][][] gkao = new AlphaVector[V.size()][nActions][nObservations];
-		for(int k=0; k<V.size(); k++) {
-			for(int a=0; a<nActions; a++) {
-				for(int o=0; o<nObservations; o++) {
-					double[] entries = new double[nStates];
-					
-					for(int s=0; s<nStates; s++) {
-						double val = 0.0;
-						
-						for(int sPrime=0; sPrime<nStates; sPrime++) {
-							val += pomdp.getObservationProbability(a, sPrime, o) * pomdp.getTransitionProbability(s, a, sPrime) * V.get(k).getEntry(sPrime);
-						}
-						
-						entries[s] = val;
-					}
-					
-					AlphaVector av = new AlphaVector(entries);
-					av.setAction(a);
-					gkao[k][a][o] = av;
-				}
+		// beliefs whose value has converged to the upper bound are not backed up, and they keep their best vector
+		for(BeliefPoint b : B) {
+			if(upperBound != null && Bounds.hasConverged(b.getBelief(), V, upperBound, sp.getValueFunctionTolerance())) {
+				AlphaVector alpha = V.get(AlphaVector.getBestVectorIndex(b.getBelief(), V));
+				if(!Vnext.contains(alpha)) Vnext.add(alpha);
+				if(stats != null) stats.increment(SolverStatistics.PRUNED_BELIEFS);
+			}
+			else {
+				Btilde.add(b);
 			}
 		}
-		assert gkao.length == V.size();
+		
+		// initialize gao vectors
+		long startTime = System.nanoTime();
+		BackProjections gkao = new BackProjections(pomdp, V);
+		if(stats != null) stats.addTime(SolverStatistics.TIME_BACKPROJECTION, startTime);
+		
+		// remove the gao vectors which are not used by the backups of the belief points, which pays off if V is large
+		if(V.size() > sp.getGaoPruningThreshold()) {
+			startTime = System.nanoTime();
+			gkao.prune(Btilde, pruneExecutor, sp.getBackupThreads());
+			if(stats != null) stats.addTime(SolverStatistics.TIME_PRUNE_GAO, startTime);
+		}
 		
 		// run the backup stage
+		startTime = System.nanoTime();
 		while(Btilde.size() > 0) {
+			// if the time limit is reached, then the vectors of V are added to the partial value function to keep all belief values
+			if(deadline != null && deadline.isExceeded()) {
+				for(AlphaVector av : V) {
+					if(!Vnext.contains(av)) Vnext.add(av);
+				}
+				break;
+			}
+			
 			// sample a belief point uniformly at random
 			int beliefIndex = rnd.nextInt(Btilde.size());
 			BeliefPoint b = Btilde.get(beliefIndex);
 			
 			// compute backup(b)
 			AlphaVector alpha = backup(pomdp, immediateRewards, gkao, b);
+			if(stats != null) stats.increment(SolverStatistics.BACKUPS);
 			
 			// check if we need to add alpha
 			double oldValue = AlphaVector.getValue(b.getBelief(), V);
@@ -168,33 +178,146 @@ public class SolverApproximate implements Solver {
 			Btilde = newBtilde;
 		}
 		
+		if(stats != null) stats.addTime(SolverStatistics.TIME_BACKUP, startTime);
+		
 		return Vnext;
 	}
 	
-	private AlphaVector backup(POMDP pomdp, List<AlphaVector> immediateRewards, AlphaVector[][][] gkao, BeliefPoint b) {
+	/**
+	 * Compute the back-projections g_kao of the vectors in V
+	 * @param pomdp a POMDP object
+	 * @param V value function
+	 * @return array containing vector g_kao at index [k][a][o]
+	 */
+	static AlphaVector[][][] getGkao(POMDP pomdp, ArrayList<AlphaVector> V) {
 		int nStates = pomdp.getNumStates();
 		int nActions = pomdp.getNumActions();
 		int nObservations = pomdp.getNumObservations();
 		
+		AlphaVector[][][] gkao = new AlphaVector[V.size()][nActions][nObservations];
+		for(int k=0; k<V.size(); k++) {
+			for(int a=0; a<nActions; a++) {
+				for(int o=0; o<nObservations; o++) {
+					double[] entries = new double[nStates];
+					
+					for(int s=0; s<nStates; s++) {
+						double val = 0.0;
+						
+						for(int sPrime=0; sPrime<nStates; sPrime++) {
+							val += pomdp.getObservationProbability(a, sPrime, o) * pomdp.getTransitionProbability(s, a, sPrime) * V.get(k).getEntry(sPrime);
+						}
+						
+						entries[s] = val;
+					}
+					
+					AlphaVector av = new AlphaVector(entries);
+					av.setAction(a);
+					gkao[k][a][o] = av;
+				}
+			}
+		}
+		assert gkao.length == V.size();
+		
+		return gkao;
+	}
+	
+	/**
+	 * Perseus requires that backups never decrease the value of the belief points. An initial value function V for which
+	 * V(b) - HV(b) <= delta holds for all b in B satisfies this requirement after subtracting delta / (1 - discount) from
+	 * all vectors, because H(V - c) = HV - discount * c. If the discount factor is 1, then no shift satisfies the
+	 * requirement, and an initial value function which violates it cannot be used.
+	 * @param pomdp a POMDP object
+	 * @param immediateRewards immediate reward vectors
+	 * @param V initial value function
+	 * @param B belief points
+	 * @return V if it satisfies the requirement, and a shifted copy of V otherwise
+	 */
+	private ArrayList<AlphaVector> getSafeInitialValueFunction(POMDP pomdp, ArrayList<AlphaVector> immediateRewards, ArrayList<AlphaVector> V, ArrayList<BeliefPoint> B) {
+		BackProjections gkao = new BackProjections(pomdp, V);
+		
+		double maxViolation = 0.0;
+		for(BeliefPoint b : B) {
+			AlphaVector alpha = backup(pomdp, immediateRewards, gkao, b);
+			maxViolation = Math.max(maxViolation, AlphaVector.getValue(b.getBelief(), V) - alpha.getDotProduct(b.getBelief()));
+		}
+		
+		if(maxViolation <= 0.0) {
+			return V;
+		}
+		
+		if(pomdp.getDiscountFactor() >= 1.0) {
+			throw new RuntimeException("Initial value function is not a lower bound, and it cannot be shifted because the discount factor is 1");
+		}
+		
+		double shift = maxViolation / (1.0 - pomdp.getDiscountFactor());
+		System.out.println("Initial value function is not a lower bound, vectors are shifted by "+(-shift));
+		
+		ArrayList<AlphaVector> shiftedV = new ArrayList<AlphaVector>();
+		for(AlphaVector av : V) {
+			double[] entries = new double[av.size()];
+			for(int s=0; s<av.size(); s++) {
+				entries[s] = av.getEntry(s) - shift;
+			}
+			
+			AlphaVector shifted = new AlphaVector(entries);
+			shifted.setAction(av.getAction());
+			shiftedV.add(shifted);
+		}
+		
+		return shiftedV;
+	}
+	
+	/**
+	 * Compute the upper bound which is used to skip the backups of beliefs whose value has converged
+	 * @param pomdp a POMDP object
+	 * @param sp solver properties defining the type of upper bound
+	 * @param deadline deadline after which the iterations of the bound stop
+	 * @return vectors representing the upper bound, or null if beliefs are not skipped
+	 */
+	static ArrayList<AlphaVector> getBeliefPruningBound(POMDP pomdp, SolverProperties sp, Deadline deadline) {
+		if(sp.getBeliefPruningBound().equals("none")) {
+			return null;
+		}
+		
+		if(pomdp.getDiscountFactor() >= 1.0) {
+			System.out.println("Upper bound is not computed because the discount factor is 1, beliefs are not skipped");
+			return null;
+		}
+		
+		long startTime = System.currentTimeMillis();
+		System.out.println("Computing upper bound: "+sp.getBeliefPruningBound());
+		ArrayList<AlphaVector> upperBound = sp.getBeliefPruningBound().equals("qmdp") ? Bounds.getQMDPVectors(pomdp, deadline) : Bounds.getFIBVectors(pomdp, deadline);
+		System.out.println("Upper bound computed in "+((System.currentTimeMillis() - startTime) * 0.001)+" sec");
+		
+		return upperBound;
+	}
+	
+	/**
+	 * Compute the vector obtained by a point-based backup of belief b
+	 * @param pomdp a POMDP object
+	 * @param immediateRewards immediate reward vectors
+	 * @param gkao back-projections of the vectors in V
+	 * @param b belief
+	 * @return vector maximizing the backed-up value in b
+	 */
+	static AlphaVector backup(POMDP pomdp, List<AlphaVector> immediateRewards, BackProjections gkao, BeliefPoint b) {
+		int nStates = pomdp.getNumStates();
+		int nActions = pomdp.getNumActions();
+		int nObservations = pomdp.getNumObservations();
+		AlphaVector[][] previousVectors = b.getBackupVectors();
+		AlphaVector[][] backupVectors = new AlphaVector[nActions][nObservations];
+		
 		List<AlphaVector> ga = new ArrayList<AlphaVector>();
 		
 		for(int a=0; a<nActions; a++) {
 			List<AlphaVector> oVectors = new ArrayList<AlphaVector>();
 			for(int o=0; o<nObservations; o++) {
-				double maxVal = Double.NEGATIVE_INFINITY;
-				AlphaVector maxVector = null;
+				// the vector which was maximizing in the previous backup of b is used as the first candidate
+				int candidate = previousVectors == null ? -1 : gkao.getIndex(previousVectors[a][o]);
+				int k = gkao.getBestIndex(a, o, b.getBelief(), candidate);
 				
-				int K = gkao.length;
-				for(int k=0; k<K; k++) {
-					double product = gkao[k][a][o].getDotProduct(b.getBelief());
-					if(product > maxVal) {
-						maxVal = product;
-						maxVector = gkao[k][a][o];
-					}
-				}
-				
-				assert maxVector != null;
-				oVectors.add(maxVector);
+				backupVectors[a][o] = gkao.getSourceVector(k);
+				oVectors.add(gkao.getVector(k, a, o));
 			}
 			
 			assert oVectors.size() > 0;
@@ -218,6 +341,7 @@ public class SolverApproximate implements Solver {
 		}
 		
 		assert ga.size() == nActions;
+		b.setBackupVectors(backupVectors);
 		
 		// find the maximizing vector
 		double maxVal = Double.NEGATIVE_INFINITY;
@@ -234,6 +358,10 @@ public class SolverApproximate implements Solver {
 		return vFinal;
 	}
 
+	public void setInitialValueFunction(ArrayList<AlphaVector> V) {
+		this.initialV = V;
+	}
+	
 	public ArrayList<AlphaVector> solve(POMDP pomdp) {		
 		int nStates = pomdp.getNumStates();
 		int nActions = pomdp.getNumActions();
@@ -241,13 +369,29 @@ public class SolverApproximate implements Solver {
 		System.out.println();
 		System.out.println("=== RUN POMDP SOLVER ===");
 		System.out.println("Algorithm: Perseus (point-based value iteration)");
-		System.out.println("Belief sampling started...");
 		
-		ArrayList<BeliefPoint> B = getBeliefPoints(pomdp);
+		stats = sp.dumpStatistics() ? new SolverStatistics() : null;
+		
+		// continue from the last checkpoint if requested, which also restores the belief points and the random number generator
+		String checkpointFile = Checkpoint.getFilename(sp.getOutputDir(), pomdp.getInstanceName());
+		Checkpoint checkpoint = sp.resume() ? Checkpoint.read(checkpointFile) : null;
+		if(checkpoint != null) {
+			checkpoint.checkCompatible(getType(), pomdp);
+		}
+		
+		ArrayList<BeliefPoint> B;
+		if(checkpoint == null) {
+			System.out.println("Belief sampling started...");
+			B = getBeliefPoints(pomdp);
+		}
+		else {
+			B = checkpoint.getB();
+			rnd = checkpoint.getRandom();
+		}
 		System.out.println("Number of beliefs: "+B.size());
 		System.out.println();
 		
-		// create initial vector set and vectors defining immediate rewards
+		// create vectors defining immediate rewards, which are also the initial vector set if the discount factor is 1
 		ArrayList<AlphaVector> V = new ArrayList<AlphaVector>();
 		ArrayList<AlphaVector> immediateRewards = new ArrayList<AlphaVector>();
 		for(int a=0; a<nActions; a++) {
@@ -262,37 +406,104 @@ public class SolverApproximate implements Solver {
 		}
 		
 		int stage = 1;
-
-		System.out.println("Stage 1: "+V.size()+" vectors");
+		long startTime = System.currentTimeMillis();
 		
-		OutputFileWriter.dumpValueFunction(pomdp, V, sp.getOutputDir()+"/"+pomdp.getInstanceName()+".alpha"+stage, sp.dumpActionLabels());
+		boolean blindPolicies = false;
+		if(checkpoint == null && initialV != null) {
+			SolverExact.checkValueFunction(pomdp, initialV);
+			V = getSafeInitialValueFunction(pomdp, immediateRewards, initialV, B);
+		}
+		else if(checkpoint == null && pomdp.getDiscountFactor() < 1.0) {
+			// blind policy vectors are a lower bound which backups never decrease, unlike the immediate reward vectors
+			V = Bounds.getBlindPolicyVectors(pomdp, new Deadline(startTime, sp.getTimeLimit()));
+			blindPolicies = true;
+		}
 		
-		// run the backup stages
-		long startTime = System.currentTimeMillis();
-		while(true) {
-			stage++;
-			
-			ArrayList<AlphaVector> Vnext = backupStage(pomdp, immediateRewards, V, B);
-			double valueDifference = getValueDifference(B, V, Vnext);
-			double elapsed = (System.currentTimeMillis() - startTime) * 0.001;
-			System.out.println("Stage "+stage+": "+Vnext.size()+" vectors, diff "+valueDifference+", time elapsed "+elapsed+" sec");
-			
-			V = Vnext;
+		// the upper bound is used to detect beliefs whose value cannot be improved by backups
+		upperBound = getBeliefPruningBound(pomdp, sp, new Deadline(startTime, sp.getTimeLimit()));
+		
+		if(checkpoint == null) {
+			String initialDescription = initialV != null ? " (initial value function)" : (blindPolicies ? " (blind policies)" : "");
+			System.out.println("Stage 1: "+V.size()+" vectors"+initialDescription);
+			if(stats != null) stats.endStage(stage, V.size(), Double.POSITIVE_INFINITY, 0.0);
+			if(listener != null) listener.onStageComplete(stage, Collections.unmodifiableList(V), Double.POSITIVE_INFINITY, 0.0, 0.0);
 			
 			OutputFileWriter.dumpValueFunction(pomdp, V, sp.getOutputDir()+"/"+pomdp.getInstanceName()+".alpha"+stage, sp.dumpActionLabels());
+		}
+		else {
+			V = checkpoint.getV();
+			stage = checkpoint.getStage();
+			startTime -= checkpoint.getElapsedTime();
+			System.out.println("Resumed from checkpoint: stage "+stage+", "+V.size()+" vectors, diff "+checkpoint.getBellmanDifference());
+		}
+		
+		// the time limit is also checked inside backup stages, such that long stages can be interrupted
+		startDeadline(startTime, sp.getTimeLimit());
+		
+		if(sp.getBackupThreads() > 1) {
+			pruneExecutor = Executors.newFixedThreadPool(sp.getBackupThreads());
+		}
+		
+		// run the backup stages
+		try {
+			while(true) {
+				stage++;
+				StageEvent stageEvent = new StageEvent();
+				stageEvent.begin();
+				long stageStartTime = System.currentTimeMillis();
+				
+				ArrayList<AlphaVector> Vnext = backupStage(pomdp, immediateRewards, V, B);
+				double valueDifference = getValueDifference(B, V, Vnext);
+				if(deadline.isExceeded()) {
+					System.out.println("Time limit reached during stage "+stage+", using partial value function of stage "+stage);
+				}
+				
+				if(stageEvent.shouldCommit()) {
+					stageEvent.algorithm = getType();
+					stageEvent.stage = stage;
+					stageEvent.vectors = Vnext.size();
+					stageEvent.valueDifference = valueDifference;
+					stageEvent.commit();
+				}
+				
+				double elapsed = (System.currentTimeMillis() - startTime) * 0.001;
+				System.out.println("Stage "+stage+": "+Vnext.size()+" vectors, diff "+valueDifference+", time elapsed "+elapsed+" sec");
+				if(stats != null) stats.endStage(stage, Vnext.size(), valueDifference, elapsed);
+				if(listener != null) listener.onStageComplete(stage, Collections.unmodifiableList(Vnext), valueDifference, (System.currentTimeMillis() - stageStartTime) * 0.001, elapsed);
+				
+				V = Vnext;
+				
+				OutputFileWriter.dumpValueFunction(pomdp, V, sp.getOutputDir()+"/"+pomdp.getInstanceName()+".alpha"+stage, sp.dumpActionLabels());
+				
+				if(sp.getCheckpointInterval() > 0 && stage % sp.getCheckpointInterval() == 0) {
+					new Checkpoint(getType(), pomdp, stage, valueDifference, System.currentTimeMillis() - startTime, V, B, rnd).write(checkpointFile);
+				}
+				
+				double elapsedTime = (System.currentTimeMillis() - startTime) * 0.001;
+				if(valueDifference < sp.getValueFunctionTolerance() || elapsedTime > sp.getTimeLimit() || deadline.isExceeded()) {
+					break;
+				}
+			}
 			
-			double elapsedTime = (System.currentTimeMillis() - startTime) * 0.001;
-			if(valueDifference < sp.getValueFunctionTolerance() || elapsedTime > sp.getTimeLimit()) {
-				break;
+		} finally {
+			if(pruneExecutor != null) {
+				pruneExecutor.shutdown();
+				pruneExecutor = null;
 			}
 		}
 		
+		endDeadline();
+		upperBound = null;
 		totalSolveTime = (System.currentTimeMillis() - startTime);
 		expectedValue = AlphaVector.getValue(pomdp.getInitialBelief().getBelief(), V);
 		
 		String outputFileAlpha = sp.getOutputDir()+"/"+pomdp.getInstanceName()+".alpha";
 		OutputFileWriter.dumpValueFunction(pomdp, V, outputFileAlpha, sp.dumpActionLabels());
 		
+		if(stats != null) {
+			stats.writeCSV(sp.getOutputDir()+"/"+pomdp.getInstanceName()+".stats.csv");
+		}
+		
 		return V;
 	}
 
@@ -307,6 +518,14 @@ public class SolverApproximate implements Solver {
 		return maxDifference;
 	}
 	
+	/**
+	 * Get the statistics collected during the last call to solve
+	 * @return statistics, or null if statistics are not collected
+	 */
+	public SolverStatistics getStatistics() {
+		return stats;
+	}
+	
 	/**
 	 * Get expected value of the solution
 	 * @return expected value
@@ -0,0 +1,552 @@
+/*******************************************************************************
+ * SolvePOMDP
+ * Copyright (C) 2017 Erwin Walraven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+import lpsolver.LPModel;
+import lpsolver.LPModelInstrumented;
+import lpsolver.LPModelObserved;
+import no.uib.cipr.matrix.DenseVector;
+import no.uib.cipr.matrix.sparse.FlexCompRowMatrix;
+import program.POMDP;
+import program.SolverProperties;
+import profiling.StageEvent;
+
+/**
+ * Solving POMDPs using bounded policy iteration (Poupart and Boutilier 2003). The solver improves a stochastic
+ * finite-state controller with a fixed maximum number of nodes. Each node is improved using an LP which finds new action
+ * and successor probabilities that improve its value in all states, and new nodes are added when the node improvements
+ * have converged and a belief reachable under the controller can still be improved by a backup.
+ */
+
+public class SolverBPI extends AbstractSolver {
+	private static final double PROBABILITY_THRESHOLD = 1e-6;    // probabilities computed by the LPs are set to zero if they are below the threshold
+	private static final double IMPROVEMENT_THRESHOLD = 1e-5;    // nodes are only replaced if the LP improves their value by at least the threshold
+	private static final int ESCAPE_RUNS = 20;                   // number of controller executions used to find beliefs where nodes can be added
+	private static final int ESCAPE_STEPS = 20;                  // number of steps of each controller execution
+	
+	private SolverProperties sp;
+	private LPModel lp;
+	private Random rnd;
+	private SolverStatistics stats;     // statistics of the last solve call, or null if statistics are not collected
+	private POMDP pomdp;
+	
+	private ArrayList<double[]> actionProbabilities;        // probability c_a of each action a at each node
+	private ArrayList<double[][][]> nodeProbabilities;      // joint probability c_aon of action a and successor node n after observation o at each node
+	private ArrayList<AlphaVector> nodeValues;              // value of each node in each state
+	
+	private long totalSolveTime = 0;
+	private double expectedValue;
+	
+	public SolverBPI(SolverProperties solverProperties, LPModel lp, Random rnd) {
+		this.sp = solverProperties;
+		this.lp = lp;
+		this.rnd = rnd;
+	}
+	
+	public String getType() {
+		return "bpi";
+	}
+	
+	public double getTotalSolveTime() {
+		return totalSolveTime * 0.001;
+	}
+	
+	public void setInitialValueFunction(ArrayList<AlphaVector> V) {
+		if(V != null) {
+			throw new RuntimeException("Bounded policy iteration starts from a controller and cannot start from an initial value function");
+		}
+	}
+	
+	public ArrayList<AlphaVector> solve(POMDP pomdp) {
+		this.pomdp = pomdp;
+		
+		if(pomdp.getDiscountFactor() >= 1.0) {
+			throw new RuntimeException("Bounded policy iteration requires a discount factor below 1");
+		}
+		
+		System.out.println();
+		System.out.println("=== RUN POMDP SOLVER ===");
+		System.out.println("Algorithm: bounded policy iteration");
+		
+		stats = sp.dumpStatistics() ? new SolverStatistics() : null;
+		long startTime = System.currentTimeMillis();
+		startDeadline(startTime, sp.getTimeLimit());
+		
+		// the initial controller contains one node for each action, which executes the action forever
+		actionProbabilities = new ArrayList<double[]>();
+		nodeProbabilities = new ArrayList<double[][][]>();
+		for(int a=0; a<pomdp.getNumActions(); a++) {
+			int[] nextNodes = new int[pomdp.getNumObservations()];
+			Arrays.fill(nextNodes, a);
+			addNode(a, nextNodes);
+		}
+		nodeValues = evaluateController();
+		
+		LPModel nodeLP = stats == null ? lp : new LPModelInstrumented(lp, stats);
+		if(listener != null) nodeLP = new LPModelObserved(nodeLP, listener);
+		
+		int iteration = 1;
+		System.out.println("Iteration 1: "+nodeValues.size()+" nodes, value "+getInitialBeliefValue());
+		if(stats != null) stats.endStage(iteration, nodeValues.size(), Double.POSITIVE_INFINITY, 0.0);
+		if(listener != null) listener.onStageComplete(iteration, Collections.unmodifiableList(nodeValues), Double.POSITIVE_INFINITY, 0.0, 0.0);
+		
+		while(!deadline.isExceeded()) {
+			iteration++;
+			StageEvent stageEvent = new StageEvent();
+			stageEvent.begin();
+			long stageStartTime = System.currentTimeMillis();
+			
+			// improve each node using an LP, based on the values of the current controller
+			// LP objectives close to zero are caused by the limited accuracy of the LP solver, and do not change the node
+			AlphaVector[] rewardVectors = getRewardVectors();
+			AlphaVector[][][] successorVectors = getSuccessorVectors();
+			double minImprovement = Math.max(sp.getValueFunctionTolerance(), IMPROVEMENT_THRESHOLD);
+			for(int n=0; n<nodeValues.size() && !deadline.isExceeded(); n++) {
+				double[] node = nodeLP.findImprovedNode(nodeValues.get(n), rewardVectors, successorVectors);
+				if(node != null && node[0] >= minImprovement) {
+					setNode(n, node);
+				}
+			}
+			
+			// convergence is based on the values of the evaluated controller rather than the LP objectives
+			ArrayList<AlphaVector> previousValues = nodeValues;
+			nodeValues = evaluateController();
+			double maxImprovement = getMaxImprovement(previousValues, nodeValues);
+			
+			// if the nodes cannot be improved, then a node is added to escape from the local optimum
+			String change = "improvement "+maxImprovement;
+			if(maxImprovement < minImprovement && !deadline.isExceeded()) {
+				if(nodeValues.size() >= sp.getBPINodes() || !addEscapeNode(getSuccessorVectors())) {
+					break;
+				}
+				change = "added node";
+				nodeValues = evaluateController();
+			}
+			
+			if(stageEvent.shouldCommit()) {
+				stageEvent.algorithm = getType();
+				stageEvent.stage = iteration;
+				stageEvent.vectors = nodeValues.size();
+				stageEvent.valueDifference = maxImprovement;
+				stageEvent.commit();
+			}
+			
+			double elapsed = (System.currentTimeMillis() - startTime) * 0.001;
+			System.out.println("Iteration "+iteration+": "+nodeValues.size()+" nodes, "+change+", value "+getInitialBeliefValue()+", time elapsed "+elapsed+" sec");
+			if(stats != null) stats.endStage(iteration, nodeValues.size(), maxImprovement, elapsed);
+			if(listener != null) listener.onStageComplete(iteration, Collections.unmodifiableList(nodeValues), maxImprovement, (System.currentTimeMillis() - stageStartTime) * 0.001, elapsed);
+		}
+		
+		if(deadline.isExceeded()) {
+			System.out.println("Time limit reached after "+iteration+" iterations");
+		}
+		
+		endDeadline();
+		totalSolveTime = (System.currentTimeMillis() - startTime);
+		expectedValue = getInitialBeliefValue();
+		
+		// the node values are written as a value function, and the controller is written to a separate file
+		String outputFileAlpha = sp.getOutputDir()+"/"+pomdp.getInstanceName()+".alpha";
+		OutputFileWriter.dumpValueFunction(pomdp, nodeValues, outputFileAlpha, sp.dumpActionLabels());
+		String outputFileController = sp.getOutputDir()+"/"+pomdp.getInstanceName()+".fsc";
+		int initialNode = AlphaVector.getBestVectorIndex(pomdp.getInitialBelief().getBelief(), nodeValues);
+		OutputFileWriter.dumpStochasticController(getActionProbabilities(), getSuccessorProbabilities(), initialNode, outputFileController);
+		
+		if(stats != null) {
+			stats.writeCSV(sp.getOutputDir()+"/"+pomdp.getInstanceName()+".stats.csv");
+		}
+		
+		return nodeValues;
+	}
+	
+	/**
+	 * Add a deterministic node to the controller
+	 * @param a action of the node
+	 * @param nextNodes successor node for each observation
+	 */
+	private void addNode(int a, int[] nextNodes) {
+		double[] actionProbs = new double[pomdp.getNumActions()];
+		actionProbs[a] = 1.0;
+		
+		double[][][] nodeProbs = new double[pomdp.getNumActions()][pomdp.getNumObservations()][];
+		for(int o=0; o<pomdp.getNumObservations(); o++) {
+			nodeProbs[a][o] = new double[Math.max(nextNodes[o] + 1, actionProbabilities.size() + 1)];
+			nodeProbs[a][o][nextNodes[o]] = 1.0;
+		}
+		
+		actionProbabilities.add(actionProbs);
+		nodeProbabilities.add(nodeProbs);
+	}
+	
+	/**
+	 * Replace the probabilities of node n by the solution of the node improvement LP. Probabilities below the threshold
+	 * are removed, after which the action probabilities are normalized and the joint probabilities of each action and
+	 * observation are scaled such that they sum to the probability of the action.
+	 * @param n node
+	 * @param node solution of the LP
+	 */
+	private void setNode(int n, double[] node) {
+		int nActions = pomdp.getNumActions();
+		int nObservations = pomdp.getNumObservations();
+		int nNodes = nodeValues.size();
+		
+		double[] actionProbs = new double[nActions];
+		for(int a=0; a<nActions; a++) {
+			actionProbs[a] = node[1+a] < PROBABILITY_THRESHOLD ? 0.0 : node[1+a];
+		}
+		actionProbs = normalize(actionProbs);
+		
+		double[][][] nodeProbs = new double[nActions][nObservations][];
+		for(int a=0; a<nActions; a++) {
+			if(actionProbs[a] == 0.0) continue;
+			
+			for(int o=0; o<nObservations; o++) {
+				int offset = 1+nActions+(a*nObservations+o)*nNodes;
+				double[] probs = new double[nNodes];
+				for(int nNext=0; nNext<nNodes; nNext++) {
+					double p = node[offset+nNext];
+					probs[nNext] = p < PROBABILITY_THRESHOLD ? 0.0 : p;
+				}
+				
+				// if all successor probabilities are below the threshold, then the most likely successor is used
+				double[] successorProbs = normalize(probs);
+				if(successorProbs[getBestVectorIndex(successorProbs)] == 0.0) {
+					successorProbs[getBestVectorIndex(Arrays.copyOfRange(node, offset, offset+nNodes))] = 1.0;
+				}
+				
+				nodeProbs[a][o] = new double[nNodes];
+				for(int nNext=0; nNext<nNodes; nNext++) {
+					nodeProbs[a][o][nNext] = actionProbs[a] * successorProbs[nNext];
+				}
+			}
+		}
+		
+		actionProbabilities.set(n, actionProbs);
+		nodeProbabilities.set(n, nodeProbs);
+	}
+	
+	/**
+	 * Add a node which improves the value of a belief reachable under the controller. The beliefs are obtained by executing
+	 * the controller from the initial belief, and the node is the deterministic backup of the belief with the largest improvement.
+	 * @param successorVectors discounted back-projection of node n for action a and observation o at index [a][o][n]
+	 * @return true if a node has been added
+	 */
+	private boolean addEscapeNode(AlphaVector[][][] successorVectors) {
+		AlphaVector[] rewardVectors = getRewardVectors();
+		double maxImprovement = sp.getValueFunctionTolerance();
+		int bestAction = -1;
+		int[] bestNextNodes = null;
+		
+		for(int run=0; run<ESCAPE_RUNS; run++) {
+			BeliefPoint b = pomdp.getInitialBelief();
+			int node = AlphaVector.getBestVectorIndex(b.getBelief(), nodeValues);
+			
+			for(int step=0; step<ESCAPE_STEPS && b != null; step++) {
+				// compute the deterministic backup of b using the current nodes as successors
+				double[] belief = b.getBelief();
+				for(int a=0; a<pomdp.getNumActions(); a++) {
+					double value = rewardVectors[a].getDotProduct(belief);
+					int[] nextNodes = new int[pomdp.getNumObservations()];
+					for(int o=0; o<pomdp.getNumObservations(); o++) {
+						nextNodes[o] = getBestVectorIndex(belief, successorVectors[a][o]);
+						value += successorVectors[a][o][nextNodes[o]].getDotProduct(belief);
+					}
+					
+					double improvement = value - AlphaVector.getValue(belief, nodeValues);
+					if(improvement > maxImprovement) {
+						maxImprovement = improvement;
+						bestAction = a;
+						bestNextNodes = nextNodes;
+					}
+				}
+				
+				// execute the controller to find the next belief
+				int a = sample(actionProbabilities.get(node));
+				pomdp.prepareBelief(b);
+				double[] observationProbs = new double[pomdp.getNumObservations()];
+				for(int o=0; o<pomdp.getNumObservations(); o++) {
+					observationProbs[o] = b.getActionObservationProbability(a, o);
+				}
+				int o = sample(observationProbs);
+				node = sample(nodeProbabilities.get(node)[a][o]);
+				b = observationProbs[o] > 0.0 ? pomdp.updateBelief(b, a, o) : null;
+			}
+		}
+		
+		if(bestAction == -1) {
+			return false;
+		}
+		
+		addNode(bestAction, bestNextNodes);
+		return true;
+	}
+	
+	/**
+	 * Compute the value of each node in each state by solving the linear system V = R + discount * P * V, where P
+	 * contains the probabilities of moving from a node and state to a successor node and state
+	 * @return value of each node in each state
+	 */
+	private ArrayList<AlphaVector> evaluateController() {
+		int nStates = pomdp.getNumStates();
+		int nNodes = actionProbabilities.size();
+		int size = nNodes * nStates;
+		double discount = pomdp.getDiscountFactor();
+		
+		FlexCompRowMatrix flexA = new FlexCompRowMatrix(size, size);
+		DenseVector rhs = new DenseVector(size);
+		DenseVector x = new DenseVector(size);
+		
+		for(int n=0; n<nNodes; n++) {
+			double[] actionProbs = actionProbabilities.get(n);
+			double[][][] nodeProbs = nodeProbabilities.get(n);
+			
+			for(int s=0; s<nStates; s++) {
+				int row = n * nStates + s;
+				flexA.add(row, row, 1.0);
+				if(nodeValues != null && n < nodeValues.size()) x.set(row, nodeValues.get(n).getEntry(s));
+				
+				double reward = 0.0;
+				for(int a=0; a<pomdp.getNumActions(); a++) {
+					if(actionProbs[a] == 0.0) continue;
+					reward += actionProbs[a] * pomdp.getReward(s, a);
+					
+					int[] successors = pomdp.getTransitionSuccessors(s, a);
+					double[] successorProbs = pomdp.getTransitionSuccessorProbabilities(s, a);
+					for(int i=0; i<successors.length; i++) {
+						int sNext = successors[i];
+						for(int o=0; o<pomdp.getNumObservations(); o++) {
+							double p = successorProbs[i] * pomdp.getObservationProbability(a, sNext, o);
+							if(p == 0.0) continue;
+							
+							for(int nNext=0; nNext<nodeProbs[a][o].length; nNext++) {
+								if(nodeProbs[a][o][nNext] > 0.0) {
+									flexA.add(row, nNext * nStates + sNext, -discount * p * nodeProbs[a][o][nNext]);
+								}
+							}
+						}
+					}
+				}
+				rhs.set(row, reward);
+			}
+		}
+		
+		double[] data = SolverFSC.solveLinearSystem(flexA, rhs, x);
+		
+		ArrayList<AlphaVector> values = new ArrayList<AlphaVector>();
+		for(int n=0; n<nNodes; n++) {
+			double[] entries = new double[nStates];
+			System.arraycopy(data, n * nStates, entries, 0, nStates);
+			AlphaVector av = new AlphaVector(entries);
+			av.setAction(getBestVectorIndex(actionProbabilities.get(n)));
+			values.add(av);
+		}
+		
+		return values;
+	}
+	
+	/**
+	 * Get the immediate reward vector of each action
+	 * @return reward vectors
+	 */
+	private AlphaVector[] getRewardVectors() {
+		AlphaVector[] rewardVectors = new AlphaVector[pomdp.getNumActions()];
+		
+		for(int a=0; a<pomdp.getNumActions(); a++) {
+			double[] entries = new double[pomdp.getNumStates()];
+			for(int s=0; s<pomdp.getNumStates(); s++) {
+				entries[s] = pomdp.getReward(s, a);
+			}
+			rewardVectors[a] = new AlphaVector(entries);
+		}
+		
+		return rewardVectors;
+	}
+	
+	/**
+	 * Compute the discounted back-projection of each node for each action and observation
+	 * @return vectors at index [a][o][n]
+	 */
+	private AlphaVector[][][] getSuccessorVectors() {
+		int nStates = pomdp.getNumStates();
+		int nNodes = nodeValues.size();
+		double discount = pomdp.getDiscountFactor();
+		
+		AlphaVector[][][] successorVectors = new AlphaVector[pomdp.getNumActions()][pomdp.getNumObservations()][nNodes];
+		for(int a=0; a<pomdp.getNumActions(); a++) {
+			for(int o=0; o<pomdp.getNumObservations(); o++) {
+				for(int n=0; n<nNodes; n++) {
+					double[] entries = new double[nStates];
+					
+					for(int s=0; s<nStates; s++) {
+						int[] successors = pomdp.getTransitionSuccessors(s, a);
+						double[] successorProbs = pomdp.getTransitionSuccessorProbabilities(s, a);
+						for(int i=0; i<successors.length; i++) {
+							entries[s] += discount * successorProbs[i] * pomdp.getObservationProbability(a, successors[i], o) * nodeValues.get(n).getEntry(successors[i]);
+						}
+					}
+					
+					successorVectors[a][o][n] = new AlphaVector(entries);
+				}
+			}
+		}
+		
+		return successorVectors;
+	}
+	
+	/**
+	 * Get the action probabilities of each node
+	 * @return probability of action a at node n at index [n][a]
+	 */
+	private double[][] getActionProbabilities() {
+		double[][] actionProbs = new double[actionProbabilities.size()][];
+		
+		for(int n=0; n<actionProbabilities.size(); n++) {
+			actionProbs[n] = normalize(actionProbabilities.get(n));
+		}
+		
+		return actionProbs;
+	}
+	
+	/**
+	 * Get the successor probabilities of each node, conditioned on the executed action
+	 * @return probability of successor n' after executing a and observing o at node n at index [n][a][o][n'], or null if a is never executed
+	 */
+	private double[][][][] getSuccessorProbabilities() {
+		int nNodes = nodeProbabilities.size();
+		double[][][][] successorProbs = new double[nNodes][pomdp.getNumActions()][pomdp.getNumObservations()][];
+		
+		for(int n=0; n<nNodes; n++) {
+			for(int a=0; a<pomdp.getNumActions(); a++) {
+				for(int o=0; o<pomdp.getNumObservations(); o++) {
+					double[] probs = nodeProbabilities.get(n)[a][o];
+					if(probs != null) {
+						double[] paddedProbs = new double[nNodes];
+						System.arraycopy(probs, 0, paddedProbs, 0, probs.length);
+						successorProbs[n][a][o] = normalize(paddedProbs);
+					}
+				}
+			}
+		}
+		
+		return successorProbs;
+	}
+	
+	/**
+	 * Compute the largest value improvement of a node in a state
+	 * @param previousValues node values before the improvement
+	 * @param values node values after the improvement, which may contain additional nodes
+	 * @return largest improvement
+	 */
+	private static double getMaxImprovement(ArrayList<AlphaVector> previousValues, ArrayList<AlphaVector> values) {
+		double maxImprovement = 0.0;
+		
+		for(int n=0; n<previousValues.size(); n++) {
+			for(int s=0; s<previousValues.get(n).size(); s++) {
+				maxImprovement = Math.max(maxImprovement, values.get(n).getEntry(s) - previousValues.get(n).getEntry(s));
+			}
+		}
+		
+		return maxImprovement;
+	}
+	
+	private double getInitialBeliefValue() {
+		return AlphaVector.getValue(pomdp.getInitialBelief().getBelief(), nodeValues);
+	}
+	
+	private static double[] normalize(double[] probs) {
+		double sum = 0.0;
+		for(double p : probs) {
+			sum += p;
+		}
+		
+		double[] normalizedProbs = new double[probs.length];
+		for(int i=0; i<probs.length; i++) {
+			normalizedProbs[i] = sum > 0.0 ? probs[i] / sum : 0.0;
+		}
+		
+		return normalizedProbs;
+	}
+	
+	/**
+	 * Sample an index from unnormalized probabilities
+	 * @param probs probabilities
+	 * @return index
+	 */
+	private int sample(double[] probs) {
+		double sum = 0.0;
+		for(double p : probs) {
+			sum += p;
+		}
+		
+		double randomNumber = rnd.nextDouble() * sum;
+		int lastIndex = 0;
+		for(int i=0; i<probs.length; i++) {
+			if(probs[i] > 0.0) {
+				lastIndex = i;
+				randomNumber -= probs[i];
+				if(randomNumber < 0.0) return i;
+			}
+		}
+		
+		return lastIndex;
+	}
+	
+	private static int getBestVectorIndex(double[] b, AlphaVector[] vectors) {
+		int bestIndex = 0;
+		for(int i=1; i<vectors.length; i++) {
+			if(vectors[i].getDotProduct(b) > vectors[bestIndex].getDotProduct(b)) {
+				bestIndex = i;
+			}
+		}
+		
+		return bestIndex;
+	}
+	
+	private static int getBestVectorIndex(double[] probs) {
+		int bestIndex = 0;
+		for(int i=1; i<probs.length; i++) {
+			if(probs[i] > probs[bestIndex]) {
+				bestIndex = i;
+			}
+		}
+		
+		return bestIndex;
+	}
+	
+	/**
+	 * Get the statistics collected during the last call to solve
+	 * @return statistics, or null if statistics are not collected
+	 */
+	public SolverStatistics getStatistics() {
+		return stats;
+	}
+	
+	/**
+	 * Get expected value of the solution
+	 * @return expected value
+	 */
+	public double getExpectedValue() {
+		return expectedValue;
+	}
+}
@@ -18,12 +18,28 @@
 
 package solver;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import lpsolver.LPModel;
+import lpsolver.LPModelFactory;
+import lpsolver.LPModelInstrumented;
+import lpsolver.LPModelObserved;
 
 import program.POMDP;
 import program.SolverProperties;
+import profiling.BackprojectionEvent;
+import profiling.CrossSumEvent;
+import profiling.StageEvent;
 import pruning.PruneMethod;
 import pruning.PrunePolicyGraph;
 
@@ -31,13 +47,19 @@ import pruning.PrunePolicyGraph;
  * Solving POMDPs using generalized incremental pruning with or without accelerated pruning
  */
 
-public class SolverExact implements Solver {
+public class SolverExact extends AbstractSolver {
 	private SolverProperties sp;
 	private LPModel lp;
 	private PruneMethod pm;
 	
 	private POMDP pomdp;
 	private ArrayList<AlphaVector> V0;
+	private ArrayList<AlphaVector> initialV;     // value function used instead of V_0 in the first stage, or null
+	private SolverStatistics stats;     // statistics of the last solve call, or null if statistics are not collected
+	private LPModelFactory lpFactory;     // factory used to create the LP solvers of worker threads, or null
+	private ArrayList<LPModel> workerLPs;     // LP solvers of the worker threads in the current solve call, or null
+	private ExecutorService lpExecutor;     // threads computing the value difference in the current solve call, or null
+	private ArrayList<ArrayList<AlphaVector>> stageValueFunctions;     // value function of stage k+1 at index k if a fixed number of stages is used, or null
 	private long totalSolveTime = 0;
 	private double expectedValue;
 	
@@ -47,6 +69,15 @@ public class SolverExact implements Solver {
 		this.pm = pm;
 	}
 
+	/**
+	 * Set the factory used to create an LP solver for each thread computing the value difference. The value difference
+	 * is computed by one thread if no factory has been set.
+	 * @param lpFactory LP solver factory
+	 */
+	public void setLPModelFactory(LPModelFactory lpFactory) {
+		this.lpFactory = lpFactory;
+	}
+	
 	/**
 	 * Returns the type of the algorithm used
 	 */
@@ -67,96 +98,303 @@ public class SolverExact implements Solver {
 	 */
 	public ArrayList<AlphaVector> solve(POMDP pomdp) {
 		assert pm != null && lp != null : pm+" "+lp;
-		this.pomdp = pomdp;
+		
+		// in a finite-horizon problem stage 1 is the immediate reward, so the stages cannot start from another value function,
+		// and the additional stage of the policy graph would describe a horizon which is one stage longer
+		if(sp.getFixedStages() != -1 && initialV != null) {
+			throw new RuntimeException("A finite horizon cannot be combined with an initial value function");
+		}
+		if(sp.getFixedStages() != -1 && sp.dumpPolicyGraph()) {
+			throw new RuntimeException("A finite horizon cannot be combined with a policy graph");
+		}
 		
 		totalSolveTime = 0;
 		
 		long startTime = System.currentTimeMillis();
 		
-		// create V_0
-		V0 = new ArrayList<AlphaVector>();
-		for(int a=0; a<pomdp.getNumActions(); a++) {
-			double[] vectorEntries = new double[pomdp.getNumStates()];
+		// record LP calls and pruning statistics in each stage
+		LPModel originalLP = lp;
+		PruneMethod originalPM = pm;
+		try {
+			stats = null;
+			if(sp.dumpStatistics()) {
+				stats = new SolverStatistics();
+				lp = new LPModelInstrumented(originalLP, stats);
+				pm.setLPModel(lp);
+				pm.setStatistics(stats);
+			}
 			
-			for(int s=0; s<pomdp.getNumStates(); s++) {
-				vectorEntries[s] = pomdp.getReward(s, a);
+			// report LP calls to the listener
+			if(listener != null) {
+				lp = new LPModelObserved(lp, listener);
+				pm.setLPModel(lp);
 			}
 			
-			AlphaVector av = new AlphaVector(vectorEntries);
-			V0.add(av);
-			av.setAction(a);
-		}
-		
-		// execute dynamic programming stages
-		ArrayList<AlphaVector> V = V0;
-		double bellmanDifference = Double.POSITIVE_INFINITY;
-		int stage = 1;
-		
-		OutputFileWriter.dumpValueFunction(pomdp, V, sp.getOutputDir()+"/"+pomdp.getInstanceName()+".alpha"+stage, sp.dumpActionLabels());
-		
-		System.out.println();
-		System.out.println("=== RUN POMDP SOLVER ===");
-		System.out.println("Algorithm: "+pm.getName());
-		System.out.println();
-		System.out.println("Stage 1: "+V0.size()+" vectors");
-		
-		while(true) {
-			// execute new DP stage
-			stage++;
-			ArrayList<AlphaVector> Vnext = getNextV(V);
+			// create LP solvers for the threads computing the value difference
+			if(lpFactory != null && sp.getLPThreads() > 1) {
+				workerLPs = new ArrayList<LPModel>();
+				for(int i=0; i<sp.getLPThreads(); i++) {
+					LPModel workerLP = lpFactory.create();
+					if(stats != null) workerLP = new LPModelInstrumented(workerLP, stats);
+					if(listener != null) workerLP = new LPModelObserved(workerLP, listener);
+					workerLPs.add(workerLP);
+				}
+				lpExecutor = Executors.newFixedThreadPool(sp.getLPThreads());
+			}
+			
+			// create V_0
+			initialize(pomdp);
 			
-			if(sp.getFixedStages() == -1) {
-				bellmanDifference = Math.min(bellmanDifference, getBellmanDifference(V, Vnext));
+			// execute dynamic programming stages, starting from the initial value function if it has been set
+			ArrayList<AlphaVector> V = V0;
+			if(initialV != null) {
+				checkValueFunction(pomdp, initialV);
+				V = initialV;
 			}
+			double bellmanDifference = Double.POSITIVE_INFINITY;
+			int stage = 1;
 			
-			V = Vnext;
+			// continue from the last checkpoint if requested
+			String checkpointFile = Checkpoint.getFilename(sp.getOutputDir(), pomdp.getInstanceName());
+			Checkpoint checkpoint = sp.resume() ? Checkpoint.read(checkpointFile) : null;
+			if(checkpoint != null) {
+				checkpoint.checkCompatible(getType(), pomdp);
+				
+				V = checkpoint.getV();
+				stage = checkpoint.getStage();
+				bellmanDifference = checkpoint.getBellmanDifference();
+				startTime -= checkpoint.getElapsedTime();
+			}
 			
-			// print output
-			double elapsed = (System.currentTimeMillis() - startTime) * 0.001;
-			System.out.println("Stage "+stage+": "+Vnext.size()+" vectors, diff "+bellmanDifference+", time elapsed "+elapsed+" sec");
+			// in a finite-horizon problem the value functions of all stages define the policy
+			stageValueFunctions = null;
+			if(sp.getFixedStages() != -1) {
+				stageValueFunctions = new ArrayList<ArrayList<AlphaVector>>();
+				
+				// after resuming, the value functions of earlier stages are read from the files written by the previous run
+				for(int k=1; k<stage; k++) {
+					stageValueFunctions.add(ValueFunctionReader.readFile(sp.getOutputDir()+"/"+pomdp.getInstanceName()+".alpha"+k, pomdp));
+				}
+				
+				stageValueFunctions.add(V);
+			}
+			
+			// the time limit is also checked inside stages, such that long stages can be interrupted
+			startDeadline(startTime, sp.getTimeLimit());
+			pm.setDeadline(deadline);
 			
-			// dump new value function to file
-			OutputFileWriter.dumpValueFunction(pomdp, V, sp.getOutputDir()+"/"+pomdp.getInstanceName()+".alpha"+stage, sp.dumpActionLabels());
+			System.out.println();
+			System.out.println("=== RUN POMDP SOLVER ===");
+			System.out.println("Algorithm: "+pm.getName());
+			System.out.println();
 			
-			// stop if value function has converged or a fixed number of stages is reached
-			if((sp.getFixedStages() != -1 && stage == sp.getFixedStages()) || bellmanDifference < sp.getValueFunctionTolerance() || elapsed > sp.getTimeLimit()) {
-				break;
+			if(checkpoint == null) {
+				OutputFileWriter.dumpValueFunction(pomdp, V, sp.getOutputDir()+"/"+pomdp.getInstanceName()+".alpha"+stage, sp.dumpActionLabels());
+				System.out.println("Stage 1: "+V.size()+" vectors"+(initialV != null ? " (initial value function)" : ""));
+				double elapsed = (System.currentTimeMillis() - startTime) * 0.001;
+				if(stats != null) stats.endStage(stage, V.size(), bellmanDifference, elapsed);
+				if(listener != null) listener.onStageComplete(stage, Collections.unmodifiableList(V), bellmanDifference, elapsed, elapsed);
 			}
+			else {
+				System.out.println("Resumed from checkpoint: stage "+stage+", "+V.size()+" vectors, diff "+bellmanDifference);
+			}
+			
+			while(sp.getFixedStages() == -1 || stage < sp.getFixedStages()) {
+				// execute new DP stage
+				stage++;
+				StageEvent stageEvent = new StageEvent();
+				stageEvent.begin();
+				long stageStartTime = System.currentTimeMillis();
+				ArrayList<AlphaVector> Vnext;
+				
+				try {
+					Vnext = getNextV(V);
+					
+					if(sp.getFixedStages() == -1) {
+						long diffStartTime = System.nanoTime();
+						bellmanDifference = getStageDifference(bellmanDifference, getConvergenceDifference(V, Vnext));
+						if(stats != null) stats.addTime(SolverStatistics.TIME_BELLMAN_DIFFERENCE, diffStartTime);
+					}
+				} catch (DeadlineExceededException e) {
+					// the new stage is incomplete, so we keep the value function of the previous stage
+					stage--;
+					double elapsed = (System.currentTimeMillis() - startTime) * 0.001;
+					System.out.println("Time limit reached during stage "+(stage+1)+" after "+elapsed+" sec, using value function of stage "+stage);
+					break;
+				}
+				
+				V = Vnext;
+				commitStageEvent(stageEvent, stage, V.size(), bellmanDifference);
+				if(stageValueFunctions != null) stageValueFunctions.add(V);
+				
+				// print output
+				double elapsed = (System.currentTimeMillis() - startTime) * 0.001;
+				System.out.println("Stage "+stage+": "+Vnext.size()+" vectors, diff "+bellmanDifference+", time elapsed "+elapsed+" sec");
+				if(stats != null) stats.endStage(stage, Vnext.size(), bellmanDifference, elapsed);
+				if(listener != null) listener.onStageComplete(stage, Collections.unmodifiableList(V), bellmanDifference, (System.currentTimeMillis() - stageStartTime) * 0.001, elapsed);
+				
+				// dump new value function to file
+				OutputFileWriter.dumpValueFunction(pomdp, V, sp.getOutputDir()+"/"+pomdp.getInstanceName()+".alpha"+stage, sp.dumpActionLabels());
+				
+				if(sp.getCheckpointInterval() > 0 && stage % sp.getCheckpointInterval() == 0) {
+					new Checkpoint(getType(), pomdp, stage, bellmanDifference, System.currentTimeMillis() - startTime, V, null, null).write(checkpointFile);
+				}
+				
+				// stop if value function has converged or a fixed number of stages is reached
+				if((sp.getFixedStages() != -1 && stage == sp.getFixedStages()) || bellmanDifference < sp.getValueFunctionTolerance() || elapsed > sp.getTimeLimit() || deadline.isExceeded()) {
+					break;
+				}
+			}
+			
+			// if we need to dump a policy graph, then we execute one more iteration with additional bookkeeping
+			// this stage is also subject to the time limit, and the policy graph is not written if it does not finish
+			boolean policyGraphComputed = false;
+			if(sp.dumpPolicyGraph()) {
+				// temporarily replace pruning method
+				PruneMethod tempPruneMethod = this.pm;
+				this.pm = new PrunePolicyGraph();
+				this.pm.setLPModel(lp);
+				this.pm.setStatistics(stats);
+				this.pm.setDeadline(deadline);
+				
+				// compute new value function
+				StageEvent stageEvent = new StageEvent();
+				stageEvent.begin();
+				long stageStartTime = System.currentTimeMillis();
+				try {
+					ArrayList<AlphaVector> Vnext = getNextV(V);
+					long diffStartTime = System.nanoTime();
+					bellmanDifference = getStageDifference(bellmanDifference, getConvergenceDifference(V, Vnext));
+					if(stats != null) stats.addTime(SolverStatistics.TIME_BELLMAN_DIFFERENCE, diffStartTime);
+					
+					stage++;
+					V = Vnext;
+					policyGraphComputed = true;
+					commitStageEvent(stageEvent, stage, V.size(), bellmanDifference);
+					double elapsed = (System.currentTimeMillis() - startTime) * 0.001;
+					System.out.println("Stage "+stage+": "+Vnext.size()+" vectors, diff "+bellmanDifference+", time elapsed "+elapsed+" sec");
+					if(stats != null) stats.endStage(stage, Vnext.size(), bellmanDifference, elapsed);
+					if(listener != null) listener.onStageComplete(stage, Collections.unmodifiableList(V), bellmanDifference, (System.currentTimeMillis() - stageStartTime) * 0.001, elapsed);
+					OutputFileWriter.dumpValueFunction(pomdp, V, sp.getOutputDir()+"/"+pomdp.getInstanceName()+".alpha"+stage, sp.dumpActionLabels());
+				} catch (DeadlineExceededException e) {
+					System.out.println("Time limit reached during policy graph stage, policy graph is not written");
+				}
+				
+				// restore original pruning method
+				this.pm = tempPruneMethod;
+			}
+			
+			endDeadline();
+			pm.setDeadline(null);
+			
+			totalSolveTime = (System.currentTimeMillis() - startTime);
+			expectedValue = AlphaVector.getValue(pomdp.getInitialBelief().getBelief(), V);
+			
+			String outputFileAlpha = sp.getOutputDir()+"/"+pomdp.getInstanceName()+".alpha";
+			OutputFileWriter.dumpValueFunction(pomdp, V, outputFileAlpha, sp.dumpActionLabels());
+			
+			// the horizon value functions are only written if all stages have been computed, because a file with fewer
+			// stages would be read as a shorter problem, and a file from an earlier run is removed in that case
+			if(stageValueFunctions != null) {
+				String outputFileHorizon = sp.getOutputDir()+"/"+pomdp.getInstanceName()+".horizon";
+				if(stage == sp.getFixedStages()) {
+					OutputFileWriter.dumpHorizonValueFunctions(pomdp, stageValueFunctions, outputFileHorizon, sp.dumpActionLabels());
+				}
+				else {
+					System.out.println("Only "+stage+" of "+sp.getFixedStages()+" stages have been computed, horizon value functions are not written");
+					new File(outputFileHorizon).delete();
+				}
+			}
+			
+			// a policy graph from an earlier run is removed if the policy graph stage did not finish
+			String outputFilePG = sp.getOutputDir()+"/"+pomdp.getInstanceName()+".pg";
+			if(policyGraphComputed) {
+				OutputFileWriter.dumpPolicyGraph(pomdp, V, outputFilePG, sp.dumpActionLabels());
+			}
+			else if(sp.dumpPolicyGraph()) {
+				new File(outputFilePG).delete();
+			}
+			
+			if(stats != null) {
+				stats.writeCSV(sp.getOutputDir()+"/"+pomdp.getInstanceName()+".stats.csv");
+			}
+			
+			return V;
 		}
-		
-		// if we need to dump a policy graph, then we execute one more iteration with additional bookkeeping
-		if(sp.dumpPolicyGraph()) {
-			// temporarily replace pruning method
-			PruneMethod tempPruneMethod = this.pm;
-			this.pm = new PrunePolicyGraph();
-			this.pm.setLPModel(lp);
-			
-			// compute new value function
-			stage++;
-			ArrayList<AlphaVector> Vnext = getNextV(V);
-			bellmanDifference = Math.min(bellmanDifference, getBellmanDifference(V, Vnext));
-			V = Vnext;
-			double elapsed = (System.currentTimeMillis() - startTime) * 0.001;
-			System.out.println("Stage "+stage+": "+Vnext.size()+" vectors, diff "+bellmanDifference+", time elapsed "+elapsed+" sec");
-			OutputFileWriter.dumpValueFunction(pomdp, V, sp.getOutputDir()+"/"+pomdp.getInstanceName()+".alpha"+stage, sp.dumpActionLabels());
-			
-			// restore original pruning method
-			this.pm = tempPruneMethod;
+		finally {
+			// the threads and LP solvers are released and the original LP model is restored, also if the solver fails
+			if(lpExecutor != null) {
+				lpExecutor.shutdown();
+				lpExecutor = null;
+			}
+			
+			if(workerLPs != null) {
+				for(LPModel workerLP : workerLPs) {
+					workerLP.close();
+				}
+				workerLPs = null;
+			}
+			
+			pm = originalPM;
+			if(stats != null) {
+				pm.setStatistics(null);
+			}
+			
+			endDeadline();
+			pm.setDeadline(null);
+			lp = originalLP;
+			pm.setLPModel(lp);
+		}
+	}
+	
+	public void setInitialValueFunction(ArrayList<AlphaVector> V) {
+		this.initialV = V;
+	}
+	
+	/**
+	 * Check whether a value function can be used as initial value function of a POMDP
+	 * @param pomdp a POMDP object
+	 * @param V value function
+	 */
+	static void checkValueFunction(POMDP pomdp, ArrayList<AlphaVector> V) {
+		if(V.size() == 0) {
+			throw new RuntimeException("Initial value function does not contain vectors");
 		}
 		
-		totalSolveTime = (System.currentTimeMillis() - startTime);
-		expectedValue = AlphaVector.getValue(pomdp.getInitialBelief().getBelief(), V);
-		
-		String outputFileAlpha = sp.getOutputDir()+"/"+pomdp.getInstanceName()+".alpha";
-		OutputFileWriter.dumpValueFunction(pomdp, V, outputFileAlpha, sp.dumpActionLabels());
-		
-		String outputFilePG = "";
-		if(sp.dumpPolicyGraph()) {
-			outputFilePG = sp.getOutputDir()+"/"+pomdp.getInstanceName()+".pg";
-			OutputFileWriter.dumpPolicyGraph(pomdp, V, outputFilePG, sp.dumpActionLabels());
+		for(AlphaVector av : V) {
+			if(av.size() != pomdp.getNumStates() || av.getAction() < 0 || av.getAction() >= pomdp.getNumActions()) {
+				throw new RuntimeException("Initial value function does not match the POMDP");
+			}
 		}
+	}
+	
+	/**
+	 * Set the POMDP to be solved and create the immediate reward vectors in V_0
+	 * @param pomdp a POMDP object
+	 */
+	void initialize(POMDP pomdp) {
+		this.pomdp = pomdp;
 		
-		return V;
+		V0 = new ArrayList<AlphaVector>();
+		for(int a=0; a<pomdp.getNumActions(); a++) {
+			double[] vectorEntries = new double[pomdp.getNumStates()];
+			
+			for(int s=0; s<pomdp.getNumStates(); s++) {
+				vectorEntries[s] = pomdp.getReward(s, a);
+			}
+			
+			AlphaVector av = new AlphaVector(vectorEntries);
+			V0.add(av);
+			av.setAction(a);
+		}
+	}
+	
+	/**
+	 * Get the immediate reward vectors created by initialize
+	 * @return V_0
+	 */
+	ArrayList<AlphaVector> getV0() {
+		return V0;
 	}
 	
 	/**
@@ -164,13 +402,18 @@ public class SolverExact implements Solver {
 	 * @param V value function stage i
 	 * @return value function stage i+1
 	 */
-	private ArrayList<AlphaVector> getNextV(ArrayList<AlphaVector> V) {
+	ArrayList<AlphaVector> getNextV(ArrayList<AlphaVector> V) {
 		int nVectors = V.size();
+		long startTime = System.nanoTime();
+		BackprojectionEvent backprojectionEvent = new BackprojectionEvent();
+		backprojectionEvent.begin();
 		
 		// generate g vectors
 		AlphaVector[][][] g = new AlphaVector[nVectors][pomdp.getNumActions()][pomdp.getNumObservations()];
 		
 		for(int k=0; k<nVectors; k++) {
+			if(deadline != null) deadline.check();
+			
 			for(int a=0; a<pomdp.getNumActions(); a++) {
 				for(int o=0; o<pomdp.getNumObservations(); o++) {
 					double[] vectorEntries = new double[pomdp.getNumStates()];
@@ -218,19 +461,55 @@ public class SolverExact implements Solver {
 		
 		assert Ga.size() == pomdp.getNumActions();
 		
+		if(stats != null) stats.addTime(SolverStatistics.TIME_BACKPROJECTION, startTime);
+		if(backprojectionEvent.shouldCommit()) {
+			backprojectionEvent.vectors = nVectors;
+			backprojectionEvent.actions = pomdp.getNumActions();
+			backprojectionEvent.observations = pomdp.getNumObservations();
+			backprojectionEvent.commit();
+		}
+		
 		// generate G_a sets
 		ArrayList<ArrayList<AlphaVector>> G = new ArrayList<ArrayList<AlphaVector>>();
 		for(int a=0; a<pomdp.getNumActions(); a++) {
 			VectorSetCollection vsc = Ga.get(a);
-			G.add(pm.crossSum(vsc));
+			CrossSumEvent crossSumEvent = new CrossSumEvent();
+			crossSumEvent.begin();
+			ArrayList<AlphaVector> crossSum = pm.crossSum(vsc);
+			G.add(crossSum);
+			
+			if(crossSumEvent.shouldCommit()) {
+				crossSumEvent.action = a;
+				crossSumEvent.vectors = crossSum.size();
+				crossSumEvent.commit();
+			}
 		}
 		
 		// merge G_a sets
+		startTime = System.nanoTime();
 		ArrayList<AlphaVector> Vnext = pm.mergeSets(G);
+		if(stats != null) stats.addTime(SolverStatistics.TIME_MERGE, startTime);
 		
 		return Vnext;
 	}
 	
+	/**
+	 * Commit a flight recorder event for a completed stage
+	 * @param stageEvent event started at the beginning of the stage
+	 * @param stage stage number
+	 * @param nVectors number of vectors computed by the stage
+	 * @param bellmanDifference Bellman difference after the stage
+	 */
+	private void commitStageEvent(StageEvent stageEvent, int stage, int nVectors, double bellmanDifference) {
+		if(stageEvent.shouldCommit()) {
+			stageEvent.algorithm = getType();
+			stageEvent.stage = stage;
+			stageEvent.vectors = nVectors;
+			stageEvent.valueDifference = bellmanDifference;
+			stageEvent.commit();
+		}
+	}
+	
 	/**
 	 * Compute vector k of the G_a^o set using Equation 22
 	 * @param alpha_0 immediate reward vector
@@ -248,27 +527,179 @@ public class SolverExact implements Solver {
 	}
 	
 	/**
-	 * Compute Bellman difference between two successive value functions
-	 * @param oldVectors value function stage i
-	 * @param newVectors value function stage i+1
-	 * @return difference between both value functions
+	 * Combine the value difference of a stage with the difference reported in the previous stage. Differences which
+	 * exceed the tolerance may be lower bounds, so they are reported as they are rather than as the minimum over stages.
+	 * @param previousDifference difference reported in the previous stage
+	 * @param difference difference computed in the current stage
+	 * @return difference reported in the current stage
 	 */
-	private double getBellmanDifference(ArrayList<AlphaVector> oldVectors, ArrayList<AlphaVector> newVectors) {
+	private double getStageDifference(double previousDifference, double difference) {
+		if(difference >= sp.getValueFunctionTolerance()) {
+			return difference;
+		}
+		else {
+			return Math.min(previousDifference, difference);
+		}
+	}
+	
+	/**
+	 * Compute the value difference used to decide whether the value function has converged. If sampled convergence
+	 * checks are enabled, then the LPs are only solved if the difference at witness beliefs is below the tolerance.
+	 * @param oldVectors value function of the previous stage
+	 * @param newVectors value function of the current stage
+	 * @return value difference, or a lower bound which exceeds the tolerance
+	 */
+	private double getConvergenceDifference(ArrayList<AlphaVector> oldVectors, ArrayList<AlphaVector> newVectors) {
+		if(sp.getConvergenceCheck().equals("sampled")) {
+			double sampledDiff = getSampledBellmanDifference(oldVectors, newVectors);
+			
+			if(sampledDiff >= sp.getValueFunctionTolerance()) {
+				return sampledDiff;
+			}
+		}
+		
+		return getBellmanDifference(oldVectors, newVectors);
+	}
+	
+	/**
+	 * Compute a lower bound on the maximum value difference between two value functions without solving LPs. The
+	 * difference is evaluated at the corners of the belief simplex and at the witness beliefs of the vectors.
+	 * @param oldVectors value function of the previous stage
+	 * @param newVectors value function of the current stage
+	 * @return lower bound on the value difference
+	 */
+	private double getSampledBellmanDifference(ArrayList<AlphaVector> oldVectors, ArrayList<AlphaVector> newVectors) {
+		// decreasing values only count if they are also considered by the LPs
+		boolean absoluteDiff = pomdp.getMinReward() < 0.0;
 		double maxDiff = Double.NEGATIVE_INFINITY;
 		
+		// the value of a corner is the largest entry of the vectors in the corresponding state
+		for(int s=0; s<pomdp.getNumStates(); s++) {
+			double oldValue = Double.NEGATIVE_INFINITY;
+			for(AlphaVector av : oldVectors) {
+				oldValue = Math.max(oldValue, av.getEntry(s));
+			}
+			
+			double newValue = Double.NEGATIVE_INFINITY;
+			for(AlphaVector av : newVectors) {
+				newValue = Math.max(newValue, av.getEntry(s));
+			}
+			
+			double diff = newValue - oldValue;
+			maxDiff = Math.max(maxDiff, absoluteDiff ? Math.abs(diff) : diff);
+		}
+		
+		ArrayList<AlphaVector> vectors = new ArrayList<AlphaVector>(newVectors);
+		vectors.addAll(oldVectors);
+		
+		for(AlphaVector av : vectors) {
+			double[] b = av.getWitness();
+			
+			if(b != null) {
+				double diff = AlphaVector.getValue(b, newVectors) - AlphaVector.getValue(b, oldVectors);
+				maxDiff = Math.max(maxDiff, absoluteDiff ? Math.abs(diff) : diff);
+			}
+		}
+		
+		return maxDiff;
+	}
+	
+	/**
+	 * Compute the maximum value difference between two value functions. The computation stops as soon as the difference
+	 * exceeds the value function tolerance, because the value function cannot have converged in that case. The returned
+	 * difference is then a lower bound which exceeds the tolerance.
+	 * @param oldVectors value function of the previous stage
+	 * @param newVectors value function of the current stage
+	 * @return value difference
+	 */
+	private double getBellmanDifference(ArrayList<AlphaVector> oldVectors, ArrayList<AlphaVector> newVectors) {
+		// each LP computes the value difference of one vector with respect to one of the value functions
+		final ArrayList<AlphaVector> lpVectors = new ArrayList<AlphaVector>();
+		final ArrayList<ArrayList<AlphaVector>> lpVectorSets = new ArrayList<ArrayList<AlphaVector>>();
+		
 		for(AlphaVector av : newVectors) {
-			maxDiff = Math.max(maxDiff, lp.getMaxValueDiff(av, oldVectors));
+			lpVectors.add(av);
+			lpVectorSets.add(oldVectors);
 		}
 		
 		if(pomdp.getMinReward() < 0.0) {
 			for(AlphaVector av : oldVectors) {
-				maxDiff = Math.max(maxDiff, lp.getMaxValueDiff(av, newVectors));
+				lpVectors.add(av);
+				lpVectorSets.add(newVectors);
+			}
+		}
+		
+		final double tolerance = sp.getValueFunctionTolerance();
+		
+		if(workerLPs == null) {
+			double maxDiff = Double.NEGATIVE_INFINITY;
+			
+			for(int i=0; i<lpVectors.size() && maxDiff < tolerance; i++) {
+				if(deadline != null) deadline.check();
+				maxDiff = Math.max(maxDiff, lp.getMaxValueDiff(lpVectors.get(i), lpVectorSets.get(i)));
 			}
+			
+			return maxDiff;
+		}
+		
+		// the LPs are distributed dynamically over the threads, each using its own LP solver
+		final AtomicInteger nextLP = new AtomicInteger(0);
+		final AtomicBoolean notConverged = new AtomicBoolean(false);
+		List<Callable<Double>> tasks = new ArrayList<Callable<Double>>();
+		
+		for(final LPModel workerLP : workerLPs) {
+			tasks.add(new Callable<Double>() {
+				public Double call() {
+					double maxDiff = Double.NEGATIVE_INFINITY;
+					
+					int i = nextLP.getAndIncrement();
+					while(i < lpVectors.size() && !notConverged.get()) {
+						if(deadline != null) deadline.check();
+						maxDiff = Math.max(maxDiff, workerLP.getMaxValueDiff(lpVectors.get(i), lpVectorSets.get(i)));
+						if(maxDiff >= tolerance) notConverged.set(true);
+						i = nextLP.getAndIncrement();
+					}
+					
+					return maxDiff;
+				}
+			});
+		}
+		
+		double maxDiff = Double.NEGATIVE_INFINITY;
+		
+		try {
+			for(Future<Double> result : lpExecutor.invokeAll(tasks)) {
+				maxDiff = Math.max(maxDiff, result.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			if(e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
 		}
 		
 		return maxDiff;
 	}
 	
+	/**
+	 * Get the value functions computed during the last call to solve if a fixed number of stages is used
+	 * @return list containing the value function of stage k+1 at index k, or null if the solver runs until convergence
+	 */
+	public ArrayList<ArrayList<AlphaVector>> getStageValueFunctions() {
+		return stageValueFunctions;
+	}
+	
+	/**
+	 * Get the statistics collected during the last call to solve
+	 * @return statistics, or null if statistics are not collected
+	 */
+	public SolverStatistics getStatistics() {
+		return stats;
+	}
+	
 	/**
 	 * Get expected value of the solution
 	 * @return expected value
@@ -0,0 +1,448 @@
+/*******************************************************************************
+ * SolvePOMDP
+ * Copyright (C) 2017 Erwin Walraven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import lpsolver.LPModel;
+import lpsolver.LPModelObserved;
+import no.uib.cipr.matrix.DenseVector;
+import no.uib.cipr.matrix.sparse.BiCGstab;
+import no.uib.cipr.matrix.sparse.CompRowMatrix;
+import no.uib.cipr.matrix.sparse.DefaultIterationMonitor;
+import no.uib.cipr.matrix.sparse.FlexCompRowMatrix;
+import no.uib.cipr.matrix.sparse.ILU;
+import no.uib.cipr.matrix.sparse.IterativeSolverNotConvergedException;
+import program.POMDP;
+import program.SolverProperties;
+import profiling.StageEvent;
+import pruning.PrunePolicyGraph;
+
+/**
+ * Solving POMDPs using policy iteration for finite-state controllers (Hansen 1998). Each iteration evaluates the
+ * controller by solving a sparse linear system, and it improves the controller using the vectors and successor nodes
+ * computed by a dynamic programming stage of incremental pruning.
+ */
+
+public class SolverFSC extends AbstractSolver {
+	private static final double EVALUATION_TOLERANCE = 1e-10;     // tolerance of the iterative linear solver evaluating the controller
+	private static final int EVALUATION_MAX_ITERATIONS = 100000;  // maximum number of iterations of the iterative linear solver
+	
+	private SolverProperties sp;
+	private LPModel lp;
+	private SolverStatistics stats;     // statistics of the last solve call, or null if statistics are not collected
+	
+	private ArrayList<Integer> actions;       // action of each node
+	private ArrayList<int[]> nextNodes;       // successor node of each node for each observation
+	private ArrayList<AlphaVector> nodeValues;     // value of each node in each state
+	
+	private long totalSolveTime = 0;
+	private double expectedValue;
+	
+	public SolverFSC(SolverProperties solverProperties, LPModel lp) {
+		this.sp = solverProperties;
+		this.lp = lp;
+	}
+	
+	public String getType() {
+		return "fsc";
+	}
+	
+	public double getTotalSolveTime() {
+		return totalSolveTime * 0.001;
+	}
+	
+	public void setInitialValueFunction(ArrayList<AlphaVector> V) {
+		if(V != null) {
+			throw new RuntimeException("Policy iteration starts from a controller and cannot start from an initial value function");
+		}
+	}
+	
+	public ArrayList<AlphaVector> solve(POMDP pomdp) {
+		if(pomdp.getDiscountFactor() >= 1.0) {
+			throw new RuntimeException("Policy iteration requires a discount factor below 1");
+		}
+		
+		System.out.println();
+		System.out.println("=== RUN POMDP SOLVER ===");
+		System.out.println("Algorithm: policy iteration for finite-state controllers");
+		
+		stats = sp.dumpStatistics() ? new SolverStatistics() : null;
+		long startTime = System.currentTimeMillis();
+		startDeadline(startTime, sp.getTimeLimit());
+		
+		// the dynamic programming stage keeps track of the successor nodes using policy graph pruning
+		PrunePolicyGraph pm = new PrunePolicyGraph();
+		pm.setLPModel(listener == null ? lp : new LPModelObserved(lp, listener));
+		pm.setDeadline(deadline);
+		pm.setStatistics(stats);
+		SolverExact dp = new SolverExact(sp, lp, pm);
+		dp.initialize(pomdp);
+		
+		// the initial controller executes one action forever, such that its nodes represent the blind policies
+		actions = new ArrayList<Integer>();
+		nextNodes = new ArrayList<int[]>();
+		for(int a=0; a<pomdp.getNumActions(); a++) {
+			int[] next = new int[pomdp.getNumObservations()];
+			Arrays.fill(next, a);
+			actions.add(a);
+			nextNodes.add(next);
+		}
+		nodeValues = evaluateController(pomdp, actions, nextNodes, null);
+		
+		int iteration = 1;
+		System.out.println("Iteration 1: "+actions.size()+" nodes");
+		if(stats != null) stats.endStage(iteration, actions.size(), Double.POSITIVE_INFINITY, 0.0);
+		if(listener != null) listener.onStageComplete(iteration, Collections.unmodifiableList(nodeValues), Double.POSITIVE_INFINITY, 0.0, 0.0);
+		
+		while(true) {
+			iteration++;
+			StageEvent stageEvent = new StageEvent();
+			stageEvent.begin();
+			long stageStartTime = System.currentTimeMillis();
+			
+			// compute the vectors of a dynamic programming stage, which refer to the current nodes as successors
+			ArrayList<AlphaVector> Vnext;
+			try {
+				Vnext = dp.getNextV(nodeValues);
+			} catch (DeadlineExceededException e) {
+				System.out.println("Time limit reached during iteration "+iteration+", using controller of iteration "+(iteration-1));
+				break;
+			}
+			
+			double valueDifference = getValueDifference(pomdp, Vnext);
+			boolean changed = valueDifference >= sp.getValueFunctionTolerance() && improveController(Vnext);
+			
+			if(changed) {
+				nodeValues = evaluateController(pomdp, actions, nextNodes, nodeValues);
+			}
+			
+			if(stageEvent.shouldCommit()) {
+				stageEvent.algorithm = getType();
+				stageEvent.stage = iteration;
+				stageEvent.vectors = actions.size();
+				stageEvent.valueDifference = valueDifference;
+				stageEvent.commit();
+			}
+			
+			double elapsed = (System.currentTimeMillis() - startTime) * 0.001;
+			System.out.println("Iteration "+iteration+": "+actions.size()+" nodes, diff "+valueDifference+", time elapsed "+elapsed+" sec");
+			if(stats != null) stats.endStage(iteration, actions.size(), valueDifference, elapsed);
+			if(listener != null) listener.onStageComplete(iteration, Collections.unmodifiableList(nodeValues), valueDifference, (System.currentTimeMillis() - stageStartTime) * 0.001, elapsed);
+			
+			if(!changed || deadline.isExceeded()) {
+				break;
+			}
+		}
+		
+		endDeadline();
+		totalSolveTime = (System.currentTimeMillis() - startTime);
+		expectedValue = AlphaVector.getValue(pomdp.getInitialBelief().getBelief(), nodeValues);
+		
+		// the nodes are written as a value function and a policy graph, which can be loaded using PolicyFSC.createFSC
+		ArrayList<AlphaVector> V = getControllerVectors(pomdp);
+		String outputFileAlpha = sp.getOutputDir()+"/"+pomdp.getInstanceName()+".alpha";
+		OutputFileWriter.dumpValueFunction(pomdp, V, outputFileAlpha, sp.dumpActionLabels());
+		String outputFilePG = sp.getOutputDir()+"/"+pomdp.getInstanceName()+".pg";
+		OutputFileWriter.dumpPolicyGraph(pomdp, V, outputFilePG, false);
+		
+		if(stats != null) {
+			stats.writeCSV(sp.getOutputDir()+"/"+pomdp.getInstanceName()+".stats.csv");
+		}
+		
+		return V;
+	}
+	
+	/**
+	 * Improve the controller using the vectors of a dynamic programming stage. A vector which corresponds to an existing
+	 * node is kept, a vector which pointwise dominates existing nodes replaces these nodes, and other vectors are added
+	 * as new nodes if the maximum number of nodes has not been reached. Nodes which are not reachable from the nodes
+	 * corresponding to the vectors are removed.
+	 * @param Vnext vectors of the dynamic programming stage, with successor nodes for each observation
+	 * @return true if the controller has been changed
+	 */
+	private boolean improveController(ArrayList<AlphaVector> Vnext) {
+		int nNodes = actions.size();
+		boolean changed = false;
+		
+		boolean[] replaced = new boolean[nNodes];
+		int[] redirect = new int[nNodes];
+		for(int n=0; n<nNodes; n++) {
+			redirect[n] = n;
+		}
+		
+		ArrayList<Integer> roots = new ArrayList<Integer>();
+		for(AlphaVector av : Vnext) {
+			int[] next = av.getObsSource().clone();
+			
+			int sameNode = -1;
+			for(int n=0; n<nNodes && sameNode == -1; n++) {
+				if(redirect[n] == n && actions.get(n) == av.getAction() && Arrays.equals(nextNodes.get(n), next)) {
+					sameNode = n;
+				}
+			}
+			
+			if(sameNode != -1) {
+				roots.add(sameNode);
+				continue;
+			}
+			
+			// nodes which are dominated by the vector are merged into one node executing the new action
+			int firstDominated = -1;
+			for(int n=0; n<nNodes; n++) {
+				if(redirect[n] == n && !replaced[n] && isPointwiseDominated(nodeValues.get(n), av)) {
+					if(firstDominated == -1) {
+						firstDominated = n;
+						actions.set(n, av.getAction());
+						nextNodes.set(n, next);
+						replaced[n] = true;
+					}
+					else {
+						redirect[n] = firstDominated;
+					}
+				}
+			}
+			
+			if(firstDominated != -1) {
+				roots.add(firstDominated);
+				changed = true;
+			}
+			else if(actions.size() < sp.getFSCMaxNodes()) {
+				roots.add(actions.size());
+				actions.add(av.getAction());
+				nextNodes.add(next);
+				changed = true;
+			}
+		}
+		
+		// redirect the transitions to merged nodes, and keep the nodes which are reachable from the roots
+		for(int[] next : nextNodes) {
+			for(int o=0; o<next.length; o++) {
+				if(next[o] < nNodes) next[o] = redirect[next[o]];
+			}
+		}
+		
+		boolean[] reachable = new boolean[actions.size()];
+		ArrayList<Integer> queue = new ArrayList<Integer>();
+		for(int root : roots) {
+			int n = root < nNodes ? redirect[root] : root;
+			if(!reachable[n]) {
+				reachable[n] = true;
+				queue.add(n);
+			}
+		}
+		for(int i=0; i<queue.size(); i++) {
+			for(int next : nextNodes.get(queue.get(i))) {
+				if(!reachable[next]) {
+					reachable[next] = true;
+					queue.add(next);
+				}
+			}
+		}
+		
+		if(queue.size() < actions.size()) {
+			removeNodes(reachable);
+			changed = true;
+		}
+		
+		return changed;
+	}
+	
+	/**
+	 * Remove the nodes which are not marked, and renumber the remaining nodes
+	 * @param keep true for nodes that should be kept
+	 */
+	private void removeNodes(boolean[] keep) {
+		int[] newIndex = new int[keep.length];
+		ArrayList<Integer> newActions = new ArrayList<Integer>();
+		ArrayList<int[]> newNextNodes = new ArrayList<int[]>();
+		ArrayList<AlphaVector> newNodeValues = new ArrayList<AlphaVector>();
+		
+		for(int n=0; n<keep.length; n++) {
+			if(keep[n]) {
+				newIndex[n] = newActions.size();
+				newActions.add(actions.get(n));
+				newNextNodes.add(nextNodes.get(n));
+				newNodeValues.add(n < nodeValues.size() ? nodeValues.get(n) : null);
+			}
+		}
+		
+		for(int[] next : newNextNodes) {
+			for(int o=0; o<next.length; o++) {
+				next[o] = newIndex[next[o]];
+			}
+		}
+		
+		actions = newActions;
+		nextNodes = newNextNodes;
+		nodeValues = newNodeValues;
+	}
+	
+	/**
+	 * Compute the value of each node in each state by solving the linear system V = R + discount * P * V, where P
+	 * contains the probabilities of moving from a node and state to a successor node and state
+	 * @param pomdp a POMDP object
+	 * @param actions action of each node
+	 * @param nextNodes successor node of each node for each observation
+	 * @param initialValues values used as initial solution of the iterative solver, containing null for new nodes, or null
+	 * @return value of each node in each state
+	 */
+	static ArrayList<AlphaVector> evaluateController(POMDP pomdp, ArrayList<Integer> actions, ArrayList<int[]> nextNodes, ArrayList<AlphaVector> initialValues) {
+		int nStates = pomdp.getNumStates();
+		int nNodes = actions.size();
+		int size = nNodes * nStates;
+		double discount = pomdp.getDiscountFactor();
+		
+		FlexCompRowMatrix flexA = new FlexCompRowMatrix(size, size);
+		DenseVector rhs = new DenseVector(size);
+		DenseVector x = new DenseVector(size);
+		
+		for(int n=0; n<nNodes; n++) {
+			int a = actions.get(n);
+			int[] next = nextNodes.get(n);
+			AlphaVector initialVector = (initialValues != null && n < initialValues.size()) ? initialValues.get(n) : null;
+			
+			for(int s=0; s<nStates; s++) {
+				int row = n * nStates + s;
+				flexA.add(row, row, 1.0);
+				rhs.set(row, pomdp.getReward(s, a));
+				if(initialVector != null) x.set(row, initialVector.getEntry(s));
+				
+				int[] successors = pomdp.getTransitionSuccessors(s, a);
+				double[] successorProbs = pomdp.getTransitionSuccessorProbabilities(s, a);
+				for(int i=0; i<successors.length; i++) {
+					int sNext = successors[i];
+					for(int o=0; o<next.length; o++) {
+						double p = successorProbs[i] * pomdp.getObservationProbability(a, sNext, o);
+						if(p > 0.0) {
+							flexA.add(row, next[o] * nStates + sNext, -discount * p);
+						}
+					}
+				}
+			}
+		}
+		
+		double[] data = solveLinearSystem(flexA, rhs, x);
+		
+		ArrayList<AlphaVector> values = new ArrayList<AlphaVector>();
+		for(int n=0; n<nNodes; n++) {
+			AlphaVector av = new AlphaVector(Arrays.copyOfRange(data, n * nStates, (n+1) * nStates));
+			av.setAction(actions.get(n));
+			values.add(av);
+		}
+		
+		return values;
+	}
+	
+	/**
+	 * Solve the linear system of a controller evaluation using an iterative solver with ILU preconditioning
+	 * @param flexA coefficient matrix
+	 * @param rhs right-hand side
+	 * @param x initial solution
+	 * @return solution
+	 */
+	static double[] solveLinearSystem(FlexCompRowMatrix flexA, DenseVector rhs, DenseVector x) {
+		CompRowMatrix A = new CompRowMatrix(flexA);
+		BiCGstab solver = new BiCGstab(x);
+		ILU preconditioner = new ILU(A.copy());
+		preconditioner.setMatrix(A);
+		solver.setPreconditioner(preconditioner);
+		solver.setIterationMonitor(new DefaultIterationMonitor(EVALUATION_MAX_ITERATIONS, EVALUATION_TOLERANCE, EVALUATION_TOLERANCE, 1e5));
+		
+		try {
+			solver.solve(A, rhs, x);
+		} catch (IterativeSolverNotConvergedException e) {
+			throw new RuntimeException("Controller evaluation did not converge: "+e.getMessage());
+		}
+		
+		return x.getData();
+	}
+	
+	/**
+	 * Estimate the improvement of a dynamic programming stage using the witness beliefs of the vectors, which is a lower
+	 * bound on the Bellman residual of the controller
+	 * @param pomdp a POMDP object
+	 * @param Vnext vectors of the dynamic programming stage
+	 * @return largest improvement at a witness belief or corner
+	 */
+	private double getValueDifference(POMDP pomdp, ArrayList<AlphaVector> Vnext) {
+		double maxDifference = 0.0;
+		
+		for(AlphaVector av : Vnext) {
+			if(av.getWitness() != null) {
+				maxDifference = Math.max(maxDifference, av.getDotProduct(av.getWitness()) - AlphaVector.getValue(av.getWitness(), nodeValues));
+			}
+		}
+		
+		for(int s=0; s<pomdp.getNumStates(); s++) {
+			double[] corner = new double[pomdp.getNumStates()];
+			corner[s] = 1.0;
+			maxDifference = Math.max(maxDifference, AlphaVector.getValue(corner, Vnext) - AlphaVector.getValue(corner, nodeValues));
+		}
+		
+		return maxDifference;
+	}
+	
+	private static boolean isPointwiseDominated(AlphaVector av, AlphaVector other) {
+		for(int s=0; s<av.size(); s++) {
+			if(av.getEntry(s) > other.getEntry(s)) return false;
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Create one vector for each node, containing its action, value and successor nodes
+	 * @param pomdp a POMDP object
+	 * @return vectors representing the controller
+	 */
+	private ArrayList<AlphaVector> getControllerVectors(POMDP pomdp) {
+		ArrayList<AlphaVector> V = new ArrayList<AlphaVector>();
+		
+		for(int n=0; n<actions.size(); n++) {
+			AlphaVector av = new AlphaVector(nodeValues.get(n).getEntries().clone());
+			av.setAction(actions.get(n));
+			av.initObsSource(pomdp.getNumObservations());
+			for(int o=0; o<pomdp.getNumObservations(); o++) {
+				av.setObsSource(o, nextNodes.get(n)[o]);
+			}
+			V.add(av);
+		}
+		
+		return V;
+	}
+	
+	/**
+	 * Get the statistics collected during the last call to solve
+	 * @return statistics, or null if statistics are not collected
+	 */
+	public SolverStatistics getStatistics() {
+		return stats;
+	}
+	
+	/**
+	 * Get expected value of the solution
+	 * @return expected value
+	 */
+	public double getExpectedValue() {
+		return expectedValue;
+	}
+}
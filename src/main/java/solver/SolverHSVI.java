@@ -0,0 +1,391 @@
+/*******************************************************************************
+ * SolvePOMDP
+ * Copyright (C) 2017 Erwin Walraven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package solver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+import program.POMDP;
+import program.SolverProperties;
+import profiling.StageEvent;
+
+/**
+ * Solving POMDPs using heuristic search value iteration (Smith and Simmons 2005). The solver maintains a lower bound
+ * represented by vectors and a sawtooth upper bound, and it updates both bounds in beliefs visited by depth-first trials
+ * from the initial belief, which are guided by the gap between the bounds.
+ */
+
+public class SolverHSVI extends AbstractSolver {
+	private static final int MAX_DEPTH = 10000;            // safety bound on the number of beliefs visited by one trial
+	private static final double PRUNE_GROWTH = 1.1;        // bounds are pruned when their size has grown by this factor
+	
+	private SolverProperties sp;
+	private SolverStatistics stats;     // statistics of the last solve call, or null if statistics are not collected
+	private POMDP pomdp;
+	
+	private ArrayList<AlphaVector> lowerBound;     // vectors representing the lower bound
+	private SawtoothUpperBound upperBound;         // belief points representing the upper bound
+	
+	private long totalSolveTime = 0;
+	private double expectedValue;
+	private double upperBoundValue;
+	
+	public SolverHSVI(SolverProperties solverProperties) {
+		this.sp = solverProperties;
+	}
+	
+	public String getType() {
+		return "hsvi";
+	}
+	
+	public double getTotalSolveTime() {
+		return totalSolveTime * 0.001;
+	}
+	
+	public void setInitialValueFunction(ArrayList<AlphaVector> V) {
+		if(V != null) {
+			throw new RuntimeException("HSVI requires a valid lower bound and cannot start from an initial value function");
+		}
+	}
+	
+	public ArrayList<AlphaVector> solve(POMDP pomdp) {
+		this.pomdp = pomdp;
+		
+		if(pomdp.getDiscountFactor() >= 1.0) {
+			throw new RuntimeException("HSVI requires a discount factor below 1");
+		}
+		
+		System.out.println();
+		System.out.println("=== RUN POMDP SOLVER ===");
+		System.out.println("Algorithm: HSVI (heuristic search value iteration)");
+		
+		stats = sp.dumpStatistics() ? new SolverStatistics() : null;
+		long startTime = System.currentTimeMillis();
+		startDeadline(startTime, sp.getTimeLimit());
+		
+		// initialize the bounds
+		lowerBound = Bounds.getBlindPolicyVectors(pomdp, deadline);
+		upperBound = new SawtoothUpperBound(Bounds.getFIBVectors(pomdp, deadline));
+		
+		BeliefPoint b0 = pomdp.getInitialBelief();
+		double lowerValue = AlphaVector.getValue(b0.getBelief(), lowerBound);
+		double upperValue = upperBound.getValue(b0.getBelief());
+		System.out.println("Initial bounds: lower "+lowerValue+", upper "+upperValue);
+		
+		// execute trials until the gap at the initial belief is sufficiently small
+		int trial = 0;
+		int prunedLowerSize = lowerBound.size();
+		int prunedUpperSize = upperBound.size();
+		long lastPrintTime = startTime;
+		
+		while(upperValue - lowerValue > sp.getTargetGap() && !deadline.isExceeded()) {
+			trial++;
+			StageEvent stageEvent = new StageEvent();
+			stageEvent.begin();
+			long stageStartTime = System.currentTimeMillis();
+			
+			explore(b0, sp.getTargetGap());
+			
+			// remove dominated vectors and belief points if the bounds have grown
+			if(lowerBound.size() > PRUNE_GROWTH * prunedLowerSize) {
+				pruneLowerBound();
+				prunedLowerSize = lowerBound.size();
+			}
+			if(upperBound.size() > PRUNE_GROWTH * prunedUpperSize) {
+				upperBound.prune();
+				prunedUpperSize = upperBound.size();
+			}
+			
+			lowerValue = AlphaVector.getValue(b0.getBelief(), lowerBound);
+			upperValue = upperBound.getValue(b0.getBelief());
+			
+			if(stageEvent.shouldCommit()) {
+				stageEvent.algorithm = getType();
+				stageEvent.stage = trial;
+				stageEvent.vectors = lowerBound.size();
+				stageEvent.valueDifference = upperValue - lowerValue;
+				stageEvent.commit();
+			}
+			
+			long currentTime = System.currentTimeMillis();
+			double elapsed = (currentTime - startTime) * 0.001;
+			if(stats != null) stats.endStage(trial, lowerBound.size(), upperValue - lowerValue, elapsed);
+			
+			// the lower bound is modified by the next trials, so the listener receives a copy
+			if(listener != null) listener.onStageComplete(trial, Collections.unmodifiableList(new ArrayList<AlphaVector>(lowerBound)), upperValue - lowerValue, (System.currentTimeMillis() - stageStartTime) * 0.001, elapsed);
+			
+			// trials are short, so progress is printed at most once per second
+			if(currentTime - lastPrintTime >= 1000 || upperValue - lowerValue <= sp.getTargetGap()) {
+				System.out.println("Trial "+trial+": lower "+lowerValue+", upper "+upperValue+", "+lowerBound.size()+" vectors, "+upperBound.size()+" points, time elapsed "+elapsed+" sec");
+				lastPrintTime = currentTime;
+			}
+		}
+		
+		if(deadline.isExceeded()) {
+			System.out.println("Time limit reached after "+trial+" trials, gap "+(upperValue - lowerValue));
+		}
+		
+		endDeadline();
+		totalSolveTime = (System.currentTimeMillis() - startTime);
+		expectedValue = lowerValue;
+		upperBoundValue = upperValue;
+		
+		String outputFileAlpha = sp.getOutputDir()+"/"+pomdp.getInstanceName()+".alpha";
+		OutputFileWriter.dumpValueFunction(pomdp, lowerBound, outputFileAlpha, sp.dumpActionLabels());
+		
+		if(stats != null) {
+			stats.writeCSV(sp.getOutputDir()+"/"+pomdp.getInstanceName()+".stats.csv");
+		}
+		
+		return lowerBound;
+	}
+	
+	/**
+	 * Execute one trial, which follows the action that is greedy with respect to the upper bound and the observation with
+	 * the largest weighted excess gap, and updates the bounds of the visited beliefs in reverse order
+	 * @param b0 initial belief
+	 * @param epsilon target gap at the initial belief
+	 */
+	private void explore(BeliefPoint b0, double epsilon) {
+		ArrayList<BeliefPoint> trajectory = new ArrayList<BeliefPoint>();
+		ArrayList<BeliefPoint[][]> trajectorySuccessors = new ArrayList<BeliefPoint[][]>();
+		
+		BeliefPoint b = b0;
+		double threshold = epsilon;
+		
+		while(b != null && trajectory.size() < MAX_DEPTH && getGap(b) > threshold && !deadline.isExceeded()) {
+			BeliefPoint[][] successors = getSuccessorBeliefs(pomdp, b);
+			trajectory.add(b);
+			trajectorySuccessors.add(successors);
+			
+			// the gap required in the next belief grows with the inverse of the discount factor
+			int a = getUpperBoundAction(b, successors);
+			threshold = threshold / pomdp.getDiscountFactor();
+			
+			BeliefPoint bNext = null;
+			double maxExcess = 0.0;
+			for(int o=0; o<pomdp.getNumObservations(); o++) {
+				if(successors[a][o] == null) continue;
+				
+				double excess = b.getActionObservationProbability(a, o) * (getGap(successors[a][o]) - threshold);
+				if(excess > maxExcess) {
+					maxExcess = excess;
+					bNext = successors[a][o];
+				}
+			}
+			
+			b = bNext;
+		}
+		
+		for(int i=trajectory.size()-1; i>=0; i--) {
+			update(trajectory.get(i), trajectorySuccessors.get(i));
+		}
+	}
+	
+	/**
+	 * Update the lower bound and upper bound in belief b
+	 * @param b belief
+	 * @param successors successor beliefs of b
+	 */
+	private void update(BeliefPoint b, BeliefPoint[][] successors) {
+		// lower bound
+		AlphaVector alpha = backupLowerBound(pomdp, lowerBound, b, successors);
+		if(stats != null) stats.increment(SolverStatistics.BACKUPS);
+		if(alpha.getDotProduct(b.getBelief()) > AlphaVector.getValue(b.getBelief(), lowerBound)) {
+			lowerBound.add(alpha);
+		}
+		
+		// upper bound
+		double maxValue = Double.NEGATIVE_INFINITY;
+		for(int a=0; a<pomdp.getNumActions(); a++) {
+			maxValue = Math.max(maxValue, getUpperBoundQValue(b, successors, a));
+		}
+		upperBound.add(b.getBelief(), maxValue);
+	}
+	
+	/**
+	 * Compute the successor beliefs of b for each action and observation
+	 * @param pomdp a POMDP object
+	 * @param b belief
+	 * @return successor belief for action a and observation o at index [a][o], or null if o cannot be observed
+	 */
+	static BeliefPoint[][] getSuccessorBeliefs(POMDP pomdp, BeliefPoint b) {
+		pomdp.prepareBelief(b);
+		BeliefPoint[][] successors = new BeliefPoint[pomdp.getNumActions()][pomdp.getNumObservations()];
+		
+		for(int a=0; a<pomdp.getNumActions(); a++) {
+			for(int o=0; o<pomdp.getNumObservations(); o++) {
+				if(b.getActionObservationProbability(a, o) > 0.0) {
+					successors[a][o] = pomdp.updateBelief(b, a, o);
+				}
+			}
+		}
+		
+		return successors;
+	}
+	
+	/**
+	 * Get the gap between the upper bound and lower bound in belief b
+	 * @param b belief
+	 * @return gap
+	 */
+	private double getGap(BeliefPoint b) {
+		return upperBound.getValue(b.getBelief()) - AlphaVector.getValue(b.getBelief(), lowerBound);
+	}
+	
+	/**
+	 * Compute the value of executing action a in belief b, if the upper bound is used to define the values of the successor beliefs
+	 * @param b belief
+	 * @param successors successor beliefs of b
+	 * @param a action
+	 * @return upper bound on the value of a
+	 */
+	private double getUpperBoundQValue(BeliefPoint b, BeliefPoint[][] successors, int a) {
+		double value = 0.0;
+		for(int s=0; s<pomdp.getNumStates(); s++) {
+			value += b.getBelief(s) * pomdp.getReward(s, a);
+		}
+		
+		double futureValue = 0.0;
+		for(int o=0; o<pomdp.getNumObservations(); o++) {
+			if(successors[a][o] != null) {
+				futureValue += b.getActionObservationProbability(a, o) * upperBound.getValue(successors[a][o].getBelief());
+			}
+		}
+		
+		return value + pomdp.getDiscountFactor() * futureValue;
+	}
+	
+	/**
+	 * Get the action that maximizes the upper bound in belief b
+	 * @param b belief
+	 * @param successors successor beliefs of b
+	 * @return action
+	 */
+	private int getUpperBoundAction(BeliefPoint b, BeliefPoint[][] successors) {
+		int bestAction = 0;
+		double bestValue = Double.NEGATIVE_INFINITY;
+		
+		for(int a=0; a<pomdp.getNumActions(); a++) {
+			double value = getUpperBoundQValue(b, successors, a);
+			if(value > bestValue) {
+				bestValue = value;
+				bestAction = a;
+			}
+		}
+		
+		return bestAction;
+	}
+	
+	/**
+	 * Compute the point-based backup of the lower bound in belief b
+	 * @param pomdp a POMDP object
+	 * @param lowerBound vectors representing the lower bound
+	 * @param b belief
+	 * @param successors successor beliefs of b at index [a][o], where [a] is null if action a is not considered
+	 * @return vector that maximizes the backed up value of b
+	 */
+	static AlphaVector backupLowerBound(POMDP pomdp, ArrayList<AlphaVector> lowerBound, BeliefPoint b, BeliefPoint[][] successors) {
+		int nStates = pomdp.getNumStates();
+		int nObservations = pomdp.getNumObservations();
+		
+		AlphaVector bestVector = null;
+		double bestValue = Double.NEGATIVE_INFINITY;
+		
+		for(int a=0; a<pomdp.getNumActions(); a++) {
+			if(successors[a] == null) continue;
+			
+			// select the best vector for each successor belief, and the first vector if the observation cannot be made
+			AlphaVector[] oVectors = new AlphaVector[nObservations];
+			for(int o=0; o<nObservations; o++) {
+				int k = successors[a][o] == null ? 0 : AlphaVector.getBestVectorIndex(successors[a][o].getBelief(), lowerBound);
+				oVectors[o] = lowerBound.get(k);
+			}
+			
+			double[] entries = new double[nStates];
+			for(int s=0; s<nStates; s++) {
+				int[] stateSuccessors = pomdp.getTransitionSuccessors(s, a);
+				double[] successorProbs = pomdp.getTransitionSuccessorProbabilities(s, a);
+				
+				double futureValue = 0.0;
+				for(int i=0; i<stateSuccessors.length; i++) {
+					int sNext = stateSuccessors[i];
+					for(int o=0; o<nObservations; o++) {
+						futureValue += successorProbs[i] * pomdp.getObservationProbability(a, sNext, o) * oVectors[o].getEntry(sNext);
+					}
+				}
+				
+				entries[s] = pomdp.getReward(s, a) + pomdp.getDiscountFactor() * futureValue;
+			}
+			
+			AlphaVector av = new AlphaVector(entries);
+			av.setAction(a);
+			
+			double value = av.getDotProduct(b.getBelief());
+			if(value > bestValue) {
+				bestValue = value;
+				bestVector = av;
+			}
+		}
+		
+		return bestVector;
+	}
+	
+	/**
+	 * Remove the vectors of the lower bound that are pointwise dominated by other vectors
+	 */
+	private void pruneLowerBound() {
+		ArrayList<AlphaVector> prunedLowerBound = new ArrayList<AlphaVector>();
+		
+		for(int i=0; i<lowerBound.size(); i++) {
+			ArrayList<AlphaVector> otherVectors = new ArrayList<AlphaVector>(prunedLowerBound);
+			otherVectors.addAll(lowerBound.subList(i+1, lowerBound.size()));
+			
+			if(!lowerBound.get(i).isPointwiseDominated(otherVectors)) {
+				prunedLowerBound.add(lowerBound.get(i));
+			}
+		}
+		
+		lowerBound = prunedLowerBound;
+	}
+	
+	/**
+	 * Get the statistics collected during the last call to solve
+	 * @return statistics, or null if statistics are not collected
+	 */
+	public SolverStatistics getStatistics() {
+		return stats;
+	}
+	
+	/**
+	 * Get the upper bound on the value of the initial belief, computed by the last call to solve
+	 * @return upper bound
+	 */
+	public double getUpperBoundValue() {
+		return upperBoundValue;
+	}
+	
+	/**
+	 * Get expected value of the solution, which is the lower bound on the value of the initial belief
+	 * @return expected value
+	 */
+	public double getExpectedValue() {
+		return expectedValue;
+	}
+}
@@ -0,0 +1,47 @@
+/*******************************************************************************
+ * SolvePOMDP
+ * Copyright (C) 2017 Erwin Walraven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package solver;
+
+import java.util.List;
+
+/**
+ * Listener which is notified by a solver during a solve call, such that callers can follow the progress of the solver and
+ * use intermediate value functions without parsing its output. The methods are called by the solving thread, and
+ * onLPCall can also be called by the threads solving LPs in parallel. The solver can be stopped early using
+ * Solver.requestStop, also from within the listener.
+ */
+
+public interface SolverListener {
+	/**
+	 * Called after each stage of the solver. For heuristic search a stage is a trial, and for policy iteration it is an iteration.
+	 * @param stage stage number
+	 * @param V value function after the stage, which cannot be modified
+	 * @param valueDifference value difference of the stage, or the gap between the bounds for heuristic search
+	 * @param stageTime time spent in the stage in seconds
+	 * @param elapsed time elapsed since the start of the solver in seconds
+	 */
+	public void onStageComplete(int stage, List<AlphaVector> V, double valueDifference, double stageTime, double elapsed);
+	
+	/**
+	 * Called after each LP solved by the solver
+	 * @param method name of the LP method
+	 * @param time time spent in the LP in seconds
+	 */
+	public void onLPCall(String method, double time);
+}
@@ -0,0 +1,406 @@
+/*******************************************************************************
+ * SolvePOMDP
+ * Copyright (C) 2017 Erwin Walraven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package solver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import program.POMDP;
+import program.SolverProperties;
+import profiling.StageEvent;
+
+/**
+ * Solving POMDPs using point-based value iteration (Pineau, Gordon and Thrun 2003). The belief set starts with the
+ * initial belief and is expanded gradually. After each expansion, full backups of all beliefs are executed until the
+ * values of the beliefs have converged.
+ */
+
+public class SolverPBVI extends AbstractSolver {
+	private Random rnd;
+	private SolverProperties sp;
+	private SolverStatistics stats;     // statistics of the last solve call, or null if statistics are not collected
+	private ArrayList<AlphaVector> initialV;     // value function used instead of the blind policy vectors, or null
+	private ExecutorService backupExecutor;     // threads executing the backups in the current solve call, or null
+	private ArrayList<AlphaVector> upperBound;     // upper bound used to skip beliefs whose value has converged, or null
+	private long totalSolveTime = 0;
+	private double expectedValue;
+	
+	public SolverPBVI(SolverProperties solverProperties, Random rnd) {
+		this.rnd = rnd;
+		this.sp = solverProperties;
+	}
+	
+	public String getType() {
+		return "pbvi";
+	}
+	
+	public double getTotalSolveTime() {
+		return totalSolveTime * 0.001;
+	}
+	
+	public void setInitialValueFunction(ArrayList<AlphaVector> V) {
+		this.initialV = V;
+	}
+	
+	public ArrayList<AlphaVector> solve(POMDP pomdp) {
+		int nStates = pomdp.getNumStates();
+		int nActions = pomdp.getNumActions();
+		
+		System.out.println();
+		System.out.println("=== RUN POMDP SOLVER ===");
+		System.out.println("Algorithm: PBVI (point-based value iteration with belief expansion)");
+		
+		stats = sp.dumpStatistics() ? new SolverStatistics() : null;
+		long startTime = System.currentTimeMillis();
+		startDeadline(startTime, sp.getTimeLimit());
+		
+		// create vectors defining immediate rewards, which are also the initial vector set if the discount factor is 1
+		ArrayList<AlphaVector> V = new ArrayList<AlphaVector>();
+		ArrayList<AlphaVector> immediateRewards = new ArrayList<AlphaVector>();
+		for(int a=0; a<nActions; a++) {
+			double[] entries = new double[nStates];
+			for(int s=0; s<nStates; s++) {
+				entries[s] = pomdp.getReward(s, a);
+			}
+			AlphaVector av = new AlphaVector(entries);
+			av.setAction(a);
+			V.add(av);
+			immediateRewards.add(av);
+		}
+		
+		if(initialV != null) {
+			SolverExact.checkValueFunction(pomdp, initialV);
+			V = initialV;
+		}
+		else if(pomdp.getDiscountFactor() < 1.0) {
+			V = Bounds.getBlindPolicyVectors(pomdp, deadline);
+		}
+		
+		// the upper bound is used to detect beliefs whose value cannot be improved by backups
+		upperBound = SolverApproximate.getBeliefPruningBound(pomdp, sp, deadline);
+		
+		ArrayList<BeliefPoint> B = new ArrayList<BeliefPoint>();
+		B.add(pomdp.getInitialBelief());
+		
+		int stage = 1;
+		System.out.println("Stage 1: "+V.size()+" vectors, 1 belief");
+		if(stats != null) stats.endStage(stage, V.size(), Double.POSITIVE_INFINITY, 0.0);
+		if(listener != null) listener.onStageComplete(stage, Collections.unmodifiableList(V), Double.POSITIVE_INFINITY, 0.0, 0.0);
+		OutputFileWriter.dumpValueFunction(pomdp, V, sp.getOutputDir()+"/"+pomdp.getInstanceName()+".alpha"+stage, sp.dumpActionLabels());
+		
+		if(sp.getBackupThreads() > 1) {
+			backupExecutor = Executors.newFixedThreadPool(sp.getBackupThreads());
+		}
+		
+		try {
+			int expansion = 0;
+			
+			while(true) {
+				// execute backup stages until the values of the current beliefs have converged
+				double valueDifference = Double.POSITIVE_INFINITY;
+				while(valueDifference >= sp.getValueFunctionTolerance() && !deadline.isExceeded()) {
+					stage++;
+					StageEvent stageEvent = new StageEvent();
+					stageEvent.begin();
+					long stageStartTime = System.currentTimeMillis();
+					
+					ArrayList<AlphaVector> Vnext = backupStage(pomdp, immediateRewards, V, B);
+					valueDifference = getValueDifference(B, V, Vnext);
+					if(deadline.isExceeded()) {
+						System.out.println("Time limit reached during stage "+stage+", using partial value function of stage "+stage);
+					}
+					
+					if(stageEvent.shouldCommit()) {
+						stageEvent.algorithm = getType();
+						stageEvent.stage = stage;
+						stageEvent.vectors = Vnext.size();
+						stageEvent.valueDifference = valueDifference;
+						stageEvent.commit();
+					}
+					
+					double elapsed = (System.currentTimeMillis() - startTime) * 0.001;
+					System.out.println("Stage "+stage+": "+Vnext.size()+" vectors, diff "+valueDifference+", time elapsed "+elapsed+" sec");
+					if(stats != null) stats.endStage(stage, Vnext.size(), valueDifference, elapsed);
+					if(listener != null) listener.onStageComplete(stage, Collections.unmodifiableList(Vnext), valueDifference, (System.currentTimeMillis() - stageStartTime) * 0.001, elapsed);
+					
+					V = Vnext;
+					OutputFileWriter.dumpValueFunction(pomdp, V, sp.getOutputDir()+"/"+pomdp.getInstanceName()+".alpha"+stage, sp.dumpActionLabels());
+				}
+				
+				if(expansion == sp.getBeliefExpansions() || deadline.isExceeded()) {
+					break;
+				}
+				
+				expansion++;
+				int previousSize = B.size();
+				B = expandBeliefs(pomdp, B);
+				System.out.println("Expansion "+expansion+": "+B.size()+" beliefs");
+				
+				if(B.size() == previousSize) {
+					break;
+				}
+			}
+		} finally {
+			if(backupExecutor != null) {
+				backupExecutor.shutdown();
+				backupExecutor = null;
+			}
+		}
+		
+		endDeadline();
+		upperBound = null;
+		totalSolveTime = (System.currentTimeMillis() - startTime);
+		expectedValue = AlphaVector.getValue(pomdp.getInitialBelief().getBelief(), V);
+		
+		String outputFileAlpha = sp.getOutputDir()+"/"+pomdp.getInstanceName()+".alpha";
+		OutputFileWriter.dumpValueFunction(pomdp, V, outputFileAlpha, sp.dumpActionLabels());
+		
+		if(stats != null) {
+			stats.writeCSV(sp.getOutputDir()+"/"+pomdp.getInstanceName()+".stats.csv");
+		}
+		
+		return V;
+	}
+	
+	/**
+	 * Execute a backup of each belief in B. If the backup of a belief does not improve its value, then the best vector
+	 * of V is kept, such that the values of the beliefs never decrease. Beliefs whose value has converged to the upper
+	 * bound are not backed up, and they also keep their best vector.
+	 * @param pomdp a POMDP object
+	 * @param immediateRewards immediate reward vectors
+	 * @param V current value function
+	 * @param B beliefs
+	 * @return new value function
+	 */
+	private ArrayList<AlphaVector> backupStage(final POMDP pomdp, final ArrayList<AlphaVector> immediateRewards, final ArrayList<AlphaVector> V, final ArrayList<BeliefPoint> B) {
+		final boolean[] converged = new boolean[B.size()];
+		List<BeliefPoint> activeB = new ArrayList<BeliefPoint>();
+		for(int i=0; i<B.size(); i++) {
+			converged[i] = upperBound != null && Bounds.hasConverged(B.get(i).getBelief(), V, upperBound, sp.getValueFunctionTolerance());
+			if(converged[i]) {
+				if(stats != null) stats.increment(SolverStatistics.PRUNED_BELIEFS);
+			}
+			else {
+				activeB.add(B.get(i));
+			}
+		}
+		
+		long startTime = System.nanoTime();
+		final BackProjections gkao = new BackProjections(pomdp, V);
+		if(stats != null) stats.addTime(SolverStatistics.TIME_BACKPROJECTION, startTime);
+		
+		// remove the gao vectors which are not used by the backups of the belief points, which pays off if V is large
+		if(V.size() > sp.getGaoPruningThreshold()) {
+			startTime = System.nanoTime();
+			gkao.prune(activeB, backupExecutor, sp.getBackupThreads());
+			if(stats != null) stats.addTime(SolverStatistics.TIME_PRUNE_GAO, startTime);
+		}
+		
+		startTime = System.nanoTime();
+		final AlphaVector[] alphas = new AlphaVector[B.size()];
+		
+		if(backupExecutor == null) {
+			for(int i=0; i<B.size() && !deadline.isExceeded(); i++) {
+				if(!converged[i]) alphas[i] = SolverApproximate.backup(pomdp, immediateRewards, gkao, B.get(i));
+			}
+		}
+		else {
+			// the beliefs are distributed dynamically over the threads, and gkao is only read by the threads
+			final AtomicInteger nextBelief = new AtomicInteger(0);
+			List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+			
+			for(int t=0; t<sp.getBackupThreads(); t++) {
+				tasks.add(new Callable<Void>() {
+					public Void call() {
+						int i = nextBelief.getAndIncrement();
+						while(i < B.size() && !deadline.isExceeded()) {
+							if(!converged[i]) alphas[i] = SolverApproximate.backup(pomdp, immediateRewards, gkao, B.get(i));
+							i = nextBelief.getAndIncrement();
+						}
+						
+						return null;
+					}
+				});
+			}
+			
+			try {
+				for(Future<Void> result : backupExecutor.invokeAll(tasks)) {
+					result.get();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			} catch (ExecutionException e) {
+				if(e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				throw new RuntimeException(e.getCause());
+			}
+		}
+		
+		// beliefs which have converged or have not been backed up before the deadline keep their best vector
+		ArrayList<AlphaVector> Vnext = new ArrayList<AlphaVector>();
+		HashSet<AlphaVector> Vset = new HashSet<AlphaVector>();
+		for(int i=0; i<B.size(); i++) {
+			double[] b = B.get(i).getBelief();
+			AlphaVector alpha = alphas[i];
+			
+			if(alpha == null || alpha.getDotProduct(b) < AlphaVector.getValue(b, V)) {
+				alpha = V.get(AlphaVector.getBestVectorIndex(b, V));
+			}
+			
+			if(alphas[i] != null && stats != null) stats.increment(SolverStatistics.BACKUPS);
+			
+			if(!Vset.contains(alpha)) {
+				Vnext.add(alpha);
+				Vset.add(alpha);
+			}
+		}
+		
+		if(stats != null) stats.addTime(SolverStatistics.TIME_BACKUP, startTime);
+		
+		return Vnext;
+	}
+	
+	/**
+	 * Expand the belief set by adding one successor of each belief. For each action, a successor is obtained by
+	 * sampling an observation, and the successor with the largest L1 distance to the belief set is added.
+	 * @param pomdp a POMDP object
+	 * @param B beliefs
+	 * @return expanded belief set
+	 */
+	private ArrayList<BeliefPoint> expandBeliefs(POMDP pomdp, ArrayList<BeliefPoint> B) {
+		ArrayList<BeliefPoint> newB = new ArrayList<BeliefPoint>(B);
+		ModelSampler modelSampler = pomdp.getModelSampler();
+		
+		for(BeliefPoint b : B) {
+			if(deadline.isExceeded()) break;
+			
+			BeliefPoint farthestBelief = null;
+			int farthestAction = -1;
+			int farthestObservation = -1;
+			double maxDistance = 0.0;
+			
+			for(int a=0; a<pomdp.getNumActions(); a++) {
+				// simulate a hidden state, such that the observation is sampled from P(o|b,a)
+				int state = sampleState(b.getBelief());
+				int nextState = modelSampler.sampleNextState(state, a, rnd.nextDouble());
+				int o = modelSampler.sampleObservation(a, nextState, rnd.nextDouble());
+				
+				BeliefPoint bao = pomdp.updateBelief(b, a, o);
+				double distance = getDistance(bao, newB);
+				if(distance > maxDistance) {
+					maxDistance = distance;
+					farthestBelief = bao;
+					farthestAction = a;
+					farthestObservation = o;
+				}
+			}
+			
+			if(farthestBelief != null) {
+				farthestBelief.setHistory(b.getHistoryCopy());
+				farthestBelief.addToHistory(farthestAction);
+				farthestBelief.addToHistory(farthestObservation);
+				newB.add(farthestBelief);
+			}
+		}
+		
+		return newB;
+	}
+	
+	/**
+	 * Sample a state from belief b
+	 * @param b belief
+	 * @return state
+	 */
+	private int sampleState(double[] b) {
+		double randomNumber = rnd.nextDouble();
+		double sum = 0.0;
+		int lastState = -1;
+		
+		for(int s=0; s<b.length; s++) {
+			if(b[s] > 0.0) {
+				sum += b[s];
+				lastState = s;
+				if(randomNumber < sum) return s;
+			}
+		}
+		
+		// rounding errors may cause a sum slightly below 1
+		return lastState;
+	}
+	
+	/**
+	 * Get the L1 distance between belief b and the closest belief in B
+	 * @param b belief
+	 * @param B beliefs
+	 * @return distance
+	 */
+	private static double getDistance(BeliefPoint b, ArrayList<BeliefPoint> B) {
+		double[] belief = b.getBelief();
+		double minDistance = Double.POSITIVE_INFINITY;
+		
+		for(BeliefPoint bp : B) {
+			double[] other = bp.getBelief();
+			double distance = 0.0;
+			for(int s=0; s<belief.length && distance < minDistance; s++) {
+				distance += Math.abs(belief[s] - other[s]);
+			}
+			minDistance = Math.min(minDistance, distance);
+		}
+		
+		return minDistance;
+	}
+	
+	private double getValueDifference(List<BeliefPoint> B, ArrayList<AlphaVector> V, ArrayList<AlphaVector> Vnext) {
+		double maxDifference = Double.NEGATIVE_INFINITY;
+		
+		for(BeliefPoint b : B) {
+			double diff = AlphaVector.getValue(b.getBelief(), Vnext) - AlphaVector.getValue(b.getBelief(), V);
+			if(diff > maxDifference) maxDifference = diff;
+		}
+		
+		return maxDifference;
+	}
+	
+	/**
+	 * Get the statistics collected during the last call to solve
+	 * @return statistics, or null if statistics are not collected
+	 */
+	public SolverStatistics getStatistics() {
+		return stats;
+	}
+	
+	/**
+	 * Get expected value of the solution
+	 * @return expected value
+	 */
+	public double getExpectedValue() {
+		return expectedValue;
+	}
+}
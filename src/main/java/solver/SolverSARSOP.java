@@ -0,0 +1,497 @@
+/*******************************************************************************
+ * SolvePOMDP
+ * Copyright (C) 2017 Erwin Walraven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package solver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+import program.POMDP;
+import program.SolverProperties;
+import profiling.StageEvent;
+
+/**
+ * Solving POMDPs using successive approximations of the reachable space under optimal policies (Kurniawati, Hsu and
+ * Lee 2008). Beliefs are sampled in a belief tree rooted at the initial belief, following actions that may be optimal
+ * according to the bounds. The tree caches the bounds of its beliefs, subtrees of suboptimal actions are removed, and
+ * vectors which are not maximal at any belief of the tree are pruned.
+ */
+
+public class SolverSARSOP extends AbstractSolver {
+	private static final int MAX_DEPTH = 10000;            // safety bound on the number of beliefs visited by one trial
+	private static final double PRUNE_GROWTH = 1.1;        // bounds and tree are pruned when the number of vectors has grown by this factor
+	private static final int PRUNE_MIN_GROWTH = 10;        // minimum number of vectors added before the bounds and tree are pruned
+	
+	private SolverProperties sp;
+	private SolverStatistics stats;     // statistics of the last solve call, or null if statistics are not collected
+	private POMDP pomdp;
+	
+	private ArrayList<AlphaVector> lowerBound;     // vectors representing the lower bound
+	private SawtoothUpperBound upperBound;         // belief points representing the upper bound
+	private int lowerBoundVersion = 0;             // incremented when the lower bound changes, such that cached values can be recognized as outdated
+	private int upperBoundVersion = 0;             // incremented when the upper bound changes
+	private BeliefNode root;                       // belief tree containing the sampled beliefs
+	private int treeSize;                          // number of expanded nodes in the belief tree
+	
+	private long totalSolveTime = 0;
+	private double expectedValue;
+	private double upperBoundValue;
+	
+	/**
+	 * Node of the belief tree, which caches the bounds of its belief
+	 */
+	private static class BeliefNode {
+		private BeliefPoint b;
+		private BeliefPoint[][] successors;     // successor beliefs at index [a][o], or null if the node has not been expanded, where [a] is null if a has been pruned
+		private BeliefNode[][] children;        // child nodes at index [a][o], or null if o cannot be observed
+		private boolean[] prunedActions;        // actions which cannot be optimal in b, and for which children have been removed
+		
+		private double lowerValue;
+		private int lowerVersion = -1;
+		private double upperValue;
+		private int upperVersion = -1;
+		
+		private BeliefNode(BeliefPoint b) {
+			this.b = b;
+		}
+		
+		private boolean isExpanded() {
+			return successors != null;
+		}
+	}
+	
+	public SolverSARSOP(SolverProperties solverProperties) {
+		this.sp = solverProperties;
+	}
+	
+	public String getType() {
+		return "sarsop";
+	}
+	
+	public double getTotalSolveTime() {
+		return totalSolveTime * 0.001;
+	}
+	
+	public void setInitialValueFunction(ArrayList<AlphaVector> V) {
+		if(V != null) {
+			throw new RuntimeException("SARSOP requires a valid lower bound and cannot start from an initial value function");
+		}
+	}
+	
+	public ArrayList<AlphaVector> solve(POMDP pomdp) {
+		this.pomdp = pomdp;
+		
+		if(pomdp.getDiscountFactor() >= 1.0) {
+			throw new RuntimeException("SARSOP requires a discount factor below 1");
+		}
+		
+		System.out.println();
+		System.out.println("=== RUN POMDP SOLVER ===");
+		System.out.println("Algorithm: SARSOP (point-based search in the optimally reachable belief space)");
+		
+		stats = sp.dumpStatistics() ? new SolverStatistics() : null;
+		long startTime = System.currentTimeMillis();
+		startDeadline(startTime, sp.getTimeLimit());
+		
+		// initialize the bounds and the belief tree
+		lowerBound = Bounds.getBlindPolicyVectors(pomdp, deadline);
+		upperBound = new SawtoothUpperBound(Bounds.getFIBVectors(pomdp, deadline));
+		lowerBoundVersion = 0;
+		upperBoundVersion = 0;
+		root = new BeliefNode(pomdp.getInitialBelief());
+		treeSize = 0;
+		
+		double lowerValue = getLowerValue(root);
+		double upperValue = getUpperValue(root);
+		System.out.println("Initial bounds: lower "+lowerValue+", upper "+upperValue);
+		
+		// sample beliefs until the gap at the initial belief is sufficiently small
+		int trial = 0;
+		int prunedLowerSize = lowerBound.size();
+		long lastPrintTime = startTime;
+		
+		while(upperValue - lowerValue > sp.getTargetGap() && !deadline.isExceeded()) {
+			trial++;
+			StageEvent stageEvent = new StageEvent();
+			stageEvent.begin();
+			long stageStartTime = System.currentTimeMillis();
+			
+			sample(sp.getTargetGap());
+			
+			if(lowerBound.size() > Math.max(PRUNE_GROWTH * prunedLowerSize, prunedLowerSize + PRUNE_MIN_GROWTH)) {
+				prune();
+				prunedLowerSize = lowerBound.size();
+			}
+			
+			lowerValue = getLowerValue(root);
+			upperValue = getUpperValue(root);
+			
+			if(stageEvent.shouldCommit()) {
+				stageEvent.algorithm = getType();
+				stageEvent.stage = trial;
+				stageEvent.vectors = lowerBound.size();
+				stageEvent.valueDifference = upperValue - lowerValue;
+				stageEvent.commit();
+			}
+			
+			long currentTime = System.currentTimeMillis();
+			double elapsed = (currentTime - startTime) * 0.001;
+			if(stats != null) stats.endStage(trial, lowerBound.size(), upperValue - lowerValue, elapsed);
+			
+			// the lower bound is modified by the next trials, so the listener receives a copy
+			if(listener != null) listener.onStageComplete(trial, Collections.unmodifiableList(new ArrayList<AlphaVector>(lowerBound)), upperValue - lowerValue, (System.currentTimeMillis() - stageStartTime) * 0.001, elapsed);
+			
+			// trials are short, so progress is printed at most once per second
+			if(currentTime - lastPrintTime >= 1000 || upperValue - lowerValue <= sp.getTargetGap()) {
+				System.out.println("Trial "+trial+": lower "+lowerValue+", upper "+upperValue+", "+lowerBound.size()+" vectors, "+upperBound.size()+" points, "+treeSize+" beliefs, time elapsed "+elapsed+" sec");
+				lastPrintTime = currentTime;
+			}
+		}
+		
+		if(deadline.isExceeded()) {
+			System.out.println("Time limit reached after "+trial+" trials, gap "+(upperValue - lowerValue));
+		}
+		
+		endDeadline();
+		root = null;
+		totalSolveTime = (System.currentTimeMillis() - startTime);
+		expectedValue = lowerValue;
+		upperBoundValue = upperValue;
+		
+		String outputFileAlpha = sp.getOutputDir()+"/"+pomdp.getInstanceName()+".alpha";
+		OutputFileWriter.dumpValueFunction(pomdp, lowerBound, outputFileAlpha, sp.dumpActionLabels());
+		
+		if(stats != null) {
+			stats.writeCSV(sp.getOutputDir()+"/"+pomdp.getInstanceName()+".stats.csv");
+		}
+		
+		return lowerBound;
+	}
+	
+	/**
+	 * Sample a path in the belief tree and back up the beliefs on the path in reverse order. The path follows the action
+	 * that is greedy with respect to the upper bound and the observation with the largest weighted excess gap. It stops
+	 * if the gap is small enough, or if the upper bound is below the target value which would improve the lower bound
+	 * of the initial belief.
+	 * @param epsilon target gap at the initial belief
+	 */
+	private void sample(double epsilon) {
+		ArrayList<BeliefNode> path = new ArrayList<BeliefNode>();
+		
+		BeliefNode node = root;
+		double threshold = epsilon;
+		double targetLower = getLowerValue(root);
+		double targetUpper = targetLower + epsilon;
+		
+		while(node != null && path.size() < MAX_DEPTH && !deadline.isExceeded()) {
+			if(getUpperValue(node) <= Math.max(targetUpper, getLowerValue(node) + threshold)) {
+				break;
+			}
+			
+			expand(node);
+			path.add(node);
+			
+			int a = getUpperBoundAction(node);
+			double qLower = getLowerQValue(node, a);
+			double nodeTargetLower = Math.max(targetLower, qLower);
+			double nodeTargetUpper = Math.max(targetUpper, qLower + threshold);
+			threshold = threshold / pomdp.getDiscountFactor();
+			
+			// select the observation with the largest weighted excess gap
+			int oNext = -1;
+			double maxExcess = Double.NEGATIVE_INFINITY;
+			for(int o=0; o<pomdp.getNumObservations(); o++) {
+				BeliefNode child = node.children[a][o];
+				if(child == null) continue;
+				
+				double excess = node.b.getActionObservationProbability(a, o) * (getUpperValue(child) - getLowerValue(child) - threshold);
+				if(excess > maxExcess) {
+					maxExcess = excess;
+					oNext = o;
+				}
+			}
+			
+			if(oNext == -1) {
+				break;
+			}
+			
+			// derive the targets of the child, such that reaching them yields the targets of the node
+			double reward = getExpectedReward(node, a);
+			double otherLower = 0.0;
+			double otherUpper = 0.0;
+			for(int o=0; o<pomdp.getNumObservations(); o++) {
+				BeliefNode child = node.children[a][o];
+				if(child == null || o == oNext) continue;
+				
+				double p = node.b.getActionObservationProbability(a, o);
+				otherLower += p * getLowerValue(child);
+				otherUpper += p * getUpperValue(child);
+			}
+			
+			double weight = pomdp.getDiscountFactor() * node.b.getActionObservationProbability(a, oNext);
+			targetLower = (nodeTargetLower - reward - pomdp.getDiscountFactor() * otherLower) / weight;
+			targetUpper = (nodeTargetUpper - reward - pomdp.getDiscountFactor() * otherUpper) / weight;
+			
+			node = node.children[a][oNext];
+		}
+		
+		for(int i=path.size()-1; i>=0; i--) {
+			backup(path.get(i));
+		}
+	}
+	
+	/**
+	 * Create the children of a node
+	 * @param node node of the belief tree
+	 */
+	private void expand(BeliefNode node) {
+		if(node.isExpanded()) return;
+		
+		node.successors = SolverHSVI.getSuccessorBeliefs(pomdp, node.b);
+		node.children = new BeliefNode[pomdp.getNumActions()][pomdp.getNumObservations()];
+		node.prunedActions = new boolean[pomdp.getNumActions()];
+		
+		for(int a=0; a<pomdp.getNumActions(); a++) {
+			for(int o=0; o<pomdp.getNumObservations(); o++) {
+				if(node.successors[a][o] != null) {
+					node.children[a][o] = new BeliefNode(node.successors[a][o]);
+				}
+			}
+		}
+		
+		treeSize++;
+	}
+	
+	/**
+	 * Update the lower bound and upper bound in the belief of a node
+	 * @param node expanded node of the belief tree
+	 */
+	private void backup(BeliefNode node) {
+		// lower bound
+		AlphaVector alpha = SolverHSVI.backupLowerBound(pomdp, lowerBound, node.b, node.successors);
+		if(stats != null) stats.increment(SolverStatistics.BACKUPS);
+		if(alpha.getDotProduct(node.b.getBelief()) > getLowerValue(node)) {
+			lowerBound.add(alpha);
+			lowerBoundVersion++;
+		}
+		
+		// upper bound, in which pruned actions can be ignored because their values are below the lower bound
+		double[] qValues = new double[pomdp.getNumActions()];
+		double maxValue = Double.NEGATIVE_INFINITY;
+		for(int a=0; a<pomdp.getNumActions(); a++) {
+			if(!node.prunedActions[a]) {
+				qValues[a] = getUpperQValue(node, a);
+				maxValue = Math.max(maxValue, qValues[a]);
+			}
+		}
+		
+		if(upperBound.add(node.b.getBelief(), maxValue)) {
+			upperBoundVersion++;
+		}
+		
+		// remove the subtrees and successor beliefs of actions which cannot be optimal, because their upper bound is below
+		// the lower bound, such that later lower bound backups also skip these actions
+		double lowerValue = getLowerValue(node);
+		for(int a=0; a<pomdp.getNumActions(); a++) {
+			if(!node.prunedActions[a] && qValues[a] < lowerValue && qValues[a] < maxValue) {
+				node.prunedActions[a] = true;
+				node.children[a] = new BeliefNode[pomdp.getNumObservations()];
+				node.successors[a] = null;
+			}
+		}
+	}
+	
+	/**
+	 * Remove the vectors which are not maximal at any belief of the tree and the belief points which do not improve the upper bound
+	 */
+	private void prune() {
+		// collect the beliefs in the tree, which excludes the subtrees of actions that have been pruned during backups
+		ArrayList<BeliefNode> nodes = new ArrayList<BeliefNode>();
+		ArrayList<BeliefNode> queue = new ArrayList<BeliefNode>();
+		queue.add(root);
+		treeSize = 0;
+		
+		while(queue.size() > 0) {
+			BeliefNode node = queue.remove(queue.size()-1);
+			nodes.add(node);
+			if(!node.isExpanded()) continue;
+			
+			treeSize++;
+			
+			for(int a=0; a<pomdp.getNumActions(); a++) {
+				for(BeliefNode child : node.children[a]) {
+					if(child != null) queue.add(child);
+				}
+			}
+		}
+		
+		// keep the vectors which are maximal at a belief in the tree
+		boolean[] useful = new boolean[lowerBound.size()];
+		for(BeliefNode node : nodes) {
+			useful[AlphaVector.getBestVectorIndex(node.b.getBelief(), lowerBound)] = true;
+		}
+		
+		ArrayList<AlphaVector> prunedLowerBound = new ArrayList<AlphaVector>();
+		for(int i=0; i<lowerBound.size(); i++) {
+			if(useful[i]) prunedLowerBound.add(lowerBound.get(i));
+		}
+		
+		if(prunedLowerBound.size() < lowerBound.size()) {
+			lowerBound = prunedLowerBound;
+			lowerBoundVersion++;
+		}
+		
+		if(upperBound.prune() > 0) {
+			upperBoundVersion++;
+		}
+	}
+	
+	/**
+	 * Get the lower bound on the value of the belief of a node, which is recomputed if the bound has changed
+	 * @param node node of the belief tree
+	 * @return lower bound
+	 */
+	private double getLowerValue(BeliefNode node) {
+		if(node.lowerVersion != lowerBoundVersion) {
+			node.lowerValue = AlphaVector.getValue(node.b.getBelief(), lowerBound);
+			node.lowerVersion = lowerBoundVersion;
+		}
+		
+		return node.lowerValue;
+	}
+	
+	/**
+	 * Get the upper bound on the value of the belief of a node, which is recomputed if the bound has changed
+	 * @param node node of the belief tree
+	 * @return upper bound
+	 */
+	private double getUpperValue(BeliefNode node) {
+		if(node.upperVersion != upperBoundVersion) {
+			node.upperValue = upperBound.getValue(node.b.getBelief());
+			node.upperVersion = upperBoundVersion;
+		}
+		
+		return node.upperValue;
+	}
+	
+	/**
+	 * Compute the value of executing action a in the belief of a node, if the lower bound is used to define the values of the successor beliefs
+	 * @param node expanded node of the belief tree
+	 * @param a action
+	 * @return lower bound on the value of a
+	 */
+	private double getLowerQValue(BeliefNode node, int a) {
+		double futureValue = 0.0;
+		for(int o=0; o<pomdp.getNumObservations(); o++) {
+			if(node.children[a][o] != null) {
+				futureValue += node.b.getActionObservationProbability(a, o) * getLowerValue(node.children[a][o]);
+			}
+		}
+		
+		return getExpectedReward(node, a) + pomdp.getDiscountFactor() * futureValue;
+	}
+	
+	/**
+	 * Compute the value of executing action a in the belief of a node, if the upper bound is used to define the values of the successor beliefs
+	 * @param node expanded node of the belief tree
+	 * @param a action
+	 * @return upper bound on the value of a
+	 */
+	private double getUpperQValue(BeliefNode node, int a) {
+		double futureValue = 0.0;
+		for(int o=0; o<pomdp.getNumObservations(); o++) {
+			if(node.children[a][o] != null) {
+				futureValue += node.b.getActionObservationProbability(a, o) * getUpperValue(node.children[a][o]);
+			}
+		}
+		
+		return getExpectedReward(node, a) + pomdp.getDiscountFactor() * futureValue;
+	}
+	
+	/**
+	 * Get the expected immediate reward of executing action a in the belief of a node
+	 * @param node node of the belief tree
+	 * @param a action
+	 * @return expected reward
+	 */
+	private double getExpectedReward(BeliefNode node, int a) {
+		double reward = 0.0;
+		for(int s=0; s<pomdp.getNumStates(); s++) {
+			reward += node.b.getBelief(s) * pomdp.getReward(s, a);
+		}
+		
+		return reward;
+	}
+	
+	/**
+	 * Get the action that maximizes the upper bound in the belief of a node, among the actions which have not been pruned
+	 * @param node expanded node of the belief tree
+	 * @return action
+	 */
+	private int getUpperBoundAction(BeliefNode node) {
+		int bestAction = -1;
+		double bestValue = Double.NEGATIVE_INFINITY;
+		
+		for(int a=0; a<pomdp.getNumActions(); a++) {
+			if(node.prunedActions[a]) continue;
+			
+			double value = getUpperQValue(node, a);
+			if(value > bestValue) {
+				bestValue = value;
+				bestAction = a;
+			}
+		}
+		
+		// the upper bound of the best action is at least the lower bound, so this only occurs due to rounding errors
+		if(bestAction == -1) {
+			for(int a=0; a<pomdp.getNumActions(); a++) {
+				double value = getUpperQValue(node, a);
+				if(value > bestValue) {
+					bestValue = value;
+					bestAction = a;
+				}
+			}
+		}
+		
+		return bestAction;
+	}
+	
+	/**
+	 * Get the statistics collected during the last call to solve
+	 * @return statistics, or null if statistics are not collected
+	 */
+	public SolverStatistics getStatistics() {
+		return stats;
+	}
+	
+	/**
+	 * Get the upper bound on the value of the initial belief, computed by the last call to solve
+	 * @return upper bound
+	 */
+	public double getUpperBoundValue() {
+		return upperBoundValue;
+	}
+	
+	/**
+	 * Get expected value of the solution, which is the lower bound on the value of the initial belief
+	 * @return expected value
+	 */
+	public double getExpectedValue() {
+		return expectedValue;
+	}
+}
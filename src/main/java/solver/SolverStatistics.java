@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * SolvePOMDP
+ * Copyright (C) 2017 Erwin Walraven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package solver;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Counters and timers collected during each stage of a solver. The values of a stage are stored when
+ * the stage ends, and all stages can be written to a CSV file with one row per stage.
+ */
+
+public class SolverStatistics {
+	// timers, in seconds
+	public static final String TIME_BACKPROJECTION = "timeBackprojection";
+	public static final String TIME_PRUNE_GAO = "timePruneGao";
+	public static final String TIME_CROSS_SUM = "timeCrossSum";
+	public static final String TIME_MERGE = "timeMerge";
+	public static final String TIME_BELLMAN_DIFFERENCE = "timeBellmanDifference";
+	public static final String TIME_BACKUP = "timeBackup";
+	public static final String TIME_LP = "timeLP";
+	
+	// counters
+	public static final String LP_FIND_REGION_POINT = "lpFindRegionPoint";
+	public static final String LP_FIND_REGION_POINT_ACCELERATED = "lpFindRegionPointAccelerated";
+	public static final String LP_MAX_VALUE_DIFF = "lpMaxValueDiff";
+	public static final String LP_ACCELERATED_CONSTRAINTS = "lpAcceleratedConstraints";
+	public static final String LP_FIND_IMPROVED_NODE = "lpFindImprovedNode";
+	public static final String DOMINANCE_CHECKS = "dominanceChecks";
+	public static final String PRUNED_DOMINATED = "prunedDominated";
+	public static final String PRUNED_LP = "prunedLP";
+	public static final String BACKUPS = "backups";
+	public static final String PRUNED_BELIEFS = "prunedBeliefs";
+	
+	private static final String[] COLUMNS = {TIME_BACKPROJECTION, TIME_PRUNE_GAO, TIME_CROSS_SUM, TIME_MERGE, TIME_BELLMAN_DIFFERENCE, TIME_BACKUP, TIME_LP,
+			LP_FIND_REGION_POINT, LP_FIND_REGION_POINT_ACCELERATED, LP_MAX_VALUE_DIFF, LP_ACCELERATED_CONSTRAINTS, LP_FIND_IMPROVED_NODE, DOMINANCE_CHECKS, PRUNED_DOMINATED, PRUNED_LP, BACKUPS, PRUNED_BELIEFS};
+	
+	private Map<String,Double> current = new LinkedHashMap<String,Double>();        // values of the current stage
+	private ArrayList<Map<String,Double>> stages = new ArrayList<Map<String,Double>>();
+	
+	/**
+	 * Add an amount to a counter or timer of the current stage
+	 * @param name name of the counter or timer
+	 * @param amount amount to be added
+	 */
+	public synchronized void add(String name, double amount) {
+		Double value = current.get(name);
+		current.put(name, (value == null ? 0.0 : value) + amount);
+	}
+	
+	/**
+	 * Increment a counter of the current stage
+	 * @param name name of the counter
+	 */
+	public void increment(String name) {
+		add(name, 1.0);
+	}
+	
+	/**
+	 * Add the time elapsed since startTime to a timer of the current stage
+	 * @param name name of the timer
+	 * @param startTime start time obtained using System.nanoTime()
+	 */
+	public void addTime(String name, long startTime) {
+		add(name, (System.nanoTime() - startTime) * 0.000000001);
+	}
+	
+	/**
+	 * Get the value of a counter or timer of the current stage
+	 * @param name name of the counter or timer
+	 * @return value
+	 */
+	public synchronized double get(String name) {
+		Double value = current.get(name);
+		return value == null ? 0.0 : value;
+	}
+	
+	/**
+	 * Store the values of the current stage, and reset all counters and timers
+	 * @param stage stage number
+	 * @param nVectors number of vectors in the value function of the stage
+	 * @param bellmanDifference difference with the previous value function
+	 * @param elapsed time elapsed since the solver started, in seconds
+	 */
+	public synchronized void endStage(int stage, int nVectors, double bellmanDifference, double elapsed) {
+		Map<String,Double> row = new LinkedHashMap<String,Double>();
+		row.put("stage", (double) stage);
+		row.put("vectors", (double) nVectors);
+		row.put("diff", bellmanDifference);
+		row.put("elapsed", elapsed);
+		
+		for(String column : COLUMNS) {
+			Double value = current.get(column);
+			row.put(column, value == null ? 0.0 : value);
+		}
+		
+		stages.add(row);
+		current = new LinkedHashMap<String,Double>();
+	}
+	
+	/**
+	 * Get the values of all stages that have ended
+	 * @return list containing one map per stage
+	 */
+	public synchronized ArrayList<Map<String,Double>> getStages() {
+		return new ArrayList<Map<String,Double>>(stages);
+	}
+	
+	/**
+	 * Write the values of all stages to a CSV file
+	 * @param outputFile output file
+	 */
+	public synchronized void writeCSV(String outputFile) {
+		try {
+			Writer output = new BufferedWriter(new FileWriter(outputFile));
+			
+			output.write("stage,vectors,diff,elapsed");
+			for(String column : COLUMNS) {
+				output.write(","+column);
+			}
+			output.write("\n");
+			
+			for(Map<String,Double> row : stages) {
+				boolean first = true;
+				for(Map.Entry<String,Double> entry : row.entrySet()) {
+					String key = entry.getKey();
+					double value = entry.getValue();
+					
+					if(!first) output.write(",");
+					first = false;
+					
+					// stage, vectors and counters are integers
+					if(key.equals("diff") || key.equals("elapsed") || key.startsWith("time")) {
+						output.write(Double.toString(value));
+					}
+					else {
+						output.write(Long.toString((long) value));
+					}
+				}
+				output.write("\n");
+			}
+			
+			output.close();
+		}
+		catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,177 @@
+/*******************************************************************************
+ * SolvePOMDP
+ * Copyright (C) 2017 Erwin Walraven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package solver;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Scanner;
+
+import program.POMDP;
+
+public class ValueFunctionReader {
+	/**
+	 * Read a value function from a file written by OutputFileWriter.dumpValueFunction, in which actions are represented by IDs
+	 * @param file .alpha file
+	 * @return vector set representing the value function
+	 */
+	public static ArrayList<AlphaVector> readFile(String file) {
+		return readFile(file, null);
+	}
+	
+	/**
+	 * Read a value function from a file written by OutputFileWriter.dumpValueFunction
+	 * @param file .alpha file
+	 * @param pomdp POMDP used to translate action labels into IDs, or null if the file contains action IDs
+	 * @return vector set representing the value function
+	 */
+	public static ArrayList<AlphaVector> readFile(String file, POMDP pomdp) {
+		ArrayList<AlphaVector> vectors = new ArrayList<AlphaVector>();
+		
+		try {
+			Scanner sc = new Scanner(new File(file));
+			
+			while(sc.hasNextLine()) {
+				// get action, and skip the empty lines between vectors
+				String actionLine = sc.nextLine().trim();
+				if(actionLine.length() == 0) {
+					continue;
+				}
+				vectors.add(readVector(actionLine, sc, file, pomdp));
+			}
+			
+			sc.close();
+		} catch (FileNotFoundException e) {
+			throw new RuntimeException("Value function file could not be found: "+file);
+		}
+		
+		return vectors;
+	}
+	
+	/**
+	 * Read the value functions of a finite-horizon problem from a file written by OutputFileWriter.dumpHorizonValueFunctions
+	 * @param file .horizon file
+	 * @param pomdp POMDP used to translate action labels into IDs, or null if the file contains action IDs
+	 * @return list containing the value function with k+1 stages to go at index k
+	 */
+	public static ArrayList<ArrayList<AlphaVector>> readHorizonFile(String file, POMDP pomdp) {
+		ArrayList<ArrayList<AlphaVector>> stageVectors = new ArrayList<ArrayList<AlphaVector>>();
+		
+		try {
+			Scanner sc = new Scanner(new File(file));
+			
+			String[] headerSplit = nextNonEmptyLine(sc, file).split(" ");
+			if(headerSplit.length != 2 || !headerSplit[0].equals("horizon")) {
+				throw new RuntimeException("Horizon file "+file+" does not start with the horizon");
+			}
+			int horizon = Integer.parseInt(headerSplit[1]);
+			
+			for(int k=0; k<horizon; k++) {
+				// each value function is preceded by the number of stages to go and the number of vectors
+				String[] stageSplit = nextNonEmptyLine(sc, file).split(" ");
+				if(stageSplit.length != 3 || !stageSplit[0].equals("stage") || Integer.parseInt(stageSplit[1]) != k+1) {
+					throw new RuntimeException("Horizon file "+file+" does not contain stage "+(k+1));
+				}
+				int nVectors = Integer.parseInt(stageSplit[2]);
+				
+				ArrayList<AlphaVector> vectors = new ArrayList<AlphaVector>();
+				for(int i=0; i<nVectors; i++) {
+					vectors.add(readVector(nextNonEmptyLine(sc, file), sc, file, pomdp));
+				}
+				stageVectors.add(vectors);
+			}
+			
+			sc.close();
+		} catch (FileNotFoundException e) {
+			throw new RuntimeException("Horizon file could not be found: "+file);
+		}
+		
+		return stageVectors;
+	}
+	
+	/**
+	 * Get the next line which is not empty
+	 * @param sc scanner of the file
+	 * @param file name of the file
+	 * @return trimmed line
+	 */
+	private static String nextNonEmptyLine(Scanner sc, String file) {
+		while(sc.hasNextLine()) {
+			String line = sc.nextLine().trim();
+			if(line.length() > 0) {
+				return line;
+			}
+		}
+		
+		throw new RuntimeException("Unexpected end of file: "+file);
+	}
+	
+	/**
+	 * Read a vector, consisting of an action line and a line containing the entries
+	 * @param actionLine action ID or action label
+	 * @param sc scanner positioned at the line containing the entries
+	 * @param file name of the file
+	 * @param pomdp POMDP used to translate action labels into IDs, or null
+	 * @return vector
+	 */
+	private static AlphaVector readVector(String actionLine, Scanner sc, String file, POMDP pomdp) {
+		int action = getActionID(actionLine, pomdp);
+		
+		// get line containing doubles
+		String line = sc.nextLine().trim();
+		String[] lineSplit = line.split(" ");
+		double[] vectorEntries = new double[lineSplit.length];
+		
+		for(int i=0; i<lineSplit.length; i++) {
+			vectorEntries[i] = Double.parseDouble(lineSplit[i]);
+		}
+		
+		if(pomdp != null && vectorEntries.length != pomdp.getNumStates()) {
+			throw new RuntimeException("Vector in "+file+" has "+vectorEntries.length+" entries, but the POMDP has "+pomdp.getNumStates()+" states");
+		}
+		
+		AlphaVector av = new AlphaVector(vectorEntries);
+		av.setAction(action);
+		
+		return av;
+	}
+	
+	/**
+	 * Get the action ID represented by an action line of a value function file
+	 * @param actionLine action ID or action label
+	 * @param pomdp POMDP used to translate action labels into IDs, or null
+	 * @return action ID
+	 */
+	private static int getActionID(String actionLine, POMDP pomdp) {
+		try {
+			return Integer.parseInt(actionLine);
+		}
+		catch (NumberFormatException e) {
+			if(pomdp != null) {
+				for(int a=0; a<pomdp.getNumActions(); a++) {
+					if(actionLine.equals(pomdp.getActionLabel(a))) {
+						return a;
+					}
+				}
+			}
+			
+			throw new RuntimeException("Unknown action in value function file: "+actionLine);
+		}
+	}
+}